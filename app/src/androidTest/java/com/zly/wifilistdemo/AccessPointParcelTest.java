@@ -0,0 +1,153 @@
+package com.zly.wifilistdemo;
+
+import android.net.wifi.WifiConfiguration;
+import android.os.Parcel;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Parcel 需要真实设备，放在 androidTest 中
+ */
+@RunWith(AndroidJUnit4.class)
+public class AccessPointParcelTest {
+    private static final String TAG = "AccessPointParcelTest";
+    private static final String[] CAPABILITIES = {
+            "[WPA2-PSK-CCMP][ESS]", "[WPA-PSK-CCMP+TKIP][WPA2-PSK-CCMP+TKIP][ESS][WPS]", "[ESS]"};
+
+    private static List<AccessPoint> accessPoints(int size) {
+        Random random = new Random(size);
+        List<WifiScanRecord> records = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            records.add(new WifiScanRecord("wifi-" + (i / 2), String.format("a0:b1:c2:%02x:%02x:%02x",
+                    i >> 16 & 0xff, i >> 8 & 0xff, i & 0xff), CAPABILITIES[(i / 2) % CAPABILITIES.length],
+                    -30 - random.nextInt(70), 2412 + 5 * random.nextInt(13)));
+        }
+        List<AccessPoint> accessPoints = new ArrayList<>(new AccessPointMerger(null)
+                .merge(records, null, null, null, null).getAccessPoints());
+        for (int i = 0; i < accessPoints.size(); i += 10) {
+            AccessPoint accessPoint = new AccessPoint(accessPoints.get(i));
+            WifiConfiguration config = new WifiConfiguration();
+            config.SSID = accessPoint.getQuotedSSID();
+            config.networkId = i;
+            config.allowedKeyManagement.set(WifiConfiguration.KeyMgmt.WPA_PSK);
+            accessPoint.setWifiConfiguration(config);
+            accessPoints.set(i, accessPoint);
+        }
+        return accessPoints;
+    }
+
+    private static String describe(AccessPoint accessPoint) {
+        StringBuilder builder = new StringBuilder()
+                .append(accessPoint.getKey()).append(' ').append(accessPoint.bssid).append(' ')
+                .append(accessPoint.pskType).append(' ').append(accessPoint.networkId).append(' ')
+                .append(accessPoint.getRssi()).append(' ').append(accessPoint.getSignalLevel()).append(' ')
+                .append(accessPoint.isSecured).append(' ').append(accessPoint.isPasswordError());
+        for (WifiScanRecord record : accessPoint.getScanRecords()) {
+            builder.append(' ').append(record.bssid).append('/').append(record.capabilities)
+                    .append('/').append(record.level).append('/').append(record.frequency);
+        }
+        return builder.toString();
+    }
+
+    private static List<String> describe(List<AccessPoint> accessPoints) {
+        List<String> descriptions = new ArrayList<>();
+        for (AccessPoint accessPoint : accessPoints) {
+            descriptions.add(describe(accessPoint));
+        }
+        return descriptions;
+    }
+
+    /**
+     * 之前的格式：每个 AccessPoint 都完整写入平台对象
+     */
+    private static void writeLegacy(Parcel dest, AccessPoint accessPoint) {
+        dest.writeString(accessPoint.ssid);
+        dest.writeString(accessPoint.bssid);
+        dest.writeInt(accessPoint.security);
+        dest.writeInt(accessPoint.networkId);
+        dest.writeInt(accessPoint.pskType);
+        dest.writeParcelable(accessPoint.wifiConfiguration, 0);
+        dest.writeInt(accessPoint.getRssi());
+        dest.writeParcelable(accessPoint.wifiInfo, 0);
+        dest.writeParcelable(accessPoint.networkInfo, 0);
+        dest.writeByte((byte) (accessPoint.isSecured ? 1 : 0));
+    }
+
+    @Test
+    public void singleAccessPoint_roundTrip() {
+        AccessPoint accessPoint = accessPoints(4).get(0);
+        accessPoint.setPasswordError(true);
+        Parcel parcel = Parcel.obtain();
+        try {
+            accessPoint.writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            AccessPoint restored = AccessPoint.CREATOR.createFromParcel(parcel);
+            assertEquals(describe(accessPoint), describe(restored));
+            assertEquals(0, accessPoint.compareTo(restored));
+            assertNull(restored.wifiConfiguration);
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    @Test
+    public void list_roundTripAndSize() {
+        List<AccessPoint> accessPoints = accessPoints(500);
+        Parcel legacy = Parcel.obtain();
+        Parcel single = Parcel.obtain();
+        Parcel bulk = Parcel.obtain();
+        try {
+            for (AccessPoint accessPoint : accessPoints) {
+                writeLegacy(legacy, accessPoint);
+            }
+            single.writeTypedList(accessPoints);
+            new AccessPointList(accessPoints).writeToParcel(bulk, 0);
+
+            bulk.setDataPosition(0);
+            List<AccessPoint> restored = AccessPointList.CREATOR.createFromParcel(bulk).accessPoints;
+            assertEquals(describe(accessPoints), describe(restored));
+            single.setDataPosition(0);
+            List<AccessPoint> restoredSingle = single.createTypedArrayList(AccessPoint.CREATOR);
+            assertEquals(describe(accessPoints), describe(restoredSingle));
+
+            Log.i(TAG, String.format("%d APs: legacy %d bytes, compact %d bytes, bulk %d bytes",
+                    accessPoints.size(), legacy.dataSize(), single.dataSize(), bulk.dataSize()));
+            assertTrue(single.dataSize() < legacy.dataSize());
+            assertTrue(bulk.dataSize() < single.dataSize());
+        } finally {
+            legacy.recycle();
+            single.recycle();
+            bulk.recycle();
+        }
+    }
+
+    @Test
+    public void rehydrate_restoresConfiguration() {
+        AccessPoint accessPoint = accessPoints(20).get(0);
+        Parcel parcel = Parcel.obtain();
+        try {
+            accessPoint.writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            AccessPoint restored = AccessPoint.CREATOR.createFromParcel(parcel);
+            SavedNetworkIndex savedNetworks = new SavedNetworkIndex(null);
+            savedNetworks.setConfigurations(Collections.singletonList(accessPoint.wifiConfiguration));
+            restored.rehydrate(null, savedNetworks, null, null, null);
+            assertEquals(accessPoint.wifiConfiguration, restored.wifiConfiguration);
+            assertTrue(restored.isSaved());
+        } finally {
+            parcel.recycle();
+        }
+    }
+}
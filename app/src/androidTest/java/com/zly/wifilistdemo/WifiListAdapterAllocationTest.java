@@ -0,0 +1,89 @@
+package com.zly.wifilistdemo;
+
+import android.content.Context;
+import android.os.Debug;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.annotation.UiThreadTest;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v7.widget.RecyclerView;
+import android.widget.FrameLayout;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * 稳定状态下重复绑定不分配对象，用 Debug 的线程分配计数检查，需要真实设备
+ */
+@RunWith(AndroidJUnit4.class)
+public class WifiListAdapterAllocationTest {
+    private static final int ROWS = 8;
+    private static final int ROUNDS = 200;
+
+    private static AccessPointSnapshot snapshot(Context context) {
+        List<WifiScanRecord> records = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            records.add(new WifiScanRecord("wifi-" + i, String.format("a0:b1:c2:d3:00:%02x", i),
+                    i % 2 == 0 ? "[ESS]" : "[WPA2-PSK-CCMP][ESS]", -40 - i, 2412));
+        }
+        List<AccessPoint> accessPoints = new AccessPointMerger(null)
+                .merge(records, null, null, null, null).getAccessPoints();
+        return new AccessPointSnapshot(1, accessPoints,
+                AccessPointItem.fromList(accessPoints, new StatusTextTable(context), false));
+    }
+
+    @Test
+    @UiThreadTest
+    @SuppressWarnings("deprecation")
+    public void repeatedBinds_doNotAllocate() {
+        Context context = InstrumentationRegistry.getTargetContext();
+        WifiListAdapter adapter = new WifiListAdapter(new Metrics());
+        AccessPointSnapshot snapshot = snapshot(context);
+        List<AccessPointItem> items = snapshot.items;
+        // 列表为空时 AsyncListDiffer 同步替换，不经过后台线程
+        adapter.submitSnapshot(snapshot);
+        assertEquals(items.size(), adapter.getItemCount());
+
+        FrameLayout parent = new FrameLayout(context);
+        WifiListAdapter.WifiViewHolder[] holders = new WifiListAdapter.WifiViewHolder[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            holders[i] = adapter.onCreateViewHolder(parent, 0);
+        }
+        // 预热：每个 ViewHolder 都绑定过加密和开放的网络，id 都已分配
+        for (int position = 0; position < items.size(); position++) {
+            adapter.onBindViewHolder(holders[position % ROWS], position);
+            adapter.getItemId(position);
+        }
+
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                for (int position = 0; position < items.size(); position++) {
+                    adapter.onBindViewHolder(holders[(position + round) % ROWS], position);
+                    adapter.getItemId(position);
+                }
+            }
+        } finally {
+            Debug.stopAllocCounting();
+        }
+        assertEquals(0, Debug.getThreadAllocCount());
+    }
+
+    @Test
+    @UiThreadTest
+    public void itemIds_areStable() {
+        Context context = InstrumentationRegistry.getTargetContext();
+        WifiListAdapter adapter = new WifiListAdapter(new Metrics());
+        adapter.submitSnapshot(snapshot(context));
+        long first = adapter.getItemId(0);
+        assertNotEquals(first, adapter.getItemId(1));
+        assertEquals(first, adapter.getItemId(0));
+        assertNotEquals(RecyclerView.NO_ID, first);
+    }
+}
@@ -13,9 +13,11 @@ import android.net.wifi.WifiManager;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.support.annotation.NonNull;
+import android.support.annotation.StringRes;
 import android.text.TextUtils;
 
-import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Created by zhuleiyue on 2018/3/12.
@@ -26,11 +28,25 @@ public class AccessPoint implements Parcelable, Comparable<AccessPoint> {
     public static final int SECURITY_WEP = 1;
     public static final int SECURITY_PSK = 2;
     public static final int SECURITY_EAP = 3;
+    public static final int SECURITY_SAE = 4;
+    public static final int SECURITY_OWE = 5;
+    public static final int SECURITY_EAP_SUITE_B = 6;
+    /**
+     * 加密类型的个数，按加密类型分组时用作数组长度
+     */
+    static final int SECURITY_COUNT = SECURITY_EAP_SUITE_B + 1;
+
+    /**
+     * WifiConfiguration.KeyMgmt 在 API 29 加入的取值，compileSdkVersion 27 中还没有
+     */
+    static final int KEY_MGMT_SAE = 8;
+    static final int KEY_MGMT_OWE = 9;
+    static final int KEY_MGMT_SUITE_B_192 = 10;
 
-    private static final int PSK_UNKNOWN = 0;
-    private static final int PSK_WPA = 1;
-    private static final int PSK_WPA2 = 2;
-    private static final int PSK_WPA_WPA2 = 3;
+    static final int PSK_UNKNOWN = 0;
+    static final int PSK_WPA = 1;
+    static final int PSK_WPA2 = 2;
+    static final int PSK_WPA_WPA2 = 3;
 
     /**
      * Anything worse than or equal to this will show 0 bars.
@@ -56,6 +72,18 @@ public class AccessPoint implements Parcelable, Comparable<AccessPoint> {
     public WifiConfiguration wifiConfiguration;
 
     private int rssi = Integer.MAX_VALUE;
+    /**
+     * 显示的信号格数，为 -1 时根据 rssi 计算
+     */
+    private int signalLevel = -1;
+    /**
+     * 同一 SSID 和加密类型下扫描到的所有 BSSID，rssi 和 bssid 取其中信号最强的一个
+     */
+    private ScanTable scanTable = ScanTable.EMPTY;
+    /**
+     * bssid 压缩后的值，没有变化时不重新生成字符串
+     */
+    private long packedBssid = WifiScanRecord.NO_BSSID;
 
     public WifiInfo wifiInfo;
     public NetworkInfo networkInfo;
@@ -65,9 +93,49 @@ public class AccessPoint implements Parcelable, Comparable<AccessPoint> {
 
     private boolean isPasswordError = false;
 
+    /**
+     * 排序主键，越小越靠前：是否活动、是否可达、是否已保存、信号格数依次占据高位到低位
+     */
+    private static final long SORT_INACTIVE = 1L << 62;
+    private static final long SORT_UNREACHABLE = 1L << 61;
+    private static final long SORT_UNSAVED = 1L << 60;
+    private static final int SORT_LEVEL_SHIFT = 32;
+
+    private long sortKey;
+    /**
+     * ssid 对应的符号，ssid 被直接赋值后在下次使用时重新查找
+     */
+    private SsidTable.Symbol ssidSymbol;
+    /**
+     * getKey() 的缓存，ssid 或 security 变化后重新生成
+     */
+    private String key;
+    private SsidTable.Symbol keySymbol;
+    private int keySecurity;
+
     public AccessPoint(Context context, ScanResult scanResult) {
+        this(context, WifiScanRecord.from(scanResult));
+    }
+
+    public AccessPoint(Context context, WifiScanRecord record) {
+        this(context, Collections.singletonList(record));
+    }
+
+    /**
+     * 根据同一 SSID 和加密类型的一组扫描结果创建
+     */
+    public AccessPoint(Context context, List<WifiScanRecord> records) {
+        this(context, ScanTable.of(records));
+    }
+
+    /**
+     * @param scanTable 至少有一行
+     */
+    public AccessPoint(Context context, ScanTable scanTable) {
         this.context = context;
-        initWithScanResult(scanResult);
+        this.ssidSymbol = SsidTable.get().intern(scanTable.ssid);
+        this.ssid = ssidSymbol.raw;
+        update(scanTable);
     }
 
     public AccessPoint(Context context, WifiConfiguration configuration) {
@@ -80,111 +148,256 @@ public class AccessPoint implements Parcelable, Comparable<AccessPoint> {
     }
 
     /**
-     * 根据 ScanResult 初始化 AccessPoint
+     * 复制一份当前状态，用于发布给其他线程读取的快照
+     */
+    public AccessPoint(AccessPoint other) {
+        this.context = other.context;
+        this.ssid = other.ssid;
+        this.bssid = other.bssid;
+        this.security = other.security;
+        this.networkId = other.networkId;
+        this.pskType = other.pskType;
+        this.wifiConfiguration = other.wifiConfiguration;
+        this.rssi = other.rssi;
+        this.signalLevel = other.signalLevel;
+        this.scanTable = other.scanTable;
+        this.packedBssid = other.packedBssid;
+        this.wifiInfo = other.wifiInfo;
+        this.networkInfo = other.networkInfo;
+        this.isSecured = other.isSecured;
+        this.password = other.password;
+        this.isPasswordError = other.isPasswordError;
+        this.sortKey = other.sortKey;
+        // 在复制时算好符号和 key，副本的 getter 不再写字段
+        this.ssidSymbol = other.getSsidSymbol();
+        this.key = other.getKey();
+        this.keySymbol = other.keySymbol;
+        this.keySecurity = other.keySecurity;
+    }
+
+    /**
+     * 用新一轮的扫描结果更新 AccessPoint
+     *
+     * @return 是否有字段发生变化
      */
-    private void initWithScanResult(ScanResult result) {
-        this.ssid = result.SSID;
-        this.bssid = result.BSSID;
-        this.security = getSecurity(result);
-        if (this.security == SECURITY_PSK) {
-            this.pskType = getPskType(result);
+    public boolean update(WifiScanRecord record) {
+        return update(ScanTable.of(Collections.singletonList(record)));
+    }
+
+    /**
+     * 用同一 SSID 和加密类型的一组扫描结果更新，信号最强的 BSSID 作为代表
+     *
+     * @return 代表的 BSSID、信号或者 BSSID 数量是否发生变化
+     */
+    public boolean update(List<WifiScanRecord> records) {
+        return update(ScanTable.of(records));
+    }
+
+    /**
+     * 用同一 SSID 和加密类型的一组扫描结果更新，信号最强的 BSSID 作为代表
+     *
+     * @param scanTable 至少有一行
+     * @return 代表的 BSSID、信号或者 BSSID 数量是否发生变化
+     */
+    public boolean update(ScanTable scanTable) {
+        int best = scanTable.getStrongest();
+        WifiCapabilities capabilities = scanTable.getCapabilities(best);
+        int level = scanTable.getLevel(best);
+        long bssid = scanTable.getBssid(best);
+        boolean changed = rssi != level
+                || this.security != capabilities.security
+                || this.pskType != capabilities.pskType
+                || packedBssid != bssid
+                || !this.scanTable.hasSameMembers(scanTable);
+        if (packedBssid != bssid || this.bssid == null) {
+            this.bssid = WifiScanRecord.unpackBssid(bssid);
+            this.packedBssid = bssid;
         }
-        if (this.security == SECURITY_NONE) {
-            this.isSecured = false;
+        this.security = capabilities.security;
+        this.pskType = capabilities.pskType;
+        this.isSecured = security != SECURITY_NONE;
+        this.rssi = level;
+        this.signalLevel = -1;
+        this.scanTable = scanTable;
+        updateSortKey();
+        return changed;
+    }
+
+    /**
+     * 扫描到的所有 BSSID 及其信号和频率
+     */
+    public List<WifiScanRecord> getScanRecords() {
+        return scanTable.asList();
+    }
+
+    /**
+     * 按列存放的扫描结果，逐行读取时不创建对象
+     */
+    public ScanTable getScanTable() {
+        return scanTable;
+    }
+
+    /**
+     * 信号最强的 BSSID，不在范围内时为 null
+     */
+    public WifiScanRecord getBestScanRecord() {
+        return scanTable.size() == 0 ? null : scanTable.getRecord(scanTable.getStrongest());
+    }
+
+    /**
+     * 列表中唯一标识这个 AccessPoint 的 key
+     */
+    public String getKey() {
+        SsidTable.Symbol symbol = getSsidSymbol();
+        if (key == null || keySymbol != symbol || keySecurity != security) {
+            key = getKey(symbol.raw, security);
+            keySymbol = symbol;
+            keySecurity = security;
+        }
+        return key;
+    }
+
+    /**
+     * ssid 在 {@link SsidTable} 中的符号
+     */
+    public SsidTable.Symbol getSsidSymbol() {
+        if (ssidSymbol == null || ssidSymbol.raw != ssid) {
+            ssidSymbol = SsidTable.get().intern(ssid);
         }
-        this.rssi = result.level;
+        return ssidSymbol;
+    }
+
+    /**
+     * 同一 SSID 不同加密类型的网络是不同的 AccessPoint
+     */
+    public static String getKey(String ssid, int security) {
+        return ssid + ',' + security;
+    }
+
+    public int getRssi() {
+        return rssi;
     }
 
     private void initWithConfiguration(WifiConfiguration configuration) {
-        this.ssid = (configuration.SSID == null ? "" : removeDoubleQuotes(configuration.SSID));
+        this.ssidSymbol = SsidTable.get().internQuoted(configuration.SSID);
+        this.ssid = ssidSymbol.raw;
         this.bssid = configuration.BSSID;
+        this.packedBssid = WifiScanRecord.packBssid(bssid);
         this.security = getSecurity(configuration);
         this.networkId = configuration.networkId;
         this.wifiConfiguration = configuration;
+        updateSortKey();
     }
 
     /**
      * 获取状态概要
      */
     public String getStatusSummary() {
+        boolean validated = !(isActive() && getDetailedState() == NetworkInfo.DetailedState.CONNECTED)
+                || isCurrentNetworkValidated(context);
+        return context.getString(getStatusSummaryRes(validated));
+    }
+
+    /**
+     * 获取状态概要对应的字符串资源
+     *
+     * @param validated 当前连接的网络是否已通过验证
+     */
+    @StringRes
+    public int getStatusSummaryRes(boolean validated) {
         if (isActive()) {
             NetworkInfo.DetailedState state = getDetailedState();
             if (state == null) {
-                return context.getString(R.string.network_wifi_status_idle);
+                return R.string.network_wifi_status_idle;
             }
-            if (state == NetworkInfo.DetailedState.CONNECTED) {
-                ConnectivityManager cm = (ConnectivityManager)
-                        context.getApplicationContext().getSystemService(Context.CONNECTIVITY_SERVICE);
-                WifiManager wifiManager = (WifiManager)
-                        context.getApplicationContext().getSystemService(Context.WIFI_SERVICE);
-                Network network;
-                try {
-                    Method getCurrentNetwork = WifiManager.class.getMethod("getCurrentNetwork");
-                    network = (Network) getCurrentNetwork.invoke(wifiManager);
-                } catch (Exception e) {
-                    network = null;
-                }
-                NetworkCapabilities networkCapabilities = cm.getNetworkCapabilities(network);
-                if (networkCapabilities != null && !networkCapabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED)) {
-                    return context.getString(R.string.network_wifi_status_connected_no_internet);
-                }
+            if (state == NetworkInfo.DetailedState.CONNECTED && !validated) {
+                return R.string.network_wifi_status_connected_no_internet;
             }
             switch (state) {
                 case IDLE:
-                    return context.getString(R.string.network_wifi_status_idle);
+                    return R.string.network_wifi_status_idle;
                 case SCANNING:
-                    return context.getString(R.string.network_wifi_status_scanning);
+                    return R.string.network_wifi_status_scanning;
                 case CONNECTING:
-                    return context.getString(R.string.network_wifi_status_connecting);
+                    return R.string.network_wifi_status_connecting;
                 case AUTHENTICATING:
-                    return context.getString(R.string.network_wifi_status_authenticating);
+                    return R.string.network_wifi_status_authenticating;
                 case OBTAINING_IPADDR:
-                    return context.getString(R.string.network_wifi_status_obtaining_ip_address);
+                    return R.string.network_wifi_status_obtaining_ip_address;
                 case CONNECTED:
-                    isPasswordError = false;
-                    return context.getString(R.string.network_wifi_status_connected);
+                    return R.string.network_wifi_status_connected;
                 case SUSPENDED:
-                    return context.getString(R.string.network_wifi_status_suspended);
+                    return R.string.network_wifi_status_suspended;
                 case DISCONNECTING:
-                    return context.getString(R.string.network_wifi_status_disconnecting);
+                    return R.string.network_wifi_status_disconnecting;
                 case DISCONNECTED:
-                    return context.getString(R.string.network_wifi_status_disconnected);
+                    return R.string.network_wifi_status_disconnected;
                 case FAILED:
-                    return context.getString(R.string.network_wifi_status_failed);
+                    return R.string.network_wifi_status_failed;
                 case BLOCKED:
-                    return context.getString(R.string.network_wifi_status_blocked);
+                    return R.string.network_wifi_status_blocked;
                 case VERIFYING_POOR_LINK:
-                    return context.getString(R.string.network_wifi_status_verifying_poor_link);
+                    return R.string.network_wifi_status_verifying_poor_link;
                 case CAPTIVE_PORTAL_CHECK:
                 default:
-                    return context.getString(R.string.network_wifi_status_idle);
+                    return R.string.network_wifi_status_idle;
             }
+        } else if (isPasswordError) {
+            return R.string.network_wifi_status_password_failure;
         } else if (!isNetworkEnabled()) {
             switch (getNetworkSelectionDisableReason()) {
                 case 2:
-                    return context.getString(R.string.network_wifi_status_disabled);
+                    return R.string.network_wifi_status_disabled;
                 case 3:
-                    return context.getString(R.string.network_wifi_status_password_failure);
+                    return R.string.network_wifi_status_password_failure;
                 case 4:
                 case 5:
-                    return context.getString(R.string.network_wifi_status_network_failure);
+                    return R.string.network_wifi_status_network_failure;
                 default:
-                    return context.getString(R.string.network_wifi_status_wifi_failure);
+                    return R.string.network_wifi_status_wifi_failure;
             }
         } else if (isSaved()) {
-            return context.getString(R.string.network_wifi_status_saved);
+            return R.string.network_wifi_status_saved;
         } else {
-            return context.getString(R.string.network_wifi_status_idle);
+            return R.string.network_wifi_status_idle;
         }
     }
 
+    /**
+     * 当前连接的 wifi 是否已通过验证，无法获取网络能力时视为已验证
+     */
+    public static boolean isCurrentNetworkValidated(Context context) {
+        ConnectivityManager cm = (ConnectivityManager)
+                context.getApplicationContext().getSystemService(Context.CONNECTIVITY_SERVICE);
+        WifiManager wifiManager = (WifiManager)
+                context.getApplicationContext().getSystemService(Context.WIFI_SERVICE);
+        if (cm == null || wifiManager == null) {
+            return true;
+        }
+        Network network = HiddenApi.getCurrentNetwork(wifiManager);
+        NetworkCapabilities networkCapabilities = cm.getNetworkCapabilities(network);
+        return networkCapabilities == null
+                || networkCapabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED);
+    }
+
     public int getSignalLevel() {
         if (rssi == Integer.MAX_VALUE || rssi <= -100) {
             return 0;
         }
+        if (signalLevel >= 0) {
+            return signalLevel;
+        }
         return calculateSignalLevel(rssi, SIGNAL_LEVELS);
     }
 
+    /**
+     * 指定显示的信号格数，用于 {@link SignalEstimator} 的迟滞；下次用扫描结果更新时失效
+     */
+    void setSignalLevel(int signalLevel) {
+        this.signalLevel = signalLevel;
+        updateSortKey();
+    }
+
     public static int calculateSignalLevel(int rssi, int numLevels) {
         if (rssi <= MIN_RSSI) {
             return 0;
@@ -198,40 +411,18 @@ public class AccessPoint implements Parcelable, Comparable<AccessPoint> {
     }
 
     /**
-     * 获取 PSK 类型
+     * 根据 WifiConfiguration 获取加密类型
      */
-    private static int getPskType(ScanResult result) {
-        boolean wpa = result.capabilities.contains("WPA-PSK");
-        boolean wpa2 = result.capabilities.contains("WPA2-PSK");
-        if (wpa2 && wpa) {
-            return PSK_WPA_WPA2;
-        } else if (wpa2) {
-            return PSK_WPA2;
-        } else if (wpa) {
-            return PSK_WPA;
-        } else {
-            return PSK_UNKNOWN;
+    static int getSecurity(WifiConfiguration config) {
+        if (config.allowedKeyManagement.get(KEY_MGMT_SAE)) {
+            return SECURITY_SAE;
         }
-    }
-
-    /**
-     * 根据 ScanResult 获取加密类型
-     */
-    private static int getSecurity(ScanResult result) {
-        if (result.capabilities.contains("WEP")) {
-            return SECURITY_WEP;
-        } else if (result.capabilities.contains("PSK")) {
-            return SECURITY_PSK;
-        } else if (result.capabilities.contains("EAP")) {
-            return SECURITY_EAP;
+        if (config.allowedKeyManagement.get(KEY_MGMT_OWE)) {
+            return SECURITY_OWE;
+        }
+        if (config.allowedKeyManagement.get(KEY_MGMT_SUITE_B_192)) {
+            return SECURITY_EAP_SUITE_B;
         }
-        return SECURITY_NONE;
-    }
-
-    /**
-     * 根据 WifiConfiguration 获取加密类型
-     */
-    private static int getSecurity(WifiConfiguration config) {
         if (config.allowedKeyManagement.get(WifiConfiguration.KeyMgmt.WPA_PSK)) {
             return SECURITY_PSK;
         }
@@ -259,6 +450,12 @@ public class AccessPoint implements Parcelable, Comparable<AccessPoint> {
             return "PSK";
         } else if (security == SECURITY_EAP) {
             return "EAP";
+        } else if (security == SECURITY_SAE) {
+            return "SAE";
+        } else if (security == SECURITY_OWE) {
+            return "OWE";
+        } else if (security == SECURITY_EAP_SUITE_B) {
+            return "SUITE_B";
         }
         return "NONE";
     }
@@ -276,17 +473,22 @@ public class AccessPoint implements Parcelable, Comparable<AccessPoint> {
             reorder = (this.wifiInfo == null);
             this.wifiInfo = info;
             this.networkInfo = networkInfo;
+            if (networkInfo != null && networkInfo.getDetailedState() == NetworkInfo.DetailedState.CONNECTED) {
+                isPasswordError = false;
+            }
         } else if (this.wifiInfo != null) {
             reorder = true;
             this.wifiInfo = null;
             this.networkInfo = null;
         }
+        updateSortKey();
         return reorder;
     }
 
     public void setWifiConfiguration(WifiConfiguration config) {
         this.wifiConfiguration = config;
-        networkId = config.networkId;
+        networkId = config == null ? INVALID_NETWORK_ID : config.networkId;
+        updateSortKey();
     }
 
     /**
@@ -295,7 +497,23 @@ public class AccessPoint implements Parcelable, Comparable<AccessPoint> {
     public void generateNetworkConfig() {
         if (wifiConfiguration != null)
             return;
-        wifiConfiguration = new WifiConfiguration();
+        wifiConfiguration = buildNetworkConfig(password);
+    }
+
+    /**
+     * 当前版本能否用 {@link #buildNetworkConfig(String)} 为这种加密类型新建配置；
+     * EAP 需要证书等额外信息，SAE 和 OWE 在 API 29 之前无法设置
+     */
+    static boolean canBuildNetworkConfig(int security) {
+        return security == SECURITY_NONE || security == SECURITY_WEP || security == SECURITY_PSK;
+    }
+
+    /**
+     * 按 SSID、加密类型和 password 新建一个配置，不修改这个 AccessPoint；
+     * 只有 {@link #canBuildNetworkConfig(int)} 的加密类型才会设置 key management
+     */
+    public WifiConfiguration buildNetworkConfig(String password) {
+        WifiConfiguration wifiConfiguration = new WifiConfiguration();
         wifiConfiguration.SSID = getQuotedSSID();
         switch (security) {
             case SECURITY_NONE:
@@ -322,10 +540,15 @@ public class AccessPoint implements Parcelable, Comparable<AccessPoint> {
                 }
                 break;
             case SECURITY_EAP:
+            case SECURITY_EAP_SUITE_B:
                 // 暂时忽略
                 break;
+            case SECURITY_SAE:
+            case SECURITY_OWE:
+                // KeyMgmt.SAE 和 KeyMgmt.OWE 在 API 29 才加入，暂时忽略
+                break;
         }
-
+        return wifiConfiguration;
     }
 
     /**
@@ -348,7 +571,7 @@ public class AccessPoint implements Parcelable, Comparable<AccessPoint> {
         } else if (config != null) {
             return matches(config);
         } else {
-            return ssid.equals(removeDoubleQuotes(info.getSSID()));
+            return getSsidSymbol() == SsidTable.get().internQuoted(info.getSSID());
         }
     }
 
@@ -356,16 +579,17 @@ public class AccessPoint implements Parcelable, Comparable<AccessPoint> {
         if (isPasspoint(config) && this.wifiConfiguration != null && isPasspoint(wifiConfiguration)) {
             return config.FQDN.equals(this.wifiConfiguration.FQDN);
         } else {
-            return ssid.equals(removeDoubleQuotes(config.SSID)) &&
+            return getSsidSymbol() == SsidTable.get().internQuoted(config.SSID) &&
                     security == getSecurity(config) &&
                     this.wifiConfiguration == null;
         }
     }
 
+    /**
+     * 标记密码错误，保留已保存的配置，直到连接成功时清除
+     */
     public void setPasswordError(boolean passwordError) {
         isPasswordError = passwordError;
-        wifiConfiguration = null;
-        networkId = INVALID_NETWORK_ID;
     }
 
     public boolean isPasswordError() {
@@ -388,38 +612,14 @@ public class AccessPoint implements Parcelable, Comparable<AccessPoint> {
      * 通过反射获取 NetworkSelectionStatus
      */
     public boolean isNetworkEnabled() {
-        boolean enabled = true;
-        if (wifiConfiguration != null) {
-            try {
-                Class NetworkSelectionStatus = Class.forName("android.net.wifi.WifiConfiguration$NetworkSelectionStatus");
-                Method getNetworkSelectionStatus = WifiConfiguration.class.getMethod("getNetworkSelectionStatus");
-                Object networkSelectionStatus = getNetworkSelectionStatus.invoke(wifiConfiguration);
-                Method isNetworkEnabled = NetworkSelectionStatus.getMethod("isNetworkEnabled");
-                enabled = (boolean) isNetworkEnabled.invoke(networkSelectionStatus);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
-        return enabled;
+        return wifiConfiguration == null || HiddenApi.isNetworkEnabled(wifiConfiguration);
     }
 
     /**
      * 通过反射获取 NetworkSelectionStatus
      */
     public int getNetworkSelectionDisableReason() {
-        int status = 0;
-        if (wifiConfiguration != null) {
-            try {
-                Class NetworkSelectionStatus = Class.forName("android.net.wifi.WifiConfiguration$NetworkSelectionStatus");
-                Method getNetworkSelectionStatus = WifiConfiguration.class.getMethod("getNetworkSelectionStatus");
-                Object networkSelectionStatus = getNetworkSelectionStatus.invoke(wifiConfiguration);
-                Method getDisableReason = NetworkSelectionStatus.getMethod("getNetworkSelectionDisableReason");
-                status = (int) getDisableReason.invoke(networkSelectionStatus);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
-        return status;
+        return wifiConfiguration == null ? 0 : HiddenApi.getNetworkSelectionDisableReason(wifiConfiguration);
     }
 
     public boolean isActive() {
@@ -438,7 +638,7 @@ public class AccessPoint implements Parcelable, Comparable<AccessPoint> {
      * 添加双引号
      */
     public String getQuotedSSID() {
-        return "\"" + ssid + "\"";
+        return getSsidSymbol().quoted;
     }
 
     /**
@@ -456,22 +656,52 @@ public class AccessPoint implements Parcelable, Comparable<AccessPoint> {
         return string;
     }
 
-    @Override
-    public int compareTo(@NonNull AccessPoint other) {
+    /**
+     * 重新计算排序主键，影响排序的字段变化后都要调用
+     */
+    private void updateSortKey() {
+        long key = 0;
         // Active one goes first.
-        if (isActive() && !other.isActive()) return -1;
-        if (!isActive() && other.isActive()) return 1;
+        if (!isActive()) key |= SORT_INACTIVE;
         // Reachable one goes before unreachable one.
-        if (this.rssi != Integer.MAX_VALUE && other.rssi == Integer.MAX_VALUE) return -1;
-        if (this.rssi == Integer.MAX_VALUE && other.rssi != Integer.MAX_VALUE) return 1;
+        if (rssi == Integer.MAX_VALUE) key |= SORT_UNREACHABLE;
         // Configured one goes before unConfigured one.
-        if (isSaved() && !other.isSaved()) return -1;
-        if (!isSaved() && other.isSaved()) return 1;
-        int difference = other.getSignalLevel() - this.getSignalLevel();
-        if (difference != 0) {
-            return difference;
+        if (!isSaved()) key |= SORT_UNSAVED;
+        // Stronger one goes first.
+        key |= (long) (SIGNAL_LEVELS - 1 - getSignalLevel()) << SORT_LEVEL_SHIFT;
+        sortKey = key;
+    }
+
+    /**
+     * 逐字符做 toLowerCase(toUpperCase(c))，折叠后的字符串用 compareTo 比较
+     * 和原字符串用 compareToIgnoreCase 比较的结果一致
+     */
+    static String foldCase(String string) {
+        if (string == null) {
+            return "";
+        }
+        char[] chars = null;
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            char folded = Character.toLowerCase(Character.toUpperCase(c));
+            if (folded != c) {
+                if (chars == null) {
+                    chars = string.toCharArray();
+                }
+                chars[i] = folded;
+            }
+        }
+        return chars == null ? string : new String(chars);
+    }
+
+    @Override
+    public int compareTo(@NonNull AccessPoint other) {
+        if (sortKey != other.sortKey) {
+            return sortKey < other.sortKey ? -1 : 1;
         }
-        return this.ssid.compareToIgnoreCase(other.ssid);
+        SsidTable.Symbol symbol = getSsidSymbol();
+        SsidTable.Symbol otherSymbol = other.getSsidSymbol();
+        return symbol == otherSymbol ? 0 : symbol.collationKey.compareTo(otherSymbol.collationKey);
     }
 
     @Override
@@ -483,31 +713,70 @@ public class AccessPoint implements Parcelable, Comparable<AccessPoint> {
             return true;
         }
         if (obj instanceof AccessPoint) {
-            return ssid.equals(((AccessPoint) obj).ssid);
+            AccessPoint other = (AccessPoint) obj;
+            return security == other.security && getSsidSymbol() == other.getSsidSymbol();
         }
         return false;
     }
 
     @Override
     public int hashCode() {
-        int result = 0;
-        if (wifiInfo != null) result += 13 * wifiInfo.hashCode();
-        result += 19 * networkId;
-        result += 23 * ssid.hashCode();
+        int result = getSsidSymbol().raw.hashCode();
+        result = 31 * result + security;
         return result;
     }
 
+    /**
+     * Parcel 中的标记位
+     */
+    private static final int PARCEL_SECURED = 1;
+    private static final int PARCEL_PASSWORD_ERROR = 1 << 1;
+
+    /**
+     * 从 Parcel 恢复后，通过 networkId 重新关联 WifiConfiguration，并更新当前连接状态
+     */
+    public void rehydrate(Context context, SavedNetworkIndex savedNetworks, WifiConfiguration connectedConfig,
+                          WifiInfo wifiInfo, NetworkInfo networkInfo) {
+        this.context = context;
+        if (networkId != INVALID_NETWORK_ID && savedNetworks != null) {
+            setWifiConfiguration(savedNetworks.getByNetworkId(networkId));
+        }
+        update(connectedConfig, networkInfo != null ? wifiInfo : null, networkInfo);
+    }
+
     protected AccessPoint(Parcel in) {
-        ssid = in.readString();
-        bssid = in.readString();
+        this(in, null);
+    }
+
+    /**
+     * @param strings 字符串表，为 null 时字符串直接写在 Parcel 中
+     */
+    AccessPoint(Parcel in, String[] strings) {
+        ssidSymbol = SsidTable.get().intern(readString(in, strings));
+        ssid = ssidSymbol.raw;
+        packedBssid = in.readLong();
+        bssid = WifiScanRecord.unpackBssid(packedBssid);
         security = in.readInt();
-        networkId = in.readInt();
         pskType = in.readInt();
-        wifiConfiguration = in.readParcelable(WifiConfiguration.class.getClassLoader());
+        networkId = in.readInt();
         rssi = in.readInt();
-        wifiInfo = in.readParcelable(WifiInfo.class.getClassLoader());
-        networkInfo = in.readParcelable(NetworkInfo.class.getClassLoader());
-        isSecured = in.readByte() != 0;
+        signalLevel = in.readInt();
+        int flags = in.readInt();
+        isSecured = (flags & PARCEL_SECURED) != 0;
+        isPasswordError = (flags & PARCEL_PASSWORD_ERROR) != 0;
+        int count = in.readInt();
+        if (count > 0) {
+            ScanTable table = new ScanTable(ssid, count);
+            for (int i = 0; i < count; i++) {
+                long bssid = in.readLong();
+                WifiCapabilities capabilities = WifiCapabilities.parse(readString(in, strings));
+                int level = in.readInt();
+                int frequency = in.readInt();
+                table.add(bssid, capabilities, level, frequency);
+            }
+            scanTable = table;
+        }
+        updateSortKey();
     }
 
     public static final Creator<AccessPoint> CREATOR = new Creator<AccessPoint>() {
@@ -527,17 +796,55 @@ public class AccessPoint implements Parcelable, Comparable<AccessPoint> {
         return 0;
     }
 
+    /**
+     * 只写列表需要的字段；WifiConfiguration、WifiInfo 和 NetworkInfo 不写入，恢复后用 {@link #rehydrate} 重新关联
+     */
     @Override
     public void writeToParcel(Parcel dest, int flags) {
-        dest.writeString(ssid);
-        dest.writeString(bssid);
+        writeToParcel(dest, (AccessPointList.StringPool) null);
+    }
+
+    void writeToParcel(Parcel dest, AccessPointList.StringPool strings) {
+        writeString(dest, ssid, strings);
+        dest.writeLong(packedBssid);
         dest.writeInt(security);
-        dest.writeInt(networkId);
         dest.writeInt(pskType);
-        dest.writeParcelable(wifiConfiguration, flags);
+        dest.writeInt(networkId);
         dest.writeInt(rssi);
-        dest.writeParcelable(wifiInfo, flags);
-        dest.writeParcelable(networkInfo, flags);
-        dest.writeByte((byte) (isSecured ? 1 : 0));
+        dest.writeInt(signalLevel);
+        dest.writeInt((isSecured ? PARCEL_SECURED : 0) | (isPasswordError ? PARCEL_PASSWORD_ERROR : 0));
+        dest.writeInt(scanTable.size());
+        for (int i = 0; i < scanTable.size(); i++) {
+            dest.writeLong(scanTable.getBssid(i));
+            writeString(dest, scanTable.getCapabilities(i).text, strings);
+            dest.writeInt(scanTable.getLevel(i));
+            dest.writeInt(scanTable.getFrequency(i));
+        }
+    }
+
+    /**
+     * 把需要写入的字符串加入字符串表
+     */
+    void collectStrings(AccessPointList.StringPool strings) {
+        strings.add(ssid);
+        for (int i = 0; i < scanTable.size(); i++) {
+            strings.add(scanTable.getCapabilities(i).text);
+        }
+    }
+
+    private static void writeString(Parcel dest, String string, AccessPointList.StringPool strings) {
+        if (strings == null) {
+            dest.writeString(string);
+        } else {
+            dest.writeInt(strings.indexOf(string));
+        }
+    }
+
+    private static String readString(Parcel in, String[] strings) {
+        if (strings == null) {
+            return in.readString();
+        }
+        int index = in.readInt();
+        return index < 0 ? null : strings[index];
     }
 }
@@ -0,0 +1,104 @@
+package com.zly.wifilistdemo;
+
+import android.support.annotation.DrawableRes;
+import android.support.v7.util.DiffUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 列表中一行显示的内容
+ * <p>
+ * 在后台线程根据 AccessPoint 生成，之后不再改变，用于计算列表差异；
+ * 绑定时只需把字段设置到 View 上。
+ */
+public class AccessPointItem {
+    /**
+     * 只有信号强度发生了变化
+     */
+    static final Object PAYLOAD_SIGNAL_LEVEL = new Object();
+
+    public final AccessPoint accessPoint;
+    public final String key;
+    public final String title;
+    /**
+     * 状态描述，未保存并且没有密码错误的网络为 null
+     */
+    public final String status;
+    @DrawableRes
+    public final int icon;
+    public final int level;
+    public final boolean secured;
+    /**
+     * 来自上次保存的扫描结果，还没有被本次扫描确认
+     */
+    public final boolean stale;
+
+    /**
+     * @param statusTexts 状态描述文字表
+     * @param validated   当前连接的网络是否已通过验证
+     */
+    public AccessPointItem(AccessPoint accessPoint, StatusTextTable statusTexts, boolean validated) {
+        this(accessPoint, statusTexts, validated, false);
+    }
+
+    public AccessPointItem(AccessPoint accessPoint, StatusTextTable statusTexts, boolean validated,
+                           boolean stale) {
+        this.stale = stale;
+        this.accessPoint = accessPoint;
+        this.key = accessPoint.getKey();
+        this.title = accessPoint.ssid;
+        this.status = accessPoint.isSaved() || accessPoint.isPasswordError()
+                ? statusTexts.get(accessPoint.getStatusSummaryRes(validated)) : null;
+        this.level = accessPoint.getSignalLevel();
+        this.secured = accessPoint.isSecured;
+        this.icon = secured ? R.drawable.icon_wifi_signal_lock_level : R.drawable.icon_wifi_signal_level;
+    }
+
+    public static List<AccessPointItem> fromList(List<AccessPoint> accessPoints, StatusTextTable statusTexts,
+                                                 boolean validated) {
+        return fromList(accessPoints, statusTexts, validated, false);
+    }
+
+    public static List<AccessPointItem> fromList(List<AccessPoint> accessPoints, StatusTextTable statusTexts,
+                                                 boolean validated, boolean stale) {
+        List<AccessPointItem> items = new ArrayList<>(accessPoints.size());
+        for (AccessPoint accessPoint : accessPoints) {
+            items.add(new AccessPointItem(accessPoint, statusTexts, validated, stale));
+        }
+        return items;
+    }
+
+    private static boolean same(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * 合并器每次发布的都是新的冻结副本，不能按 AccessPoint 实例比较，只比较显示出来的字段
+     */
+    static final DiffUtil.ItemCallback<AccessPointItem> DIFF_CALLBACK = new DiffUtil.ItemCallback<AccessPointItem>() {
+        @Override
+        public boolean areItemsTheSame(AccessPointItem oldItem, AccessPointItem newItem) {
+            return oldItem.key.equals(newItem.key);
+        }
+
+        @Override
+        public boolean areContentsTheSame(AccessPointItem oldItem, AccessPointItem newItem) {
+            return oldItem.level == newItem.level && sameExceptLevel(oldItem, newItem);
+        }
+
+        @Override
+        public Object getChangePayload(AccessPointItem oldItem, AccessPointItem newItem) {
+            return sameExceptLevel(oldItem, newItem) ? PAYLOAD_SIGNAL_LEVEL : null;
+        }
+    };
+
+    private static boolean sameExceptLevel(AccessPointItem oldItem, AccessPointItem newItem) {
+        return oldItem.key.equals(newItem.key)
+                && oldItem.stale == newItem.stale
+                && oldItem.secured == newItem.secured
+                && oldItem.icon == newItem.icon
+                && same(oldItem.title, newItem.title)
+                && same(oldItem.status, newItem.status);
+    }
+}
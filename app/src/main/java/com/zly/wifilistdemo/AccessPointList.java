@@ -0,0 +1,96 @@
+package com.zly.wifilistdemo;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量写入 Parcel 的 AccessPoint 列表
+ * <p>
+ * 先写一张字符串表，SSID 和 capabilities 只写一次，条目中用下标引用。
+ */
+public class AccessPointList implements Parcelable {
+    public final List<AccessPoint> accessPoints;
+
+    public AccessPointList(List<AccessPoint> accessPoints) {
+        this.accessPoints = Collections.unmodifiableList(new ArrayList<>(accessPoints));
+    }
+
+    protected AccessPointList(Parcel in) {
+        String[] strings = in.createStringArray();
+        int size = in.readInt();
+        List<AccessPoint> accessPoints = new ArrayList<>(Math.max(size, 0));
+        for (int i = 0; i < size; i++) {
+            accessPoints.add(new AccessPoint(in, strings));
+        }
+        this.accessPoints = Collections.unmodifiableList(accessPoints);
+    }
+
+    public static final Creator<AccessPointList> CREATOR = new Creator<AccessPointList>() {
+        @Override
+        public AccessPointList createFromParcel(Parcel in) {
+            return new AccessPointList(in);
+        }
+
+        @Override
+        public AccessPointList[] newArray(int size) {
+            return new AccessPointList[size];
+        }
+    };
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        StringPool strings = new StringPool();
+        for (AccessPoint accessPoint : accessPoints) {
+            accessPoint.collectStrings(strings);
+        }
+        dest.writeStringArray(strings.toArray());
+        dest.writeInt(accessPoints.size());
+        for (AccessPoint accessPoint : accessPoints) {
+            accessPoint.writeToParcel(dest, strings);
+        }
+    }
+
+    /**
+     * 写入时使用的字符串表
+     */
+    static final class StringPool {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+
+        void add(String string) {
+            if (string != null && !indexes.containsKey(string)) {
+                indexes.put(string, strings.size());
+                strings.add(string);
+            }
+        }
+
+        /**
+         * null 返回 -1
+         */
+        int indexOf(String string) {
+            if (string == null) {
+                return -1;
+            }
+            Integer index = indexes.get(string);
+            if (index == null) {
+                throw new IllegalStateException("not collected: " + string);
+            }
+            return index;
+        }
+
+        String[] toArray() {
+            return strings.toArray(new String[strings.size()]);
+        }
+    }
+}
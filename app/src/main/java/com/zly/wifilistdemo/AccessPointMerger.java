@@ -0,0 +1,400 @@
+package com.zly.wifilistdemo;
+
+import android.content.Context;
+import android.net.NetworkInfo;
+import android.net.wifi.WifiConfiguration;
+import android.net.wifi.WifiInfo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 增量合并扫描结果
+ * <p>
+ * 按 SSID 和加密类型保存当前存活的 AccessPoint，同一组下的多个 BSSID 合并为一个条目，
+ * 每批扫描结果只处理新增、消失和变化的条目，并返回本次的变化 {@link Delta}。
+ * <p>
+ * 存活的 AccessPoint 只在这里、持有锁时修改；对外发布的是不可变的 {@link AccessPointSnapshot}，
+ * 其中没有变化的条目复用上一版快照里的副本。
+ */
+public class AccessPointMerger {
+    /**
+     * 变化条目数乘以这个值不超过总数时，使用二分插入代替整体排序
+     */
+    private static final int INCREMENTAL_REORDER_RATIO = 16;
+
+    private final Context context;
+    private final SignalEstimator signalEstimator;
+    private final Map<String, AccessPoint> accessPoints = new HashMap<>();
+    private List<AccessPoint> sortedAccessPoints = new ArrayList<>();
+    /**
+     * 存活的 AccessPoint -> 最近一次发布的副本
+     */
+    private final Map<AccessPoint, AccessPoint> frozen = new IdentityHashMap<>();
+    private long version = 0;
+    private volatile AccessPointSnapshot snapshot = AccessPointSnapshot.EMPTY;
+
+    public AccessPointMerger(Context context) {
+        this(context, new SignalEstimator());
+    }
+
+    public AccessPointMerger(Context context, SignalEstimator signalEstimator) {
+        this.context = context;
+        this.signalEstimator = signalEstimator;
+    }
+
+    /**
+     * 合并一批扫描结果
+     *
+     * @param records         本次扫描结果
+     * @param savedNetworks   已保存网络的索引
+     * @param connectedConfig 当前连接网络的配置
+     * @param wifiInfo        当前连接信息
+     * @param networkInfo     当前网络状态
+     * @return 本次合并产生的变化
+     */
+    public synchronized Delta merge(List<WifiScanRecord> records, SavedNetworkIndex savedNetworks,
+                                    WifiConfiguration connectedConfig, WifiInfo wifiInfo,
+                                    NetworkInfo networkInfo) {
+        Delta delta = new Delta();
+        Map<String, List<WifiScanRecord>> groups = group(records);
+        signalEstimator.beginScan();
+        for (Map.Entry<String, List<WifiScanRecord>> group : groups.entrySet()) {
+            List<WifiScanRecord> members = group.getValue();
+            int rawRssi = Integer.MIN_VALUE;
+            for (int i = 0; i < members.size(); i++) {
+                rawRssi = Math.max(rawRssi, members.get(i).level);
+            }
+            ScanTable table = smooth(members);
+            AccessPoint accessPoint = accessPoints.get(group.getKey());
+            boolean added = accessPoint == null;
+            boolean changed = false;
+            int previousLevel = -1;
+            if (added) {
+                accessPoint = new AccessPoint(context, table);
+                accessPoints.put(group.getKey(), accessPoint);
+                delta.added.add(accessPoint);
+            } else {
+                previousLevel = accessPoint.getSignalLevel();
+                changed = accessPoint.update(table);
+            }
+            accessPoint.setSignalLevel(signalEstimator.level(accessPoint.getRssi(), previousLevel, rawRssi));
+            changed |= applyConfiguration(accessPoint, savedNetworks);
+            changed |= applyNetworkInfo(accessPoint, connectedConfig, wifiInfo, networkInfo);
+            if (changed && !added) {
+                delta.updated.add(accessPoint);
+            }
+        }
+        Iterator<Map.Entry<String, AccessPoint>> iterator = accessPoints.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, AccessPoint> entry = iterator.next();
+            if (!groups.containsKey(entry.getKey())) {
+                AccessPoint removed = frozen.remove(entry.getValue());
+                delta.removed.add(removed != null ? removed : new AccessPoint(entry.getValue()));
+                iterator.remove();
+            }
+        }
+        publish(delta);
+        return delta;
+    }
+
+    /**
+     * 用上次保存的扫描结果初始化，只在还没有合并过任何扫描结果时生效
+     *
+     * @return 本次合并产生的变化，已经有扫描结果时返回 null
+     */
+    public synchronized Delta restore(List<WifiScanRecord> records, SavedNetworkIndex savedNetworks) {
+        if (version != 0) {
+            return null;
+        }
+        return merge(records, savedNetworks, null, null, null);
+    }
+
+    /**
+     * 按 SSID 和加密类型分组，保持每组第一次出现的顺序
+     */
+    private static Map<String, List<WifiScanRecord>> group(List<WifiScanRecord> records) {
+        Map<String, List<WifiScanRecord>> groups = new LinkedHashMap<>();
+        if (records == null) {
+            return groups;
+        }
+        for (WifiScanRecord record : records) {
+            if (record.ssid == null || record.ssid.isEmpty()) {
+                continue;
+            }
+            int security = WifiCapabilities.parse(record.capabilities).security;
+            String key = AccessPoint.getKey(record.ssid, security);
+            List<WifiScanRecord> group = groups.get(key);
+            if (group == null) {
+                group = new ArrayList<>(1);
+                groups.put(key, group);
+            }
+            group.add(record);
+        }
+        return groups;
+    }
+
+    /**
+     * 把一组扫描结果按列存放，每个 BSSID 的信号替换为平滑后的值
+     */
+    private ScanTable smooth(List<WifiScanRecord> members) {
+        ScanTable table = new ScanTable(members.get(0).ssid, members.size());
+        for (int i = 0; i < members.size(); i++) {
+            WifiScanRecord record = members.get(i);
+            long bssid = WifiScanRecord.packBssid(record.bssid);
+            table.add(bssid, WifiCapabilities.parse(record.capabilities),
+                    signalEstimator.estimate(bssid, record.level), record.frequency);
+        }
+        return table;
+    }
+
+    /**
+     * 平滑和迟滞挡掉的格数变化次数
+     */
+    public synchronized long getSuppressedReorderCount() {
+        return signalEstimator.getSuppressedReorderCount();
+    }
+
+    /**
+     * 把 key 对应的条目标记为密码错误，按 key 直接查找
+     *
+     * @return 变化，没有这个条目时返回 null
+     */
+    public synchronized Delta markPasswordError(String key) {
+        AccessPoint accessPoint = accessPoints.get(key);
+        if (accessPoint == null) {
+            return null;
+        }
+        accessPoint.setPasswordError(true);
+        Delta delta = new Delta();
+        delta.updated.add(accessPoint);
+        publish(delta);
+        return delta;
+    }
+
+    /**
+     * 最近一次发布的快照，不需要加锁
+     */
+    public AccessPointSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    private static boolean applyConfiguration(AccessPoint accessPoint, SavedNetworkIndex savedNetworks) {
+        WifiConfiguration match = savedNetworks == null ? null
+                : savedNetworks.get(accessPoint.getSsidSymbol(), accessPoint.security);
+        int oldNetworkId = accessPoint.networkId;
+        if (match != null || accessPoint.wifiConfiguration != null) {
+            accessPoint.setWifiConfiguration(match);
+        }
+        return oldNetworkId != accessPoint.networkId;
+    }
+
+    private static boolean applyNetworkInfo(AccessPoint accessPoint, WifiConfiguration connectedConfig,
+                                            WifiInfo wifiInfo, NetworkInfo networkInfo) {
+        NetworkInfo oldNetworkInfo = accessPoint.networkInfo;
+        boolean reorder = accessPoint.update(connectedConfig, networkInfo != null ? wifiInfo : null, networkInfo);
+        return reorder || oldNetworkInfo != accessPoint.networkInfo;
+    }
+
+    /**
+     * 重新排序并计算位置发生变化的条目
+     * <p>
+     * 保留下来的条目中，旧位置构成最长递增子序列的部分视为未移动，其余视为移动。
+     */
+    private void publish(Delta delta) {
+        List<AccessPoint> sorted = reorder(delta);
+        Map<AccessPoint, Integer> oldIndex = new IdentityHashMap<>();
+        for (int i = 0; i < sortedAccessPoints.size(); i++) {
+            oldIndex.put(sortedAccessPoints.get(i), i);
+        }
+        List<AccessPoint> retained = new ArrayList<>();
+        int[] sequence = new int[sorted.size()];
+        for (AccessPoint accessPoint : sorted) {
+            Integer index = oldIndex.get(accessPoint);
+            if (index != null) {
+                sequence[retained.size()] = index;
+                retained.add(accessPoint);
+            }
+        }
+        boolean[] stable = longestIncreasing(sequence, retained.size());
+        for (int i = 0; i < retained.size(); i++) {
+            if (!stable[i]) {
+                delta.moved.add(retained.get(i));
+            }
+        }
+        sortedAccessPoints = sorted;
+
+        // 只为新增和变化的条目生成新副本
+        for (AccessPoint accessPoint : delta.added) {
+            frozen.put(accessPoint, new AccessPoint(accessPoint));
+        }
+        for (AccessPoint accessPoint : delta.updated) {
+            frozen.put(accessPoint, new AccessPoint(accessPoint));
+        }
+        List<AccessPoint> published = new ArrayList<>(sorted.size());
+        for (AccessPoint accessPoint : sorted) {
+            published.add(frozen.get(accessPoint));
+        }
+        freeze(delta.added);
+        freeze(delta.updated);
+        freeze(delta.moved);
+        snapshot = new AccessPointSnapshot(++version, published, null);
+        delta.snapshot = snapshot;
+    }
+
+    private void freeze(List<AccessPoint> accessPoints) {
+        for (int i = 0; i < accessPoints.size(); i++) {
+            accessPoints.set(i, frozen.get(accessPoints.get(i)));
+        }
+    }
+
+    /**
+     * 变化的条目不多时，在上一次的顺序上把新增和变化的条目二分插入到新位置；否则整体排序
+     */
+    private List<AccessPoint> reorder(Delta delta) {
+        int dirtyCount = delta.added.size() + delta.updated.size();
+        if (dirtyCount * INCREMENTAL_REORDER_RATIO > accessPoints.size()) {
+            List<AccessPoint> sorted = new ArrayList<>(accessPoints.values());
+            Collections.sort(sorted);
+            return sorted;
+        }
+        Set<AccessPoint> dirty = Collections.newSetFromMap(new IdentityHashMap<>());
+        dirty.addAll(delta.added);
+        dirty.addAll(delta.updated);
+        List<AccessPoint> sorted = new ArrayList<>(accessPoints.size());
+        for (AccessPoint accessPoint : sortedAccessPoints) {
+            // 没有变化的条目排序主键不变，相对顺序仍然有效
+            if (!dirty.contains(accessPoint) && accessPoints.get(accessPoint.getKey()) == accessPoint) {
+                sorted.add(accessPoint);
+            }
+        }
+        for (AccessPoint accessPoint : dirty) {
+            insertSorted(sorted, accessPoint);
+        }
+        return sorted;
+    }
+
+    /**
+     * 把 accessPoint 二分插入到已排好序的 sorted 中
+     */
+    static void insertSorted(List<AccessPoint> sorted, AccessPoint accessPoint) {
+        int low = 0;
+        int high = sorted.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted.get(mid).compareTo(accessPoint) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        sorted.add(low, accessPoint);
+    }
+
+    /**
+     * 标记 sequence 前 length 项中属于某条最长递增子序列的位置
+     */
+    private static boolean[] longestIncreasing(int[] sequence, int length) {
+        int[] tails = new int[length];
+        int[] previous = new int[length];
+        int size = 0;
+        for (int i = 0; i < length; i++) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sequence[tails[mid]] < sequence[i]) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == size) {
+                size++;
+            }
+        }
+        boolean[] stable = new boolean[length];
+        for (int i = size > 0 ? tails[size - 1] : -1; i >= 0; i = previous[i]) {
+            stable[i] = true;
+        }
+        return stable;
+    }
+
+    /**
+     * 一次合并产生的变化，其中的 AccessPoint 都是快照里的副本
+     */
+    public static class Delta {
+        public final List<AccessPoint> added = new ArrayList<>();
+        public final List<AccessPoint> removed = new ArrayList<>();
+        public final List<AccessPoint> updated = new ArrayList<>();
+        public final List<AccessPoint> moved = new ArrayList<>();
+        AccessPointSnapshot snapshot = AccessPointSnapshot.EMPTY;
+
+        /**
+         * 计算任意两个快照之间的变化，用于跳过了中间快照的订阅者
+         * <p>
+         * 没有变化的条目在快照之间是同一个副本，只比较引用；相对顺序改变的条目计入 moved。
+         */
+        public static Delta between(AccessPointSnapshot previous, AccessPointSnapshot current) {
+            Delta delta = new Delta();
+            delta.snapshot = current;
+            Map<String, Integer> oldIndex = new HashMap<>();
+            for (int i = 0; i < previous.accessPoints.size(); i++) {
+                oldIndex.put(previous.accessPoints.get(i).getKey(), i);
+            }
+            List<AccessPoint> retained = new ArrayList<>();
+            int[] sequence = new int[current.accessPoints.size()];
+            for (AccessPoint accessPoint : current.accessPoints) {
+                Integer index = oldIndex.remove(accessPoint.getKey());
+                if (index == null) {
+                    delta.added.add(accessPoint);
+                    continue;
+                }
+                if (previous.accessPoints.get(index) != accessPoint) {
+                    delta.updated.add(accessPoint);
+                }
+                sequence[retained.size()] = index;
+                retained.add(accessPoint);
+            }
+            boolean[] stable = longestIncreasing(sequence, retained.size());
+            for (int i = 0; i < retained.size(); i++) {
+                if (!stable[i]) {
+                    delta.moved.add(retained.get(i));
+                }
+            }
+            for (AccessPoint accessPoint : previous.accessPoints) {
+                if (oldIndex.containsKey(accessPoint.getKey())) {
+                    delta.removed.add(accessPoint);
+                }
+            }
+            return delta;
+        }
+
+        /**
+         * 合并后发布的快照
+         */
+        public AccessPointSnapshot getSnapshot() {
+            return snapshot;
+        }
+
+        /**
+         * 合并后排好序的完整列表
+         */
+        public List<AccessPoint> getAccessPoints() {
+            return snapshot.accessPoints;
+        }
+
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty() && updated.isEmpty() && moved.isEmpty();
+        }
+    }
+}
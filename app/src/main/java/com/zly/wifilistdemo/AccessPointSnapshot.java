@@ -0,0 +1,39 @@
+package com.zly.wifilistdemo;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 某一次合并之后的 AccessPoint 列表
+ * <p>
+ * 列表和其中的 AccessPoint 发布之后都不再修改，可以在任意线程读取；
+ * version 单调递增，版本较旧的快照应当丢弃。
+ */
+public class AccessPointSnapshot {
+    public static final AccessPointSnapshot EMPTY = new AccessPointSnapshot(0,
+            Collections.<AccessPoint>emptyList(), Collections.<AccessPointItem>emptyList());
+
+    public final long version;
+    public final List<AccessPoint> accessPoints;
+    /**
+     * 对应的列表行，还没有生成时为 null
+     */
+    public final List<AccessPointItem> items;
+
+    AccessPointSnapshot(long version, List<AccessPoint> accessPoints, List<AccessPointItem> items) {
+        this.version = version;
+        this.accessPoints = Collections.unmodifiableList(accessPoints);
+        this.items = items == null ? null : Collections.unmodifiableList(items);
+    }
+
+    /**
+     * 返回附带列表行的同版本快照
+     */
+    public AccessPointSnapshot withItems(List<AccessPointItem> items) {
+        return new AccessPointSnapshot(version, accessPoints, items);
+    }
+
+    public boolean isNewerThan(AccessPointSnapshot other) {
+        return other == null || version > other.version;
+    }
+}
@@ -0,0 +1,225 @@
+package com.zly.wifilistdemo;
+
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+
+/**
+ * 根据扫描结果的变化调整扫描间隔
+ * <p>
+ * 连续几轮结果稳定时逐步拉长间隔，结果变化或用户操作时恢复到最短间隔；
+ * 任意 {@link Config#budgetWindow} 时间内最多扫描 {@link Config#budget} 次。
+ * 只有回应自己发起的扫描的结果才参与调整，其他应用触发的扫描结果不会让间隔变长。
+ * 时间和调度都来自传入的 {@link Scheduler}，测试时可以换成 TestScheduler。
+ */
+public class AdaptiveScanScheduler implements ScanScheduler {
+
+    public interface Scanner {
+        void startScan();
+    }
+
+    public interface DecisionListener {
+        void onDecision(Decision decision);
+    }
+
+    public static class Config {
+        /**
+         * Android 9 起前台应用每 2 分钟最多扫描 4 次
+         */
+        public static final Config DEFAULT = new Config(10_000, 80_000, 2, 4, 120_000, 1);
+
+        public final long minInterval;
+        public final long maxInterval;
+        public final int backoffFactor;
+        public final int budget;
+        public final long budgetWindow;
+        /**
+         * churn 达到这个值才算结果发生了变化
+         */
+        public final int churnThreshold;
+
+        /**
+         * 时间单位都是毫秒
+         */
+        public Config(long minInterval, long maxInterval, int backoffFactor, int budget, long budgetWindow,
+                      int churnThreshold) {
+            this.minInterval = minInterval;
+            this.maxInterval = maxInterval;
+            this.backoffFactor = backoffFactor;
+            this.budget = budget;
+            this.budgetWindow = budgetWindow;
+            this.churnThreshold = churnThreshold;
+        }
+    }
+
+    public static class Decision {
+        public static final int SCAN = 0;
+        /**
+         * 超出扫描预算，推迟到 nextDelay 之后
+         */
+        public static final int THROTTLED = 1;
+
+        public final long time;
+        public final int action;
+        public final long nextDelay;
+
+        Decision(long time, int action, long nextDelay) {
+            this.time = time;
+            this.action = action;
+            this.nextDelay = nextDelay;
+        }
+    }
+
+    private final Scanner scanner;
+    private final Scheduler scheduler;
+    private final Config config;
+    private DecisionListener decisionListener;
+
+    private Scheduler.Worker worker;
+    private Disposable pending;
+    private long nextScanTime;
+    private long interval;
+    /**
+     * 已经发起扫描，还没有收到结果
+     */
+    private boolean awaitingResults;
+
+    /**
+     * 最近 budget 次扫描的时间，环形存放
+     */
+    private final long[] scanTimes;
+    private int scanCount;
+
+    public AdaptiveScanScheduler(Scanner scanner, Scheduler scheduler, Config config) {
+        this.scanner = scanner;
+        this.scheduler = scheduler;
+        this.config = config;
+        this.interval = config.minInterval;
+        this.scanTimes = new long[config.budget];
+    }
+
+    public synchronized void setDecisionListener(DecisionListener decisionListener) {
+        this.decisionListener = decisionListener;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (worker != null) {
+            return;
+        }
+        worker = scheduler.createWorker();
+        interval = config.minInterval;
+        scheduleAt(now());
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (worker != null) {
+            worker.dispose();
+            worker = null;
+            pending = null;
+        }
+        awaitingResults = false;
+    }
+
+    @Override
+    public synchronized void onScanResults(int churn) {
+        if (!awaitingResults) {
+            return;
+        }
+        awaitingResults = false;
+        if (churn >= config.churnThreshold) {
+            interval = config.minInterval;
+        } else {
+            interval = Math.min(interval * config.backoffFactor, config.maxInterval);
+        }
+        reschedule(false);
+    }
+
+    @Override
+    public synchronized void onUserInteraction() {
+        if (interval == config.minInterval) {
+            return;
+        }
+        interval = config.minInterval;
+        reschedule(true);
+    }
+
+    /**
+     * 当前的扫描间隔，单位毫秒
+     */
+    public synchronized long getInterval() {
+        return interval;
+    }
+
+    /**
+     * 按新的间隔重新安排下一次扫描
+     *
+     * @param earlierOnly 只允许提前，不允许推后
+     */
+    private void reschedule(boolean earlierOnly) {
+        if (worker == null || scanCount == 0) {
+            return;
+        }
+        long time = Math.max(now(), lastScanTime() + interval);
+        if (!earlierOnly || time < nextScanTime) {
+            scheduleAt(time);
+        }
+    }
+
+    private void scheduleAt(long time) {
+        if (pending != null) {
+            pending.dispose();
+        }
+        nextScanTime = time;
+        pending = worker.schedule(this::onTick, Math.max(0, time - now()), TimeUnit.MILLISECONDS);
+    }
+
+    private void onTick() {
+        synchronized (this) {
+            if (worker == null) {
+                return;
+            }
+            long now = now();
+            long allowedAt = budgetAllowedAt();
+            if (allowedAt > now) {
+                report(new Decision(now, Decision.THROTTLED, allowedAt - now));
+                scheduleAt(allowedAt);
+                return;
+            }
+            scanTimes[scanCount % scanTimes.length] = now;
+            scanCount++;
+            awaitingResults = true;
+            report(new Decision(now, Decision.SCAN, interval));
+            scheduleAt(now + interval);
+        }
+        // startScan() 是 binder 调用，不在锁内执行，避免阻塞广播线程上的 onScanResults()
+        scanner.startScan();
+    }
+
+    /**
+     * 预算允许下一次扫描的最早时间
+     */
+    private long budgetAllowedAt() {
+        if (scanCount < scanTimes.length) {
+            return Long.MIN_VALUE;
+        }
+        long oldest = scanTimes[scanCount % scanTimes.length];
+        return oldest + config.budgetWindow;
+    }
+
+    private long lastScanTime() {
+        return scanTimes[(scanCount - 1) % scanTimes.length];
+    }
+
+    private long now() {
+        return scheduler.now(TimeUnit.MILLISECONDS);
+    }
+
+    private void report(Decision decision) {
+        if (decisionListener != null) {
+            decisionListener.onDecision(decision);
+        }
+    }
+}
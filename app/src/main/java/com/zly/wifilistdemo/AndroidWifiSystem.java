@@ -0,0 +1,109 @@
+package com.zly.wifilistdemo;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.net.wifi.ScanResult;
+import android.net.wifi.WifiConfiguration;
+import android.net.wifi.WifiInfo;
+import android.net.wifi.WifiManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 直接调用 WifiManager 和 ConnectivityManager，每次调用计入 {@link Metrics#COUNTER_BINDER_CALLS}
+ */
+public class AndroidWifiSystem implements WifiSystem {
+    private final Context context;
+    private final WifiManager wifiManager;
+    private final ConnectivityManager connectivityManager;
+    private final Metrics metrics;
+
+    /**
+     * @param wifiManager 不能为 null
+     */
+    public AndroidWifiSystem(Context context, WifiManager wifiManager, Metrics metrics) {
+        this.context = context.getApplicationContext();
+        this.wifiManager = wifiManager;
+        this.connectivityManager = (ConnectivityManager) this.context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public List<WifiScanRecord> getScanResults() {
+        metrics.increment(Metrics.COUNTER_BINDER_CALLS);
+        List<ScanResult> scanResults = wifiManager.getScanResults();
+        List<WifiScanRecord> records = new ArrayList<>(scanResults == null ? 0 : scanResults.size());
+        if (scanResults != null) {
+            for (ScanResult scanResult : scanResults) {
+                records.add(WifiScanRecord.from(scanResult));
+            }
+        }
+        return records;
+    }
+
+    @Override
+    public List<WifiConfiguration> getConfiguredNetworks() {
+        metrics.increment(Metrics.COUNTER_BINDER_CALLS);
+        return wifiManager.getConfiguredNetworks();
+    }
+
+    @Override
+    public WifiInfo getConnectionInfo() {
+        metrics.increment(Metrics.COUNTER_BINDER_CALLS);
+        return wifiManager.getConnectionInfo();
+    }
+
+    @Override
+    public NetworkInfo getActiveNetworkInfo() {
+        if (connectivityManager == null) {
+            return null;
+        }
+        metrics.increment(Metrics.COUNTER_BINDER_CALLS);
+        return connectivityManager.getActiveNetworkInfo();
+    }
+
+    @Override
+    public boolean isCurrentNetworkValidated() {
+        // getCurrentNetwork() 和 getNetworkCapabilities()
+        metrics.add(Metrics.COUNTER_BINDER_CALLS, 2);
+        return AccessPoint.isCurrentNetworkValidated(context);
+    }
+
+    @Override
+    public boolean startScan() {
+        metrics.increment(Metrics.COUNTER_BINDER_CALLS);
+        return wifiManager.startScan();
+    }
+
+    @Override
+    public boolean setWifiEnabled(boolean enabled) {
+        metrics.increment(Metrics.COUNTER_BINDER_CALLS);
+        return wifiManager.setWifiEnabled(enabled);
+    }
+
+    @Override
+    public int addNetwork(WifiConfiguration config) {
+        metrics.increment(Metrics.COUNTER_BINDER_CALLS);
+        return wifiManager.addNetwork(config);
+    }
+
+    @Override
+    public int updateNetwork(WifiConfiguration config) {
+        metrics.increment(Metrics.COUNTER_BINDER_CALLS);
+        return wifiManager.updateNetwork(config);
+    }
+
+    @Override
+    public boolean enableNetwork(int networkId, boolean attemptConnect) {
+        metrics.increment(Metrics.COUNTER_BINDER_CALLS);
+        return wifiManager.enableNetwork(networkId, attemptConnect);
+    }
+
+    @Override
+    public boolean removeNetwork(int networkId) {
+        metrics.increment(Metrics.COUNTER_BINDER_CALLS);
+        return wifiManager.removeNetwork(networkId);
+    }
+}
@@ -0,0 +1,431 @@
+package com.zly.wifilistdemo;
+
+import android.net.NetworkInfo;
+import android.net.wifi.SupplicantState;
+import android.net.wifi.WifiConfiguration;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+
+/**
+ * 跟踪每一次连接尝试
+ * <p>
+ * 一次尝试依次经过 请求 -> 关联 -> 认证 -> 获取 IP -> 已连接 -> 通过验证，状态只向前推进，
+ * 没有收到广播的阶段直接跳过；认证失败、连接上之后断开或者某个阶段超时都会以失败结束。
+ * 已连接之后一直没有通过验证（需要登录或者无法上网）以 {@link #STATE_UNVALIDATED} 结束，不算失败。
+ * 每个阶段的耗时记录在 {@link Attempt} 中，通过验证时计入 {@link Metrics}。
+ * <p>
+ * 已经保存过的网络直接使用原来的 networkId，输入了新密码时用 updateNetwork() 修改，不会重复添加配置。
+ * 同一时刻只跟踪一次尝试，新的请求会取消之前的尝试。
+ */
+public class ConnectionManager {
+    public static final int STATE_REQUESTED = 0;
+    public static final int STATE_ASSOCIATING = 1;
+    public static final int STATE_AUTHENTICATING = 2;
+    public static final int STATE_OBTAINING_IP = 3;
+    /**
+     * 已连接，等待网络验证
+     */
+    public static final int STATE_CONNECTED = 4;
+    public static final int STATE_VALIDATED = 5;
+    public static final int STATE_FAILED = 6;
+    /**
+     * 已连接并获取到 IP，但在 validationTimeoutMillis 内没有通过验证
+     */
+    public static final int STATE_UNVALIDATED = 7;
+    /**
+     * 和连接过程无关的广播
+     */
+    static final int STATE_UNKNOWN = -1;
+
+    public static final int FAILURE_NONE = 0;
+    /**
+     * 缺少密码，或者 addNetwork()、updateNetwork()、enableNetwork() 失败
+     */
+    public static final int FAILURE_CONFIGURATION = 1;
+    public static final int FAILURE_AUTHENTICATION = 2;
+    public static final int FAILURE_TIMEOUT = 3;
+    /**
+     * 连接上之后又断开
+     */
+    public static final int FAILURE_DISCONNECTED = 4;
+    /**
+     * 被新的请求取消
+     */
+    public static final int FAILURE_CANCELLED = 5;
+    /**
+     * 没有已保存的配置，并且当前版本无法为这种加密类型新建配置，见 {@link AccessPoint#canBuildNetworkConfig}
+     */
+    public static final int FAILURE_UNSUPPORTED_SECURITY = 6;
+
+    private static final String[] STATE_NAMES = {
+            "REQUESTED", "ASSOCIATING", "AUTHENTICATING", "OBTAINING_IP", "CONNECTED", "VALIDATED", "FAILED",
+            "UNVALIDATED"};
+    private static final String[] FAILURE_NAMES = {
+            "NONE", "CONFIGURATION", "AUTHENTICATION", "TIMEOUT", "DISCONNECTED", "CANCELLED",
+            "UNSUPPORTED_SECURITY"};
+
+    /**
+     * STATE_REQUESTED 到 STATE_CONNECTED 各阶段对应的 histogram
+     */
+    private static final int[] PHASE_HISTOGRAMS = {
+            Metrics.HISTOGRAM_CONNECT_REQUESTED, Metrics.HISTOGRAM_CONNECT_ASSOCIATING,
+            Metrics.HISTOGRAM_CONNECT_AUTHENTICATING, Metrics.HISTOGRAM_CONNECT_OBTAINING_IP,
+            Metrics.HISTOGRAM_CONNECT_VALIDATING};
+
+    public static class Config {
+        public static final Config DEFAULT = new Config(TimeUnit.SECONDS.toMillis(15), TimeUnit.SECONDS.toMillis(10));
+
+        /**
+         * 已连接之前每个阶段最长的时间
+         */
+        public final long phaseTimeoutMillis;
+        /**
+         * 已连接之后等待网络验证的最长时间
+         */
+        public final long validationTimeoutMillis;
+
+        public Config(long phaseTimeoutMillis, long validationTimeoutMillis) {
+            this.phaseTimeoutMillis = phaseTimeoutMillis;
+            this.validationTimeoutMillis = validationTimeoutMillis;
+        }
+    }
+
+    public interface Listener {
+        /**
+         * 持有 ConnectionManager 的锁时调用，不要在这里调用 ConnectionManager
+         */
+        void onAttemptChanged(Attempt attempt);
+    }
+
+    /**
+     * 一次连接尝试在某一时刻的状态，发布之后不再修改
+     */
+    public static final class Attempt {
+        public final int id;
+        /**
+         * 对应列表条目的 {@link AccessPoint#getKey()}
+         */
+        public final String key;
+        public final int networkId;
+        /**
+         * STATE_*
+         */
+        public final int state;
+        /**
+         * FAILURE_*
+         */
+        public final int failure;
+        /**
+         * 进入各个状态的时间，毫秒，没有经过的状态为 -1
+         */
+        private final long[] enteredAt;
+
+        private Attempt(int id, String key, int networkId, int state, int failure, long[] enteredAt) {
+            this.id = id;
+            this.key = key;
+            this.networkId = networkId;
+            this.state = state;
+            this.failure = failure;
+            this.enteredAt = enteredAt;
+        }
+
+        static Attempt start(int id, String key, int networkId, long now) {
+            long[] enteredAt = new long[STATE_UNVALIDATED + 1];
+            Arrays.fill(enteredAt, -1);
+            enteredAt[STATE_REQUESTED] = now;
+            return new Attempt(id, key, networkId, STATE_REQUESTED, FAILURE_NONE, enteredAt);
+        }
+
+        Attempt moveTo(int state, int failure, long now) {
+            long[] enteredAt = Arrays.copyOf(this.enteredAt, this.enteredAt.length);
+            enteredAt[state] = now;
+            return new Attempt(id, key, networkId, state, failure, enteredAt);
+        }
+
+        public boolean isFinished() {
+            return state == STATE_VALIDATED || state == STATE_FAILED || state == STATE_UNVALIDATED;
+        }
+
+        /**
+         * STATE_REQUESTED 到 STATE_CONNECTED 中某个阶段的耗时，毫秒，跳过的阶段计入前一个阶段
+         *
+         * @return 没有经过或者还没有结束时返回 -1
+         */
+        public long getPhaseMillis(int state) {
+            if (state < STATE_REQUESTED || state > STATE_CONNECTED || enteredAt[state] < 0) {
+                return -1;
+            }
+            for (int next = state + 1; next < enteredAt.length; next++) {
+                if (enteredAt[next] >= 0) {
+                    return enteredAt[next] - enteredAt[state];
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * 请求到结束（通过验证、没有通过验证或失败）的时间，毫秒，还没有结束时返回 -1
+         */
+        public long getElapsedMillis() {
+            return isFinished() ? enteredAt[state] - enteredAt[STATE_REQUESTED] : -1;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append('#').append(id).append(' ').append(key).append(" networkId=").append(networkId)
+                    .append(' ').append(STATE_NAMES[state]);
+            if (failure != FAILURE_NONE) {
+                builder.append('(').append(FAILURE_NAMES[failure]).append(')');
+            }
+            builder.append(" phases=");
+            for (int phase = STATE_REQUESTED; phase <= STATE_CONNECTED; phase++) {
+                builder.append(phase == STATE_REQUESTED ? "" : "/").append(getPhaseMillis(phase));
+            }
+            return builder.append(" ms").toString();
+        }
+    }
+
+    private final WifiSystem wifiSystem;
+    private final SavedNetworkIndex savedNetworks;
+    private final Config config;
+    private final Scheduler scheduler;
+    private final Metrics metrics;
+    private Listener listener;
+
+    private Attempt current;
+    private Disposable timeout;
+    private int nextId;
+
+    /**
+     * @param scheduler 计时和检查超时用的 Scheduler
+     */
+    public ConnectionManager(WifiSystem wifiSystem, SavedNetworkIndex savedNetworks, Config config,
+                             Scheduler scheduler, Metrics metrics) {
+        this.wifiSystem = wifiSystem;
+        this.savedNetworks = savedNetworks;
+        this.config = config;
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+    }
+
+    public synchronized void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 最近一次尝试，没有请求过时为 null
+     */
+    public synchronized Attempt getAttempt() {
+        return current;
+    }
+
+    /**
+     * 连接 accessPoint，之前还没结束的尝试以 {@link #FAILURE_CANCELLED} 结束
+     *
+     * @param accessPoint 快照中的条目，不会被修改
+     * @param password    用户输入的密码，使用已保存的配置时为 null
+     * @return 新的尝试，配置失败时已经是 {@link #STATE_FAILED}
+     */
+    public synchronized Attempt connect(AccessPoint accessPoint, String password) {
+        if (current != null && !current.isFinished()) {
+            moveTo(STATE_FAILED, FAILURE_CANCELLED);
+        }
+        metrics.increment(Metrics.COUNTER_CONNECT_ATTEMPTS);
+        WifiConfiguration saved = findSaved(accessPoint);
+        if ((saved == null || password != null) && !AccessPoint.canBuildNetworkConfig(accessPoint.security)) {
+            current = Attempt.start(++nextId, accessPoint.getKey(), AccessPoint.INVALID_NETWORK_ID, now());
+            moveTo(STATE_FAILED, FAILURE_UNSUPPORTED_SECURITY);
+            return current;
+        }
+        int networkId = saveNetwork(accessPoint, saved, password);
+        current = Attempt.start(++nextId, accessPoint.getKey(), networkId, now());
+        if (networkId == AccessPoint.INVALID_NETWORK_ID || !wifiSystem.enableNetwork(networkId, true)) {
+            moveTo(STATE_FAILED, FAILURE_CONFIGURATION);
+        } else {
+            scheduleTimeout();
+            report();
+        }
+        return current;
+    }
+
+    /**
+     * 连接过程中的广播，只会向前推进
+     *
+     * @param state     STATE_ASSOCIATING 到 STATE_CONNECTED，用 {@link #stateOf} 从广播转换
+     * @param networkId 广播中带的 networkId，不知道时为 INVALID_NETWORK_ID
+     */
+    public synchronized void onProgress(int state, int networkId) {
+        if (!isActive() || state <= current.state || state > STATE_CONNECTED) {
+            return;
+        }
+        if (networkId != AccessPoint.INVALID_NETWORK_ID && networkId != current.networkId) {
+            return;
+        }
+        moveTo(state, FAILURE_NONE);
+    }
+
+    /**
+     * 当前的 Wi-Fi 网络通过了验证；NetworkCallback 可能比 CONNECTED 广播先到，获取 IP 之后都接受
+     */
+    public synchronized void onValidated() {
+        if (!isActive() || current.state < STATE_OBTAINING_IP) {
+            return;
+        }
+        if (current.state < STATE_CONNECTED) {
+            moveTo(STATE_CONNECTED, FAILURE_NONE);
+        }
+        moveTo(STATE_VALIDATED, FAILURE_NONE);
+    }
+
+    /**
+     * Wi-Fi 断开；连接上之前 supplicant 会自己重试，只由超时处理
+     */
+    public synchronized void onDisconnected() {
+        if (isActive() && current.state >= STATE_CONNECTED) {
+            moveTo(STATE_FAILED, FAILURE_DISCONNECTED);
+        }
+    }
+
+    /**
+     * @return 是否有正在进行的尝试因此失败
+     */
+    public synchronized boolean onAuthenticationError() {
+        if (!isActive()) {
+            return false;
+        }
+        moveTo(STATE_FAILED, FAILURE_AUTHENTICATION);
+        return true;
+    }
+
+    static int stateOf(SupplicantState state) {
+        if (state == null) {
+            return STATE_UNKNOWN;
+        }
+        switch (state) {
+            case ASSOCIATING:
+            case ASSOCIATED:
+                return STATE_ASSOCIATING;
+            case AUTHENTICATING:
+            case FOUR_WAY_HANDSHAKE:
+            case GROUP_HANDSHAKE:
+                return STATE_AUTHENTICATING;
+            case COMPLETED:
+                return STATE_OBTAINING_IP;
+            default:
+                return STATE_UNKNOWN;
+        }
+    }
+
+    static int stateOf(NetworkInfo.DetailedState state) {
+        if (state == null) {
+            return STATE_UNKNOWN;
+        }
+        switch (state) {
+            case AUTHENTICATING:
+                return STATE_AUTHENTICATING;
+            case OBTAINING_IPADDR:
+                return STATE_OBTAINING_IP;
+            case CONNECTED:
+                return STATE_CONNECTED;
+            default:
+                return STATE_UNKNOWN;
+        }
+    }
+
+    private boolean isActive() {
+        return current != null && !current.isFinished();
+    }
+
+    /**
+     * accessPoint 对应的已保存配置，没有时为 null
+     */
+    private WifiConfiguration findSaved(AccessPoint accessPoint) {
+        WifiConfiguration saved = accessPoint.wifiConfiguration;
+        if (saved == null || saved.networkId == AccessPoint.INVALID_NETWORK_ID) {
+            // 列表中的条目可能还没关联上配置
+            saved = savedNetworks.get(accessPoint.getSsidSymbol(), accessPoint.security);
+        }
+        return saved;
+    }
+
+    /**
+     * 使用或更新已保存的配置，没有时新建；加密类型需要满足 {@link AccessPoint#canBuildNetworkConfig}
+     *
+     * @return networkId，失败时为 INVALID_NETWORK_ID
+     */
+    private int saveNetwork(AccessPoint accessPoint, WifiConfiguration saved, String password) {
+        if (saved != null && password == null) {
+            return saved.networkId;
+        }
+        if (password == null && (accessPoint.security == AccessPoint.SECURITY_WEP
+                || accessPoint.security == AccessPoint.SECURITY_PSK)) {
+            return AccessPoint.INVALID_NETWORK_ID;
+        }
+        WifiConfiguration config = accessPoint.buildNetworkConfig(password);
+        int networkId;
+        if (saved != null) {
+            config.networkId = saved.networkId;
+            networkId = wifiSystem.updateNetwork(config);
+        } else {
+            networkId = wifiSystem.addNetwork(config);
+        }
+        savedNetworks.invalidate();
+        return networkId;
+    }
+
+    private void moveTo(int state, int failure) {
+        current = current.moveTo(state, failure, now());
+        if (timeout != null) {
+            timeout.dispose();
+            timeout = null;
+        }
+        if (state == STATE_VALIDATED) {
+            for (int phase = STATE_REQUESTED; phase <= STATE_CONNECTED; phase++) {
+                long millis = current.getPhaseMillis(phase);
+                if (millis >= 0) {
+                    metrics.record(PHASE_HISTOGRAMS[phase], TimeUnit.MILLISECONDS.toNanos(millis));
+                }
+            }
+            metrics.record(Metrics.HISTOGRAM_CONNECT, TimeUnit.MILLISECONDS.toNanos(current.getElapsedMillis()));
+        } else if (state == STATE_FAILED) {
+            metrics.increment(Metrics.COUNTER_CONNECT_FAILURES);
+        } else if (state == STATE_UNVALIDATED) {
+            metrics.increment(Metrics.COUNTER_CONNECT_UNVALIDATED);
+        } else {
+            scheduleTimeout();
+        }
+        report();
+    }
+
+    private void scheduleTimeout() {
+        Attempt attempt = current;
+        long delay = attempt.state == STATE_CONNECTED ? config.validationTimeoutMillis : config.phaseTimeoutMillis;
+        timeout = scheduler.scheduleDirect(() -> onTimeout(attempt), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void onTimeout(Attempt attempt) {
+        if (current == attempt) {
+            timeout = null;
+            if (attempt.state == STATE_CONNECTED) {
+                moveTo(STATE_UNVALIDATED, FAILURE_NONE);
+            } else {
+                moveTo(STATE_FAILED, FAILURE_TIMEOUT);
+            }
+        }
+    }
+
+    private void report() {
+        if (listener != null) {
+            listener.onAttemptChanged(current);
+        }
+    }
+
+    private long now() {
+        return scheduler.now(TimeUnit.MILLISECONDS);
+    }
+}
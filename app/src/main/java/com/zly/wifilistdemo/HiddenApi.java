@@ -0,0 +1,90 @@
+package com.zly.wifilistdemo;
+
+import android.net.Network;
+import android.net.wifi.WifiConfiguration;
+import android.net.wifi.WifiManager;
+
+import java.lang.reflect.Method;
+
+/**
+ * 通过反射访问隐藏 API
+ * <p>
+ * 每个方法在进程内只查找一次，找不到时也缓存结果，之后直接返回默认值。
+ */
+final class HiddenApi {
+
+    private HiddenApi() {
+    }
+
+    /**
+     * WifiConfiguration.NetworkSelectionStatus 相关方法，首次使用时初始化
+     */
+    private static final class NetworkSelection {
+        static final Method GET_STATUS = findMethod(WifiConfiguration.class, "getNetworkSelectionStatus");
+        static final Method IS_NETWORK_ENABLED;
+        static final Method GET_DISABLE_REASON;
+
+        static {
+            Class<?> statusClass = GET_STATUS == null ? null : GET_STATUS.getReturnType();
+            IS_NETWORK_ENABLED = findMethod(statusClass, "isNetworkEnabled");
+            GET_DISABLE_REASON = findMethod(statusClass, "getNetworkSelectionDisableReason");
+        }
+    }
+
+    private static final class CurrentNetwork {
+        static final Method GET_CURRENT_NETWORK = findMethod(WifiManager.class, "getCurrentNetwork");
+    }
+
+    private static Method findMethod(Class<?> clazz, String name, Class<?>... parameterTypes) {
+        if (clazz == null) {
+            return null;
+        }
+        for (Class<?> type : parameterTypes) {
+            if (type == null) {
+                return null;
+            }
+        }
+        try {
+            return clazz.getMethod(name, parameterTypes);
+        } catch (Exception | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static Object invoke(Method method, Object receiver, Object... args) {
+        if (method == null || receiver == null) {
+            return null;
+        }
+        try {
+            return method.invoke(receiver, args);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * WifiConfiguration.getNetworkSelectionStatus().isNetworkEnabled()，无法获取时返回 true
+     */
+    static boolean isNetworkEnabled(WifiConfiguration config) {
+        Object status = invoke(NetworkSelection.GET_STATUS, config);
+        Object enabled = invoke(NetworkSelection.IS_NETWORK_ENABLED, status);
+        return !(enabled instanceof Boolean) || (Boolean) enabled;
+    }
+
+    /**
+     * WifiConfiguration.getNetworkSelectionStatus().getNetworkSelectionDisableReason()，无法获取时返回 0
+     */
+    static int getNetworkSelectionDisableReason(WifiConfiguration config) {
+        Object status = invoke(NetworkSelection.GET_STATUS, config);
+        Object reason = invoke(NetworkSelection.GET_DISABLE_REASON, status);
+        return reason instanceof Integer ? (Integer) reason : 0;
+    }
+
+    /**
+     * WifiManager.getCurrentNetwork()，无法获取时返回 null
+     */
+    static Network getCurrentNetwork(WifiManager wifiManager) {
+        Object network = invoke(CurrentNetwork.GET_CURRENT_NETWORK, wifiManager);
+        return network instanceof Network ? (Network) network : null;
+    }
+}
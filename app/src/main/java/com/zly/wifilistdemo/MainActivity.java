@@ -1,21 +1,10 @@
 package com.zly.wifilistdemo;
 
 import android.Manifest;
-import android.content.BroadcastReceiver;
-import android.content.Context;
-import android.content.Intent;
-import android.content.IntentFilter;
 import android.content.pm.PackageManager;
-import android.net.ConnectivityManager;
-import android.net.Network;
-import android.net.NetworkCapabilities;
-import android.net.NetworkInfo;
-import android.net.NetworkRequest;
-import android.net.wifi.ScanResult;
-import android.net.wifi.WifiConfiguration;
-import android.net.wifi.WifiInfo;
-import android.net.wifi.WifiManager;
+import android.graphics.Typeface;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.support.v4.app.ActivityCompat;
 import android.support.v4.content.ContextCompat;
@@ -25,254 +14,208 @@ import android.support.v7.widget.DividerItemDecoration;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.text.TextUtils;
+import android.util.Log;
+import android.view.Gravity;
+import android.view.ViewGroup;
 import android.widget.EditText;
+import android.widget.FrameLayout;
+import android.widget.TextView;
 import android.widget.Toast;
 
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.UnknownHostException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.concurrent.TimeUnit;
 
+import io.reactivex.Completable;
 import io.reactivex.Observable;
-import io.reactivex.Single;
-import io.reactivex.SingleObserver;
-import io.reactivex.SingleOnSubscribe;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.Disposable;
 import io.reactivex.schedulers.Schedulers;
 
 public class MainActivity extends AppCompatActivity {
-    private WifiManager wifiManager;
-    private NetworkInfo lastNetworkInfo;
-    private WifiInfo lastWifiInfo;
-    private WifiConfiguration lastWifiConfiguration;
-    private List<AccessPoint> lastAccessPoints = new CopyOnWriteArrayList<>();
-    private Network currentNetwork;
-    private int lastPortalNetworkId = AccessPoint.INVALID_NETWORK_ID;
+    private static final String TAG = "MainActivity";
 
-    private Disposable scanWifi;
+    /**
+     * 启动时带上这个 extra 会把广播和扫描结果记录到 {@link #TRACE_FILE}，
+     * 例如 adb shell am start -n com.zly.wifilistdemo/.MainActivity --ez record_trace true
+     */
+    private static final String EXTRA_RECORD_TRACE = "record_trace";
+    private static final String TRACE_FILE = "wifi.trace";
+
+    /**
+     * 启动时带上这个 extra 会在界面上显示 {@link Metrics}，退到后台时写入 {@link #METRICS_FILE}；
+     * 不带时也可以用 adb shell dumpsys activity com.zly.wifilistdemo/.MainActivity 查看
+     */
+    private static final String EXTRA_DEBUG_METRICS = "debug_metrics";
+    private static final String METRICS_FILE = "metrics.txt";
+
+    /**
+     * 启动时带上 --ez restore_saved_scan false 不显示上次保存的扫描结果，用于对比显示出第一行的时间
+     */
+    private static final String EXTRA_RESTORE_SAVED_SCAN = "restore_saved_scan";
+
+    private final Metrics metrics = Metrics.get();
+    private TextView metricsOverlay;
+    private Disposable metricsRefresh;
+
+    private WifiRepository repository;
+    private Disposable accessPointUpdates;
+    private Disposable portalUpdates;
+    private Disposable connectionUpdates;
+    /**
+     * 订阅时会再次收到最近的探测结果，已经显示时不重复弹出
+     */
+    private AlertDialog portalDialog;
+
+    /**
+     * 用于统计从启动到显示出第一行的时间
+     */
+    private long createdAt;
+    private boolean restoredRowShown;
+    private boolean liveRowShown;
 
     private WifiListAdapter adapter;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        createdAt = SystemClock.elapsedRealtime();
         setContentView(R.layout.activity_main);
-        wifiManager = (WifiManager) getApplicationContext().getSystemService(Context.WIFI_SERVICE);
-        if (wifiManager == null) {
+        repository = WifiRepository.get(this);
+        if (repository == null) {
             finish();
             return;
         }
+        if (!getIntent().getBooleanExtra(EXTRA_RESTORE_SAVED_SCAN, true)) {
+            repository.setRestoreEnabled(false);
+        }
+        if (getIntent().getBooleanExtra(EXTRA_RECORD_TRACE, false)) {
+            startTrace();
+        }
         initView();
+        if (getIntent().getBooleanExtra(EXTRA_DEBUG_METRICS, false)) {
+            showMetricsOverlay();
+        }
         int permission = ContextCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION);
         if (permission == PackageManager.PERMISSION_DENIED) {
             ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.ACCESS_FINE_LOCATION}, 1);
         }
-        wifiManager.setWifiEnabled(true);
-        lastNetworkInfo = getActiveNetworkInfo();
-        lastWifiInfo = wifiManager.getConnectionInfo();
+    }
+
+    private void startTrace() {
+        File dir = getExternalFilesDir(null);
+        File file = new File(dir != null ? dir : getFilesDir(), TRACE_FILE);
+        try {
+            if (repository.recordTrace(file)) {
+                Log.i(TAG, "recording trace to " + file);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 
     private void initView() {
         RecyclerView rvList = findViewById(R.id.rvList);
-        adapter = new WifiListAdapter();
+        adapter = new WifiListAdapter(metrics);
         adapter.setItemClickListener(this::showDialog);
-        rvList.setLayoutManager(new LinearLayoutManager(this));
+        rvList.setLayoutManager(new LinearLayoutManager(this) {
+            @Override
+            public void onLayoutCompleted(RecyclerView.State state) {
+                super.onLayoutCompleted(state);
+                metrics.markRowsBound();
+            }
+        });
         rvList.addItemDecoration(new DividerItemDecoration(this, DividerItemDecoration.VERTICAL));
         rvList.setAdapter(adapter);
     }
 
+    private void showMetricsOverlay() {
+        metricsOverlay = new TextView(this);
+        metricsOverlay.setTypeface(Typeface.MONOSPACE);
+        metricsOverlay.setTextSize(9);
+        metricsOverlay.setBackgroundColor(0xc0000000);
+        metricsOverlay.setTextColor(0xffffffff);
+        addContentView(metricsOverlay, new FrameLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.WRAP_CONTENT, Gravity.BOTTOM));
+    }
+
+    private String dumpMetrics() {
+        StringWriter text = new StringWriter();
+        metrics.dump(new PrintWriter(text));
+        return text.toString();
+    }
+
     @Override
     protected void onStart() {
         super.onStart();
-        scanWifi = Observable.interval(0, 10, TimeUnit.SECONDS)
-                .observeOn(Schedulers.io())
-                .doOnNext(aLong -> wifiManager.startScan())
-                .subscribe();
-        IntentFilter filter = new IntentFilter();
-        filter.addAction(ConnectivityManager.CONNECTIVITY_ACTION);
-        filter.addAction(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION);
-        filter.addAction("android.net.wifi.CONFIGURED_NETWORKS_CHANGE");
-        filter.addAction("android.net.wifi.LINK_CONFIGURATION_CHANGED");
-        filter.addAction(WifiManager.NETWORK_STATE_CHANGED_ACTION);
-        filter.addAction(WifiManager.SUPPLICANT_STATE_CHANGED_ACTION);
-        registerReceiver(broadcastReceiver, filter);
-        ConnectivityManager cm = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
-        if (cm != null) {
-            NetworkRequest.Builder request = new NetworkRequest.Builder()
-                    .addTransportType(NetworkCapabilities.TRANSPORT_WIFI);
-            cm.registerNetworkCallback(request.build(), callback);
+        if (metricsOverlay != null) {
+            metricsRefresh = Observable.interval(0, 1, TimeUnit.SECONDS, AndroidSchedulers.mainThread())
+                    .subscribe(tick -> metricsOverlay.setText(dumpMetrics()));
         }
+        // 已有的列表会立即发出，不需要等下一次扫描
+        accessPointUpdates = repository.snapshots()
+                .observeOn(AndroidSchedulers.mainThread(), false, 1)
+                .subscribe(this::showSnapshot);
+        portalUpdates = repository.portalStatuses()
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(this::showPortalStatus);
+        connectionUpdates = repository.connectionAttempts()
+                .filter(ConnectionManager.Attempt::isFinished)
+                .subscribe(attempt -> Log.i(TAG, "connection " + attempt));
     }
 
     @Override
-    protected void onStop() {
-        super.onStop();
-        if (scanWifi != null && scanWifi.isDisposed()) {
-            scanWifi.dispose();
-        }
-        unregisterReceiver(broadcastReceiver);
-        ConnectivityManager cm = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
-        if (cm != null) {
-            cm.unregisterNetworkCallback(callback);
+    public void onUserInteraction() {
+        super.onUserInteraction();
+        if (repository != null) {
+            repository.onUserInteraction();
         }
     }
 
-    private BroadcastReceiver broadcastReceiver = new BroadcastReceiver() {
-        @Override
-        public void onReceive(Context context, Intent intent) {
-            String action = intent.getAction();
-            if (action != null) {
-                switch (action) {
-                    case ConnectivityManager.CONNECTIVITY_ACTION:
-                    case WifiManager.SCAN_RESULTS_AVAILABLE_ACTION:
-                    case "android.net.wifi.CONFIGURED_NETWORKS_CHANGE":
-                    case "android.net.wifi.LINK_CONFIGURATION_CHANGED":
-                        updateAccessPoints();
-                        break;
-                    case WifiManager.NETWORK_STATE_CHANGED_ACTION:
-                        updateAccessPoints();
-                        NetworkInfo info = intent.getParcelableExtra(WifiManager.EXTRA_NETWORK_INFO);
-                        updateNetworkInfo(info);
-                        break;
-                    case WifiManager.SUPPLICANT_STATE_CHANGED_ACTION:
-                        int error = intent.getIntExtra(WifiManager.EXTRA_SUPPLICANT_ERROR, -1);
-                        if (error == WifiManager.ERROR_AUTHENTICATING) {
-                            handlePasswordError();
-                        }
-                        break;
-                }
-            }
-        }
-    };
-
-    private ConnectivityManager.NetworkCallback callback = new ConnectivityManager.NetworkCallback() {
-
-        @Override
-        public void onAvailable(Network network) {
-            super.onAvailable(network);
-            setCurrentNetwork(network);
-            portalCurrentWifi();
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (accessPointUpdates != null) {
+            accessPointUpdates.dispose();
+            portalUpdates.dispose();
+            connectionUpdates.dispose();
         }
-
-        @Override
-        public void onCapabilitiesChanged(Network network, NetworkCapabilities networkCapabilities) {
-            super.onCapabilitiesChanged(network, networkCapabilities);
-            if (network.equals(getCurrentNetwork())) {
-                updateNetworkInfo(null);
-            }
+        if (metricsRefresh != null) {
+            metricsRefresh.dispose();
+            File dir = getExternalFilesDir(null);
+            File file = new File(dir != null ? dir : getFilesDir(), METRICS_FILE);
+            Completable.fromAction(() -> metrics.writeTo(file))
+                    .subscribeOn(Schedulers.io())
+                    .subscribe(() -> Log.i(TAG, "metrics written to " + file), Throwable::printStackTrace);
         }
-    };
-
-    public Network getCurrentNetwork() {
-        return currentNetwork;
-    }
-
-    public void setCurrentNetwork(Network currentNetwork) {
-        this.currentNetwork = currentNetwork;
     }
 
-    private void updateAccessPoints() {
-        Single.create((SingleOnSubscribe<List<AccessPoint>>) emitter -> {
-            List<AccessPoint> accessPoints = new ArrayList<>();
-            List<ScanResult> scanResults = wifiManager.getScanResults();
-            if (lastWifiInfo != null && lastWifiInfo.getNetworkId() != AccessPoint.INVALID_NETWORK_ID) {
-                lastWifiConfiguration = getWifiConfigurationForNetworkId(lastWifiInfo.getNetworkId());
-            }
-            if (scanResults != null) {
-                for (ScanResult scanResult : scanResults) {
-                    if (TextUtils.isEmpty(scanResult.SSID)) {
-                        continue;
-                    }
-                    AccessPoint accessPoint = new AccessPoint(this.getApplicationContext(), scanResult);
-                    if (accessPoints.contains(accessPoint)) {
-                        continue;
-                    }
-                    List<WifiConfiguration> wifiConfigurations = wifiManager.getConfiguredNetworks();
-                    if (wifiConfigurations != null) {
-                        for (WifiConfiguration config : wifiConfigurations) {
-                            if (accessPoint.getQuotedSSID().equals(config.SSID)) {
-                                accessPoint.setWifiConfiguration(config);
-                            }
-                        }
-                    }
-                    if (lastWifiInfo != null && lastNetworkInfo != null) {
-                        accessPoint.update(lastWifiConfiguration, lastWifiInfo, lastNetworkInfo);
-                    }
-                    accessPoints.add(accessPoint);
-                }
-            }
-            Collections.sort(accessPoints);
-            emitter.onSuccess(accessPoints);
-        })
-                .subscribeOn(Schedulers.io())
-                .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(new SingleObserver<List<AccessPoint>>() {
-                    @Override
-                    public void onSubscribe(Disposable d) {
-
-                    }
-
-                    @Override
-                    public void onSuccess(List<AccessPoint> accessPoints) {
-                        lastAccessPoints = accessPoints;
-                        adapter.setAccessPoints(lastAccessPoints);
-                    }
-
-                    @Override
-                    public void onError(Throwable e) {
-
-                    }
-                });
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        writer.println(prefix + "Metrics:");
+        metrics.dump(writer);
     }
 
-    public void updateNetworkInfo(NetworkInfo networkInfo) {
-        Single.create((SingleOnSubscribe<List<AccessPoint>>) emitter -> {
-            if (networkInfo != null) {
-                lastNetworkInfo = networkInfo;
-            }
-            lastWifiInfo = wifiManager.getConnectionInfo();
-            if (lastWifiInfo.getNetworkId() == AccessPoint.INVALID_NETWORK_ID) {
-                // 表示没有 wifi 连接，lastPortalNetworkId 置为无效
-                lastPortalNetworkId = AccessPoint.INVALID_NETWORK_ID;
-            }
-            if (lastWifiInfo != null && lastWifiInfo.getNetworkId() != AccessPoint.INVALID_NETWORK_ID) {
-                lastWifiConfiguration = getWifiConfigurationForNetworkId(lastWifiInfo.getNetworkId());
-            }
-            boolean reorder = false;
-            for (AccessPoint accessPoint : lastAccessPoints) {
-                if (accessPoint.update(lastWifiConfiguration, lastWifiInfo, lastNetworkInfo)) {
-                    reorder = true;
-                }
-            }
-            if (reorder) {
-                Collections.sort(lastAccessPoints);
+    private void showSnapshot(AccessPointSnapshot snapshot) {
+        adapter.submitSnapshot(snapshot);
+        if (snapshot.items == null || snapshot.items.isEmpty()) {
+            return;
+        }
+        boolean stale = snapshot.items.get(0).stale;
+        if (stale ? !restoredRowShown : !liveRowShown) {
+            if (stale) {
+                restoredRowShown = true;
+            } else {
+                liveRowShown = true;
             }
-            emitter.onSuccess(lastAccessPoints);
-        }).subscribeOn(Schedulers.io())
-                .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(new SingleObserver<List<AccessPoint>>() {
-                    @Override
-                    public void onSubscribe(Disposable d) {
-
-                    }
-
-                    @Override
-                    public void onSuccess(List<AccessPoint> accessPoints) {
-                        // 更新列表
-                        adapter.setAccessPoints(accessPoints);
-                    }
-
-                    @Override
-                    public void onError(Throwable e) {
-                        e.printStackTrace();
-                    }
-                });
-
+            Log.i(TAG, "first " + (stale ? "saved" : "scanned") + " row after "
+                    + (SystemClock.elapsedRealtime() - createdAt) + " ms, restore "
+                    + (repository.isRestoreEnabled() ? "on" : "off"));
+        }
     }
 
     public void showDialog(AccessPoint accessPoint) {
@@ -291,120 +234,42 @@ public class MainActivity extends AppCompatActivity {
                             if (editText.getText() != null) {
                                 String password = editText.getText().toString();
                                 if (!TextUtils.isEmpty(password)) {
-                                    accessPoint.setPassword(password);
-                                    connect(accessPoint);
+                                    connect(accessPoint, password);
                                 }
                             }
                         })
                         .setNegativeButton("取消", null)
                         .show();
             } else {
-                connect(accessPoint);
+                connect(accessPoint, null);
             }
         }
     }
 
-    private void connect(AccessPoint accessPoint) {
-        accessPoint.generateNetworkConfig();
-        int networkId = wifiManager.addNetwork(accessPoint.wifiConfiguration);
-        wifiManager.enableNetwork(networkId, true);
+    private void connect(AccessPoint accessPoint, String password) {
+        repository.connect(accessPoint, password);
     }
 
     public void forgetWifi(AccessPoint accessPoint) {
-        boolean result = wifiManager.removeNetwork(accessPoint.wifiConfiguration.networkId);
+        boolean result = repository.forget(accessPoint);
         Toast.makeText(this, result ? "取消保存成功" : "取消保存失败", Toast.LENGTH_LONG).show();
     }
 
-    public void handlePasswordError() {
-        if (lastWifiConfiguration != null) {
-            AccessPoint accessPoint = new AccessPoint(lastWifiConfiguration);
-            accessPoint.setPasswordError(true);
-        }
-
-    }
-
-    public void portalCurrentWifi() {
-        if (lastWifiInfo.getNetworkId() != lastPortalNetworkId) {
-            lastPortalNetworkId = lastWifiInfo.getNetworkId();
-            Single.create((SingleOnSubscribe<Boolean>) emitter -> {
-                Network currentNetwork = getCurrentNetwork();
-                HttpURLConnection urlConnection = null;
-                try {
-                    // 使用当前的网络打开链接
-                    urlConnection = (HttpURLConnection) currentNetwork.openConnection(new URL("http://connect.rom.miui.com/generate_204"));
-                    urlConnection.setInstanceFollowRedirects(false);
-                    urlConnection.setConnectTimeout(10000);
-                    urlConnection.setReadTimeout(10000);
-                    urlConnection.setUseCaches(false);
-                    urlConnection.getInputStream();
-                    int responseCode = urlConnection.getResponseCode();
-                    if (responseCode == 200 && urlConnection.getContentLength() == 0) {
-                        responseCode = 204;
-                    }
-                    emitter.onSuccess(responseCode != 204 && responseCode >= 200 && responseCode <= 399);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                } finally {
-                    if (urlConnection != null) {
-                        urlConnection.disconnect();
-                    }
-                }
-            })
-                    .retry(throwable -> throwable instanceof UnknownHostException)
-                    .subscribeOn(Schedulers.io())
-                    .observeOn(AndroidSchedulers.mainThread())
-                    .subscribe(new SingleObserver<Boolean>() {
-                        @Override
-                        public void onSubscribe(Disposable d) {
-                        }
-
-                        @Override
-                        public void onSuccess(Boolean aBoolean) {
-                            if (aBoolean) {
-                                // 调用网络登录界面
-                                new AlertDialog.Builder(MainActivity.this)
-                                        .setTitle("需要登录")
-                                        .setPositiveButton("登录", null)
-                                        .setNegativeButton("取消", null)
-                                        .show();
-                            }
-                        }
-
-                        @Override
-                        public void onError(Throwable e) {
-                            e.printStackTrace();
-                        }
-                    });
-        }
-    }
-
-    /**
-     * 根据 NetworkId 获取 WifiConfiguration 信息
-     *
-     * @param networkId 需要获取 WifiConfiguration 信息的 networkId
-     * @return 指定 networkId 的 WifiConfiguration 信息
-     */
-    private WifiConfiguration getWifiConfigurationForNetworkId(int networkId) {
-        final List<WifiConfiguration> configs = wifiManager.getConfiguredNetworks();
-        if (configs != null) {
-            for (WifiConfiguration config : configs) {
-                if (lastWifiInfo != null && networkId == config.networkId) {
-                    return config;
-                }
+    private void showPortalStatus(int status) {
+        if (status != PortalProbe.RESULT_PORTAL) {
+            // 已经登录或者断开了
+            if (portalDialog != null) {
+                portalDialog.dismiss();
+                portalDialog = null;
             }
+        } else if (portalDialog == null || !portalDialog.isShowing()) {
+            // 调用网络登录界面
+            portalDialog = new AlertDialog.Builder(this)
+                    .setTitle("需要登录")
+                    .setPositiveButton("登录", null)
+                    .setNegativeButton("取消", null)
+                    .show();
         }
-        return null;
-    }
-
-    /**
-     * 获取当前网络信息
-     */
-    public NetworkInfo getActiveNetworkInfo() {
-        ConnectivityManager cm = (ConnectivityManager) this.getSystemService(Context.CONNECTIVITY_SERVICE);
-        if (cm != null) {
-            return cm.getActiveNetworkInfo();
-        }
-        return null;
     }
 
     @Override
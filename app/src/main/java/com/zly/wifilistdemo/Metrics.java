@@ -0,0 +1,253 @@
+package com.zly.wifilistdemo;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 从 startScan() 到列表行绑定完成的耗时，以及广播和 binder 调用次数
+ * <p>
+ * 所有统计在构造时分配，记录时只做原子操作，可以在 release 版本中一直开启。
+ * 读取用 {@link #getHistogram(int)}、{@link #getCounter(int)}，或者用 {@link #dump(PrintWriter)} 输出文本。
+ * 其他类自己维护的计数用 {@link #register(String, Gauge)} 登记，输出时读取当前值。
+ */
+public final class Metrics {
+    /**
+     * 输出时才读取的计数，需要线程安全
+     */
+    public interface Gauge {
+        long get();
+    }
+
+    /**
+     * startScan() 到收到 SCAN_RESULTS 广播，纳秒
+     */
+    public static final int HISTOGRAM_SCAN = 0;
+    /**
+     * 收到 SCAN_RESULTS 广播到合并完成，包含去抖时间，纳秒
+     */
+    public static final int HISTOGRAM_MERGE = 1;
+    /**
+     * 合并完成到变化的行绑定完成，纳秒
+     */
+    public static final int HISTOGRAM_RENDER = 2;
+    /**
+     * 单次 ScanPipeline.process() 的耗时，纳秒
+     */
+    public static final int HISTOGRAM_PROCESS = 3;
+    /**
+     * 每次更新新建的 AccessPoint 副本和列表行个数
+     */
+    public static final int HISTOGRAM_ALLOCATIONS = 4;
+    /**
+     * 连接的各个阶段，见 {@link ConnectionManager}，纳秒：enableNetwork() 到开始关联、关联、认证、
+     * 获取 IP、已连接到通过验证
+     */
+    public static final int HISTOGRAM_CONNECT_REQUESTED = 5;
+    public static final int HISTOGRAM_CONNECT_ASSOCIATING = 6;
+    public static final int HISTOGRAM_CONNECT_AUTHENTICATING = 7;
+    public static final int HISTOGRAM_CONNECT_OBTAINING_IP = 8;
+    public static final int HISTOGRAM_CONNECT_VALIDATING = 9;
+    /**
+     * 请求连接到通过验证，纳秒
+     */
+    public static final int HISTOGRAM_CONNECT = 10;
+    private static final int HISTOGRAM_COUNT = 11;
+
+    public static final int COUNTER_BROADCAST_CONNECTIVITY = 0;
+    public static final int COUNTER_BROADCAST_SCAN_RESULTS = 1;
+    public static final int COUNTER_BROADCAST_CONFIGURED_NETWORKS = 2;
+    public static final int COUNTER_BROADCAST_LINK_CONFIGURATION = 3;
+    public static final int COUNTER_BROADCAST_NETWORK_STATE = 4;
+    public static final int COUNTER_BROADCAST_SUPPLICANT_STATE = 5;
+    public static final int COUNTER_CAPABILITIES_CHANGED = 6;
+    /**
+     * 调用 WifiManager、ConnectivityManager 的次数
+     */
+    public static final int COUNTER_BINDER_CALLS = 7;
+    /**
+     * 完成的列表更新次数
+     */
+    public static final int COUNTER_UPDATES = 8;
+    public static final int COUNTER_CONNECT_ATTEMPTS = 9;
+    public static final int COUNTER_CONNECT_FAILURES = 10;
+    /**
+     * 已连接但没有通过验证就结束的尝试，不计入失败
+     */
+    public static final int COUNTER_CONNECT_UNVALIDATED = 11;
+    private static final int COUNTER_COUNT = 12;
+
+    private static final String[] HISTOGRAM_NAMES = {
+            "scan request -> results", "results -> merged", "merged -> rows bound", "process", "allocations/update",
+            "connect: requested", "connect: associating", "connect: authenticating", "connect: obtaining ip",
+            "connect: validating", "connect -> validated"};
+    private static final String[] COUNTER_NAMES = {
+            "CONNECTIVITY_CHANGE", "SCAN_RESULTS", "CONFIGURED_NETWORKS_CHANGE", "LINK_CONFIGURATION_CHANGED",
+            "NETWORK_STATE_CHANGED", "SUPPLICANT_STATE_CHANGED", "capabilities changed", "binder calls", "updates",
+            "connect attempts", "connect failures", "connect not validated"};
+
+    private static final Metrics INSTANCE = new Metrics();
+
+    private final Histogram[] histograms = new Histogram[HISTOGRAM_COUNT];
+    private final AtomicLongArray counters = new AtomicLongArray(COUNTER_COUNT);
+    /**
+     * 按名字排序输出
+     */
+    private final Map<String, Gauge> gauges = new ConcurrentSkipListMap<>();
+
+    /**
+     * 各阶段的开始时间，0 表示没有进行中的阶段
+     */
+    private final AtomicLong scanRequestedAt = new AtomicLong();
+    private final AtomicLong resultsReceivedAt = new AtomicLong();
+    private final AtomicLong mergedAt = new AtomicLong();
+    private final AtomicLong rowsChangedAt = new AtomicLong();
+
+    public Metrics() {
+        for (int i = 0; i < HISTOGRAM_COUNT; i++) {
+            histograms[i] = new Histogram();
+        }
+    }
+
+    /**
+     * 进程内共用的实例
+     */
+    public static Metrics get() {
+        return INSTANCE;
+    }
+
+    public Histogram getHistogram(int histogram) {
+        return histograms[histogram];
+    }
+
+    public long getCounter(int counter) {
+        return counters.get(counter);
+    }
+
+    public void increment(int counter) {
+        counters.incrementAndGet(counter);
+    }
+
+    public void add(int counter, long delta) {
+        counters.addAndGet(counter, delta);
+    }
+
+    /**
+     * 登记一个计数，同名的计数会被替换，例如 Wi-Fi 系统重建后登记新的实例
+     */
+    public void register(String name, Gauge gauge) {
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * @return 没有登记时返回 null
+     */
+    public Gauge getGauge(String name) {
+        return gauges.get(name);
+    }
+
+    public void record(int histogram, long value) {
+        histograms[histogram].record(value);
+    }
+
+    /**
+     * 调用 startScan() 之前调用；结果返回之前再次请求时从第一次请求开始计时
+     */
+    public void markScanRequested() {
+        scanRequestedAt.compareAndSet(0, now());
+    }
+
+    /**
+     * 收到 SCAN_RESULTS 广播
+     */
+    public void markScanResults() {
+        long now = now();
+        long requestedAt = scanRequestedAt.getAndSet(0);
+        if (requestedAt != 0) {
+            histograms[HISTOGRAM_SCAN].record(now - requestedAt);
+        }
+        resultsReceivedAt.compareAndSet(0, now);
+    }
+
+    /**
+     * 一次更新完成
+     *
+     * @param scanResults 这次更新是否处理了 SCAN_RESULTS 广播
+     */
+    public void markMerged(boolean scanResults) {
+        long now = now();
+        if (scanResults) {
+            long receivedAt = resultsReceivedAt.getAndSet(0);
+            if (receivedAt != 0) {
+                histograms[HISTOGRAM_MERGE].record(now - receivedAt);
+            }
+        }
+        mergedAt.set(now);
+        counters.incrementAndGet(COUNTER_UPDATES);
+    }
+
+    /**
+     * 列表的变化已通知给 RecyclerView
+     */
+    public void markRowsChanged() {
+        long merged = mergedAt.getAndSet(0);
+        if (merged != 0) {
+            rowsChangedAt.set(merged);
+        }
+    }
+
+    /**
+     * RecyclerView 完成一次布局，变化的行已经绑定
+     */
+    public void markRowsBound() {
+        long merged = rowsChangedAt.getAndSet(0);
+        if (merged != 0) {
+            histograms[HISTOGRAM_RENDER].record(now() - merged);
+        }
+    }
+
+    public void reset() {
+        for (Histogram histogram : histograms) {
+            histogram.reset();
+        }
+        for (int i = 0; i < COUNTER_COUNT; i++) {
+            counters.set(i, 0);
+        }
+    }
+
+    public void dump(PrintWriter writer) {
+        for (int i = 0; i < HISTOGRAM_COUNT; i++) {
+            Histogram histogram = histograms[i];
+            // 分配个数直接输出，其余按毫秒输出
+            double scale = i == HISTOGRAM_ALLOCATIONS ? 1 : 1e6;
+            writer.println(String.format(Locale.US, "%-24s n=%-6d p50=%.2f p90=%.2f p99=%.2f max=%.2f%s",
+                    HISTOGRAM_NAMES[i], histogram.getCount(), histogram.getPercentile(0.5) / scale,
+                    histogram.getPercentile(0.9) / scale, histogram.getPercentile(0.99) / scale,
+                    histogram.getMax() / scale, i == HISTOGRAM_ALLOCATIONS ? "" : " ms"));
+        }
+        for (int i = 0; i < COUNTER_COUNT; i++) {
+            writer.println(String.format(Locale.US, "%-28s %d", COUNTER_NAMES[i], counters.get(i)));
+        }
+        for (Map.Entry<String, Gauge> gauge : gauges.entrySet()) {
+            writer.println(String.format(Locale.US, "%-28s %d", gauge.getKey(), gauge.getValue().get()));
+        }
+        writer.flush();
+    }
+
+    public void writeTo(File file) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"))) {
+            dump(writer);
+        }
+    }
+
+    private static long now() {
+        return System.nanoTime();
+    }
+}
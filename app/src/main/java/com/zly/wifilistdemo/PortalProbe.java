@@ -0,0 +1,263 @@
+package com.zly.wifilistdemo;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+
+/**
+ * 检测当前 wifi 是否需要登录（Captive Portal）
+ * <p>
+ * 同时请求多个探测地址，拿到第一个确定的结果后取消其余请求：
+ * HTTP 探测返回跳转或内容说明需要登录，HTTPS 探测返回 204 说明网络可用；
+ * 只有 HTTP 探测成功而 HTTPS 全部失败时视为部分连通。所有探测都失败时按指数退避重试，次数有上限。
+ */
+public class PortalProbe {
+    public static final int RESULT_VALIDATED = 0;
+    public static final int RESULT_PORTAL = 1;
+    public static final int RESULT_NO_INTERNET = 2;
+    public static final int RESULT_PARTIAL = 3;
+
+    /**
+     * 打开连接，Android 上用 Network.openConnection() 绑定到指定网络
+     */
+    public interface ConnectionFactory {
+        URLConnection open(URL url) throws IOException;
+    }
+
+    /**
+     * 探测地址
+     */
+    public static class Endpoint {
+        /**
+         * 用于发现登录页面
+         */
+        public static final int TYPE_HTTP = 0;
+        /**
+         * 用于确认网络可用
+         */
+        public static final int TYPE_HTTPS = 1;
+
+        public final URL url;
+        public final int type;
+
+        public Endpoint(String url) {
+            this(url, url.startsWith("https:") ? TYPE_HTTPS : TYPE_HTTP);
+        }
+
+        public Endpoint(String url, int type) {
+            try {
+                this.url = new URL(url);
+            } catch (MalformedURLException e) {
+                throw new IllegalArgumentException(url, e);
+            }
+            this.type = type;
+        }
+    }
+
+    public static class Config {
+        public static final Config DEFAULT = new Config(Arrays.asList(
+                new Endpoint("http://connect.rom.miui.com/generate_204"),
+                new Endpoint("http://www.google.cn/generate_204"),
+                new Endpoint("https://www.google.cn/generate_204")),
+                10_000, 3, 1_000, 8_000);
+
+        public final List<Endpoint> endpoints;
+        /**
+         * 单个探测的超时时间
+         */
+        public final long timeoutMillis;
+        /**
+         * 最多探测几轮
+         */
+        public final int maxAttempts;
+        public final long initialBackoffMillis;
+        public final long maxBackoffMillis;
+
+        public Config(List<Endpoint> endpoints, long timeoutMillis, int maxAttempts,
+                      long initialBackoffMillis, long maxBackoffMillis) {
+            if (endpoints.isEmpty() || maxAttempts < 1) {
+                throw new IllegalArgumentException("endpoints=" + endpoints + ", maxAttempts=" + maxAttempts);
+            }
+            this.endpoints = Collections.unmodifiableList(new ArrayList<>(endpoints));
+            this.timeoutMillis = timeoutMillis;
+            this.maxAttempts = maxAttempts;
+            this.initialBackoffMillis = initialBackoffMillis;
+            this.maxBackoffMillis = maxBackoffMillis;
+        }
+    }
+
+    public static class Result {
+        /**
+         * RESULT_*
+         */
+        public final int status;
+        /**
+         * 给出结果的探测地址，没有时为 null
+         */
+        public final URL url;
+        /**
+         * 登录页面地址，没有时为 null
+         */
+        public final String redirectUrl;
+        /**
+         * 一共探测了几轮
+         */
+        public final int attempts;
+
+        Result(int status, URL url, String redirectUrl, int attempts) {
+            this.status = status;
+            this.url = url;
+            this.redirectUrl = redirectUrl;
+            this.attempts = attempts;
+        }
+    }
+
+    private static final int ANSWER_FAILED = 0;
+    private static final int ANSWER_OK = 1;
+    private static final int ANSWER_PORTAL = 2;
+
+    /**
+     * 单个探测的结果
+     */
+    private static class Answer {
+        final Endpoint endpoint;
+        final int answer;
+        final String redirectUrl;
+
+        Answer(Endpoint endpoint, int answer, String redirectUrl) {
+            this.endpoint = endpoint;
+            this.answer = answer;
+            this.redirectUrl = redirectUrl;
+        }
+    }
+
+    private final ConnectionFactory connectionFactory;
+    private final Config config;
+    private final Scheduler scheduler;
+    private final boolean hasHttps;
+
+    public PortalProbe(ConnectionFactory connectionFactory, Config config, Scheduler scheduler) {
+        this.connectionFactory = connectionFactory;
+        this.config = config;
+        this.scheduler = scheduler;
+        boolean hasHttps = false;
+        for (Endpoint endpoint : config.endpoints) {
+            hasHttps |= endpoint.type == Endpoint.TYPE_HTTPS;
+        }
+        this.hasHttps = hasHttps;
+    }
+
+    /**
+     * 开始探测，取消订阅会断开所有进行中的连接
+     */
+    public Single<Result> probe() {
+        return attempt(1);
+    }
+
+    private Single<Result> attempt(int attempt) {
+        return race(attempt).flatMap(result -> {
+            if (result.status != RESULT_NO_INTERNET || attempt >= config.maxAttempts) {
+                return Single.just(result);
+            }
+            return Single.timer(backoff(attempt), TimeUnit.MILLISECONDS, scheduler)
+                    .flatMap(tick -> attempt(attempt + 1));
+        });
+    }
+
+    /**
+     * 第 attempt 轮失败后等待的时间
+     */
+    long backoff(int attempt) {
+        long backoff = config.initialBackoffMillis;
+        for (int i = 1; i < attempt && backoff < config.maxBackoffMillis; i++) {
+            backoff *= 2;
+        }
+        return Math.min(backoff, config.maxBackoffMillis);
+    }
+
+    private Single<Result> race(int attempt) {
+        List<Observable<Answer>> probes = new ArrayList<>(config.endpoints.size());
+        for (Endpoint endpoint : config.endpoints) {
+            probes.add(probe(endpoint).toObservable());
+        }
+        // takeUntil 在拿到确定的结果后取消其余的探测
+        return Observable.merge(probes)
+                .takeUntil(this::isDefinitive)
+                .toList()
+                .map(answers -> classify(answers, attempt));
+    }
+
+    private boolean isDefinitive(Answer answer) {
+        if (answer.answer == ANSWER_PORTAL) {
+            return true;
+        }
+        return answer.answer == ANSWER_OK && (answer.endpoint.type == Endpoint.TYPE_HTTPS || !hasHttps);
+    }
+
+    private Result classify(List<Answer> answers, int attempt) {
+        Answer httpOk = null;
+        for (Answer answer : answers) {
+            if (answer.answer == ANSWER_PORTAL) {
+                return new Result(RESULT_PORTAL, answer.endpoint.url, answer.redirectUrl, attempt);
+            }
+            if (answer.answer == ANSWER_OK) {
+                if (answer.endpoint.type == Endpoint.TYPE_HTTPS) {
+                    return new Result(RESULT_VALIDATED, answer.endpoint.url, null, attempt);
+                }
+                httpOk = answer;
+            }
+        }
+        if (httpOk != null) {
+            return new Result(hasHttps ? RESULT_PARTIAL : RESULT_VALIDATED, httpOk.endpoint.url, null, attempt);
+        }
+        return new Result(RESULT_NO_INTERNET, null, null, attempt);
+    }
+
+    /**
+     * 请求一个探测地址，失败和超时都视为 ANSWER_FAILED，不会发出错误
+     */
+    private Single<Answer> probe(Endpoint endpoint) {
+        Answer failed = new Answer(endpoint, ANSWER_FAILED, null);
+        return Single.<Answer>create(emitter -> {
+            HttpURLConnection connection = null;
+            try {
+                connection = (HttpURLConnection) connectionFactory.open(endpoint.url);
+                emitter.setCancellable(connection::disconnect);
+                connection.setInstanceFollowRedirects(false);
+                connection.setConnectTimeout((int) config.timeoutMillis);
+                connection.setReadTimeout((int) config.timeoutMillis);
+                connection.setUseCaches(false);
+                int responseCode = connection.getResponseCode();
+                if (responseCode == 200 && connection.getContentLength() == 0) {
+                    responseCode = 204;
+                }
+                if (responseCode == 204) {
+                    emitter.onSuccess(new Answer(endpoint, ANSWER_OK, null));
+                } else if (endpoint.type == Endpoint.TYPE_HTTP && responseCode >= 200 && responseCode <= 399) {
+                    emitter.onSuccess(new Answer(endpoint, ANSWER_PORTAL, connection.getHeaderField("Location")));
+                } else {
+                    emitter.onSuccess(failed);
+                }
+            } catch (IOException | ClassCastException e) {
+                emitter.onSuccess(failed);
+            } finally {
+                if (connection != null) {
+                    connection.disconnect();
+                }
+            }
+        })
+                .subscribeOn(scheduler)
+                .timeout(config.timeoutMillis, TimeUnit.MILLISECONDS, scheduler, Single.just(failed));
+    }
+}
@@ -0,0 +1,216 @@
+package com.zly.wifilistdemo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+
+/**
+ * 按 BSSID 和 SSID 缓存 Captive Portal 探测结果，保存在文件中，重启后仍然有效
+ * <p>
+ * 能上网的结果在 freshMillis 内直接使用；超过之后，或者结果是需要登录、无法上网时，
+ * 先返回旧结果，同时在后台重新探测，用户登录之后不会一直沿用旧结果；超过 maxAgeMillis 的结果丢弃。
+ */
+public class PortalResultCache {
+    private static final int MAGIC = 0x50524331;
+    private static final int VERSION = 1;
+
+    public static class Config {
+        public static final Config DEFAULT = new Config(TimeUnit.HOURS.toMillis(1),
+                TimeUnit.DAYS.toMillis(7), 64);
+
+        public final long freshMillis;
+        public final long maxAgeMillis;
+        public final int maxEntries;
+
+        public Config(long freshMillis, long maxAgeMillis, int maxEntries) {
+            this.freshMillis = freshMillis;
+            this.maxAgeMillis = maxAgeMillis;
+            this.maxEntries = maxEntries;
+        }
+    }
+
+    public static class Entry {
+        /**
+         * PortalProbe.RESULT_*
+         */
+        public final int status;
+        /**
+         * 探测的时间
+         */
+        public final long time;
+
+        Entry(int status, long time) {
+            this.status = status;
+            this.time = time;
+        }
+    }
+
+    private final File file;
+    private final Config config;
+    private final Scheduler clock;
+    /**
+     * 按最近使用排序，超出容量时淘汰最久未使用的
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private boolean loaded = false;
+    private long hits = 0;
+    private long staleHits = 0;
+    private long misses = 0;
+
+    /**
+     * @param clock 提供当前时间，需要和保存的时间一致，一般用 Schedulers.io()
+     */
+    public PortalResultCache(File file, Config config, Scheduler clock) {
+        this.file = file;
+        this.config = config;
+        this.clock = clock;
+    }
+
+    /**
+     * 先发出缓存的结果，没有缓存或者已经过期时再发出 probe 的结果并写入缓存
+     *
+     * @param probe 重新探测，订阅时才会开始
+     * @return 依次发出的 PortalProbe.RESULT_*，相同的结果只发出一次
+     */
+    public Observable<Integer> check(String bssid, String ssid, Single<PortalProbe.Result> probe) {
+        return Observable.defer(() -> {
+            Entry entry = get(bssid, ssid);
+            Observable<Integer> revalidate = probe
+                    .doOnSuccess(result -> put(bssid, ssid, result.status))
+                    .map(result -> result.status)
+                    .toObservable();
+            if (entry == null) {
+                return revalidate;
+            }
+            if (isFresh(entry)) {
+                return Observable.just(entry.status);
+            }
+            return Observable.just(entry.status).concatWith(revalidate);
+        }).distinctUntilChanged();
+    }
+
+    /**
+     * 查找缓存的结果，过期时返回 null
+     */
+    public synchronized Entry get(String bssid, String ssid) {
+        ensureLoaded();
+        String key = key(bssid, ssid);
+        Entry entry = entries.get(key);
+        if (entry != null && now() - entry.time >= config.maxAgeMillis) {
+            entries.remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+        } else if (isFresh(entry)) {
+            hits++;
+        } else {
+            staleHits++;
+        }
+        return entry;
+    }
+
+    public synchronized void put(String bssid, String ssid, int status) {
+        ensureLoaded();
+        entries.put(key(bssid, ssid), new Entry(status, now()));
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > config.maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+        save();
+    }
+
+    /**
+     * 是否可以直接使用，不需要重新探测；需要登录和无法上网的结果随时可能变化，总是重新探测
+     */
+    public boolean isFresh(Entry entry) {
+        return entry.status != PortalProbe.RESULT_PORTAL && entry.status != PortalProbe.RESULT_NO_INTERNET
+                && now() - entry.time < config.freshMillis;
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * 命中了但需要重新探测的次数
+     */
+    public synchronized long getStaleHitCount() {
+        return staleHits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    private long now() {
+        return clock.now(TimeUnit.MILLISECONDS);
+    }
+
+    private static String key(String bssid, String ssid) {
+        return bssid + '/' + ssid;
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!file.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                int status = in.readInt();
+                long time = in.readLong();
+                entries.put(key, new Entry(status, time));
+            }
+        } catch (IOException e) {
+            // 文件损坏时当作没有缓存
+            e.printStackTrace();
+            entries.clear();
+        }
+    }
+
+    /**
+     * 先写临时文件再重命名，写到一半被杀掉也不会损坏原来的文件
+     */
+    private void save() {
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().status);
+                out.writeLong(entry.getValue().time);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.zly.wifilistdemo;
+
+import android.net.wifi.WifiConfiguration;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 已保存网络的索引
+ * <p>
+ * getConfiguredNetworks() 只在索引失效后调用一次，之后按 SSID + 加密类型或 networkId 直接查找。
+ * 收到 CONFIGURED_NETWORKS_CHANGE 广播或自己增删网络后需要调用 {@link #invalidate()}。
+ */
+public class SavedNetworkIndex {
+    private final WifiSystem wifiSystem;
+    /**
+     * SSID 符号 -> 按加密类型存放的配置；符号唯一，按引用查找
+     */
+    private final Map<SsidTable.Symbol, WifiConfiguration[]> bySsid = new HashMap<>();
+    private final Map<Integer, WifiConfiguration> byNetworkId = new HashMap<>();
+    private boolean valid = false;
+
+    public SavedNetworkIndex(WifiSystem wifiSystem) {
+        this.wifiSystem = wifiSystem;
+    }
+
+    /**
+     * 标记索引失效，下次查找时重新获取
+     */
+    public synchronized void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * 根据 SSID（不带引号）和加密类型查找已保存的配置
+     */
+    public WifiConfiguration get(String ssid, int security) {
+        return get(SsidTable.get().intern(ssid), security);
+    }
+
+    /**
+     * 根据 SSID 符号和加密类型查找已保存的配置
+     */
+    public synchronized WifiConfiguration get(SsidTable.Symbol ssid, int security) {
+        ensureLoaded();
+        WifiConfiguration[] configs = bySsid.get(ssid);
+        if (configs == null || security < 0 || security >= configs.length) {
+            return null;
+        }
+        return configs[security];
+    }
+
+    /**
+     * 根据 networkId 查找已保存的配置
+     */
+    public synchronized WifiConfiguration getByNetworkId(int networkId) {
+        ensureLoaded();
+        return byNetworkId.get(networkId);
+    }
+
+    private void ensureLoaded() {
+        if (!valid) {
+            setConfigurations(wifiSystem == null ? null : wifiSystem.getConfiguredNetworks());
+        }
+    }
+
+    synchronized void setConfigurations(List<WifiConfiguration> configs) {
+        bySsid.clear();
+        byNetworkId.clear();
+        if (configs != null) {
+            for (WifiConfiguration config : configs) {
+                byNetworkId.put(config.networkId, config);
+                // 只有带引号的 SSID 才和扫描结果对应
+                if (!SsidTable.isQuoted(config.SSID)) {
+                    continue;
+                }
+                SsidTable.Symbol ssid = SsidTable.get().internQuoted(config.SSID);
+                WifiConfiguration[] slots = bySsid.get(ssid);
+                if (slots == null) {
+                    slots = new WifiConfiguration[AccessPoint.SECURITY_COUNT];
+                    bySsid.put(ssid, slots);
+                }
+                slots[AccessPoint.getSecurity(config)] = config;
+            }
+        }
+        valid = true;
+    }
+}
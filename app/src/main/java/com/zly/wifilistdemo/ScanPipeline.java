@@ -0,0 +1,75 @@
+package com.zly.wifilistdemo;
+
+import android.net.NetworkInfo;
+import android.net.wifi.WifiConfiguration;
+import android.net.wifi.WifiInfo;
+
+/**
+ * 一个事件批次到 {@link AccessPointMerger.Delta} 的处理过程
+ * <p>
+ * 只通过 {@link WifiSystem} 读取系统状态，界面和 JVM 上的轨迹回放共用同一份代码。
+ * process() 在工作线程上串行调用，当前连接信息可以在其他线程读取。
+ */
+public class ScanPipeline {
+    private final WifiSystem wifiSystem;
+    private final AccessPointMerger merger;
+    private final SavedNetworkIndex savedNetworks;
+
+    private volatile NetworkInfo networkInfo;
+    private volatile WifiInfo wifiInfo;
+    private volatile WifiConfiguration wifiConfiguration;
+
+    public ScanPipeline(WifiSystem wifiSystem, AccessPointMerger merger, SavedNetworkIndex savedNetworks) {
+        this.wifiSystem = wifiSystem;
+        this.merger = merger;
+        this.savedNetworks = savedNetworks;
+    }
+
+    /**
+     * 读取初始的连接状态
+     */
+    public void start() {
+        networkInfo = wifiSystem.getActiveNetworkInfo();
+        wifiInfo = wifiSystem.getConnectionInfo();
+    }
+
+    public AccessPointMerger.Delta process(WifiEvent.Batch batch) {
+        if (batch.has(WifiEvent.TYPE_CONFIGURED_NETWORKS)) {
+            savedNetworks.invalidate();
+        }
+        if (batch.networkInfo != null) {
+            networkInfo = batch.networkInfo;
+        }
+        if (batch.has(WifiEvent.TYPE_NETWORK_STATE | WifiEvent.TYPE_CAPABILITIES)) {
+            wifiInfo = wifiSystem.getConnectionInfo();
+        }
+        WifiInfo info = wifiInfo;
+        if (info != null && info.getNetworkId() != AccessPoint.INVALID_NETWORK_ID) {
+            wifiConfiguration = savedNetworks.getByNetworkId(info.getNetworkId());
+        }
+        return merger.merge(wifiSystem.getScanResults(), savedNetworks, wifiConfiguration, info, networkInfo);
+    }
+
+    public NetworkInfo getNetworkInfo() {
+        return networkInfo;
+    }
+
+    public WifiInfo getWifiInfo() {
+        return wifiInfo;
+    }
+
+    /**
+     * 当前连接的网络对应的配置，没有连接过时为 null
+     */
+    public WifiConfiguration getWifiConfiguration() {
+        return wifiConfiguration;
+    }
+
+    /**
+     * 已连接时查询网络是否通过验证，未连接时返回 true
+     */
+    public boolean isValidated() {
+        NetworkInfo info = networkInfo;
+        return info == null || !info.isConnected() || wifiSystem.isCurrentNetworkValidated();
+    }
+}
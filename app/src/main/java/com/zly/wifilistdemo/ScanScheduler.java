@@ -0,0 +1,23 @@
+package com.zly.wifilistdemo;
+
+/**
+ * 决定什么时候调用 WifiManager.startScan()
+ */
+public interface ScanScheduler {
+
+    void start();
+
+    void stop();
+
+    /**
+     * 收到一轮扫描结果，可能来自其他应用触发的扫描
+     *
+     * @param churn 与上一轮相比新增、消失和移动的条目数
+     */
+    void onScanResults(int churn);
+
+    /**
+     * 用户正在操作界面
+     */
+    void onUserInteraction();
+}
@@ -0,0 +1,208 @@
+package com.zly.wifilistdemo;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * 把最近一次扫描到的列表保存到文件，冷启动时在第一次扫描完成之前先显示
+ * <p>
+ * 文件格式（大端）：
+ * <pre>
+ * header:  int magic, int version, long savedAt, int payloadLength, int crc32(payload)
+ * payload: short capabilitiesCount, capabilities[] { short length, utf8 }
+ *          int accessPointCount, accessPoints[] {
+ *              short length, utf8 ssid, short bssidCount,
+ *              bssids[] { long packedBssid, short capabilitiesIndex, short level, char frequency }
+ *          }
+ * </pre>
+ * capabilities 的种类很少，只保存一次，记录中用下标引用。任何一处校验失败都当作没有保存过。
+ */
+public class ScanSnapshotStore {
+    private static final int MAGIC = 0x574c5331;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 4;
+    /**
+     * 超过这个大小的文件不读取
+     */
+    private static final int MAX_PAYLOAD = 4 * 1024 * 1024;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * 读取到的扫描结果
+     */
+    public static class Saved {
+        public final long savedAt;
+        public final List<WifiScanRecord> records;
+
+        Saved(long savedAt, List<WifiScanRecord> records) {
+            this.savedAt = savedAt;
+            this.records = records;
+        }
+    }
+
+    private final File file;
+
+    public ScanSnapshotStore(File file) {
+        this.file = file;
+    }
+
+    /**
+     * 保存 accessPoints 中所有的 BSSID，会阻塞，需要在后台线程调用
+     */
+    public synchronized void write(List<AccessPoint> accessPoints, long savedAt) throws IOException {
+        ByteBuffer payload = encode(accessPoints);
+        CRC32 crc = new CRC32();
+        crc.update(payload.array(), 0, payload.limit());
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putLong(savedAt).putInt(payload.limit()).putInt((int) crc.getValue());
+        header.flip();
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            FileChannel channel = out.getChannel();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            while (payload.hasRemaining()) {
+                channel.write(payload);
+            }
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("rename " + temp + " failed");
+        }
+    }
+
+    /**
+     * 读取保存的扫描结果，没有保存过或者文件损坏时返回 null
+     */
+    public synchronized Saved read() {
+        if (!file.exists()) {
+            return null;
+        }
+        // 文件只有几十 KB，直接读进堆内存比 mmap 更省事，CRC32 也只能处理数组
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            FileChannel channel = in.getChannel();
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > HEADER_SIZE + MAX_PAYLOAD) {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // 读满为止
+            }
+            buffer.flip();
+            if (buffer.remaining() != size || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            long savedAt = buffer.getLong();
+            int payloadLength = buffer.getInt();
+            int expectedCrc = buffer.getInt();
+            if (payloadLength != buffer.remaining()) {
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), buffer.position(), payloadLength);
+            if ((int) crc.getValue() != expectedCrc) {
+                return null;
+            }
+            return new Saved(savedAt, decode(buffer));
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static ByteBuffer encode(List<AccessPoint> accessPoints) {
+        Map<String, Integer> capabilitiesIndex = new HashMap<>();
+        List<byte[]> capabilities = new ArrayList<>();
+        List<byte[]> ssids = new ArrayList<>(accessPoints.size());
+        int size = 2 + 4;
+        for (AccessPoint accessPoint : accessPoints) {
+            byte[] ssid = accessPoint.ssid.getBytes(UTF_8);
+            ssids.add(ssid);
+            size += 2 + ssid.length + 2;
+            ScanTable table = accessPoint.getScanTable();
+            for (int i = 0; i < table.size(); i++) {
+                String text = table.getCapabilities(i).text;
+                if (!capabilitiesIndex.containsKey(text)) {
+                    capabilitiesIndex.put(text, capabilities.size());
+                    byte[] bytes = text.getBytes(UTF_8);
+                    capabilities.add(bytes);
+                    size += 2 + bytes.length;
+                }
+                size += 8 + 2 + 2 + 2;
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putShort((short) capabilities.size());
+        for (byte[] bytes : capabilities) {
+            buffer.putShort((short) bytes.length).put(bytes);
+        }
+        buffer.putInt(accessPoints.size());
+        for (int i = 0; i < accessPoints.size(); i++) {
+            ScanTable table = accessPoints.get(i).getScanTable();
+            byte[] ssid = ssids.get(i);
+            buffer.putShort((short) ssid.length).put(ssid);
+            buffer.putShort((short) table.size());
+            for (int j = 0; j < table.size(); j++) {
+                buffer.putLong(table.getBssid(j));
+                buffer.putShort(capabilitiesIndex.get(table.getCapabilities(j).text).shortValue());
+                buffer.putShort((short) table.getLevel(j));
+                buffer.putChar((char) table.getFrequency(j));
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static List<WifiScanRecord> decode(ByteBuffer buffer) {
+        int capabilitiesCount = buffer.getShort() & 0xffff;
+        String[] capabilities = new String[capabilitiesCount];
+        for (int i = 0; i < capabilitiesCount; i++) {
+            capabilities[i] = readString(buffer);
+        }
+        int accessPointCount = buffer.getInt();
+        if (accessPointCount < 0 || accessPointCount > buffer.remaining()) {
+            throw new IllegalArgumentException("accessPointCount=" + accessPointCount);
+        }
+        List<WifiScanRecord> records = new ArrayList<>(accessPointCount);
+        for (int i = 0; i < accessPointCount; i++) {
+            String ssid = readString(buffer);
+            int count = buffer.getShort() & 0xffff;
+            for (int j = 0; j < count; j++) {
+                String bssid = WifiScanRecord.unpackBssid(buffer.getLong());
+                int index = buffer.getShort() & 0xffff;
+                if (index >= capabilitiesCount) {
+                    throw new IllegalArgumentException("capabilitiesIndex=" + index);
+                }
+                int level = buffer.getShort();
+                int frequency = buffer.getChar();
+                records.add(new WifiScanRecord(ssid, bssid, capabilities[index], level, frequency));
+            }
+        }
+        return Collections.unmodifiableList(records);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xffff;
+        if (length > buffer.remaining()) {
+            throw new IllegalArgumentException("length=" + length);
+        }
+        String string = new String(buffer.array(), buffer.position(), length, UTF_8);
+        buffer.position(buffer.position() + length);
+        return string;
+    }
+}
@@ -0,0 +1,152 @@
+package com.zly.wifilistdemo;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 同一 SSID 和加密类型下各 BSSID 的扫描结果，按列存放
+ * <p>
+ * BSSID 压成 long，信号和频率放在 int 数组里，capabilities 只引用 {@link WifiCapabilities} 缓存中
+ * 共用的解析结果，SSID 整张表只存一份。相比每个 BSSID 一个 WifiScanRecord 加上三个字符串，
+ * 每行只占 20 字节左右。
+ * <p>
+ * 由创建者用 {@link #add} 填满之后才能发布，之后不再修改，可以在线程间共用。
+ */
+public final class ScanTable {
+    static final ScanTable EMPTY = new ScanTable(null, 0);
+
+    public final String ssid;
+    private final long[] bssids;
+    private final int[] levels;
+    private final int[] frequencies;
+    private final WifiCapabilities[] capabilities;
+    private int size;
+    /**
+     * 信号最强的一行，没有行时为 -1
+     */
+    private int strongest = -1;
+
+    ScanTable(String ssid, int capacity) {
+        this.ssid = ssid;
+        this.bssids = new long[capacity];
+        this.levels = new int[capacity];
+        this.frequencies = new int[capacity];
+        this.capabilities = new WifiCapabilities[capacity];
+    }
+
+    /**
+     * 按原来的顺序复制一组扫描结果，SSID 取第一条的
+     */
+    public static ScanTable of(List<WifiScanRecord> records) {
+        if (records.isEmpty()) {
+            return EMPTY;
+        }
+        ScanTable table = new ScanTable(records.get(0).ssid, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            WifiScanRecord record = records.get(i);
+            table.add(WifiScanRecord.packBssid(record.bssid), WifiCapabilities.parse(record.capabilities),
+                    record.level, record.frequency);
+        }
+        return table;
+    }
+
+    /**
+     * 追加一行，只能在发布之前调用
+     *
+     * @param bssid {@link WifiScanRecord#packBssid} 的结果
+     */
+    void add(long bssid, WifiCapabilities capabilities, int level, int frequency) {
+        int row = size++;
+        bssids[row] = bssid;
+        levels[row] = level;
+        frequencies[row] = frequency;
+        this.capabilities[row] = capabilities;
+        if (strongest < 0 || level > levels[strongest]) {
+            strongest = row;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getStrongest() {
+        return strongest;
+    }
+
+    /**
+     * 压缩后的 BSSID，无法解析时为 {@link WifiScanRecord#NO_BSSID}
+     */
+    public long getBssid(int row) {
+        return bssids[row];
+    }
+
+    public int getLevel(int row) {
+        return levels[row];
+    }
+
+    public int getFrequency(int row) {
+        return frequencies[row];
+    }
+
+    public WifiCapabilities getCapabilities(int row) {
+        return capabilities[row];
+    }
+
+    /**
+     * 两张表是否有相同的 BSSID，且每个 BSSID 的频率相同，不比较信号
+     * <p>
+     * 行的顺序相同时逐行比较，不分配对象；否则排序后比较。
+     */
+    public boolean hasSameMembers(ScanTable other) {
+        if (size != other.size) {
+            return false;
+        }
+        boolean sameOrder = true;
+        for (int row = 0; row < size && sameOrder; row++) {
+            sameOrder = bssids[row] == other.bssids[row] && frequencies[row] == other.frequencies[row];
+        }
+        return sameOrder || Arrays.equals(sortedMembers(), other.sortedMembers());
+    }
+
+    /**
+     * BSSID 只占低 48 位，频率放在低 16 位
+     */
+    private long[] sortedMembers() {
+        long[] members = new long[size];
+        for (int row = 0; row < size; row++) {
+            members[row] = bssids[row] << 16 | (frequencies[row] & 0xffff);
+        }
+        Arrays.sort(members);
+        return members;
+    }
+
+    /**
+     * 还原成 WifiScanRecord，每次调用都会创建新对象
+     */
+    public WifiScanRecord getRecord(int row) {
+        return new WifiScanRecord(ssid, WifiScanRecord.unpackBssid(bssids[row]), capabilities[row].text,
+                levels[row], frequencies[row]);
+    }
+
+    /**
+     * 以 WifiScanRecord 列表的形式读取，元素在 get() 时才创建
+     */
+    public List<WifiScanRecord> asList() {
+        return new AbstractList<WifiScanRecord>() {
+            @Override
+            public WifiScanRecord get(int index) {
+                if (index >= size) {
+                    throw new IndexOutOfBoundsException("index=" + index + ", size=" + size);
+                }
+                return getRecord(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+}
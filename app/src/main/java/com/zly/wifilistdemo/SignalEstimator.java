@@ -0,0 +1,175 @@
+package com.zly.wifilistdemo;
+
+import java.util.Arrays;
+
+/**
+ * 按 BSSID 平滑信号强度，并给信号格数加上迟滞
+ * <p>
+ * 每个 BSSID 的 RSSI 用指数加权移动平均（EWMA）平滑，window 越大越平稳、响应越慢；
+ * 信号格数只有在平滑后的 RSSI 越过格数边界 margin dB 之后才改变，避免处在边界附近的网络
+ * 每次扫描都来回换位置。
+ * <p>
+ * 历史按压缩后的 BSSID 存在开放寻址的数组里，每个 BSSID 不需要额外的对象。
+ * <p>
+ * 不是线程安全的，由 {@link AccessPointMerger} 持有锁时调用。
+ */
+public class SignalEstimator {
+    public static final int DEFAULT_WINDOW = 4;
+    public static final int DEFAULT_MARGIN = 3;
+
+    /**
+     * 连续这么多轮扫描没有出现的 BSSID 丢弃历史
+     */
+    private static final int MAX_MISSED_SCANS = 3;
+    private static final int INITIAL_CAPACITY = 64;
+    /**
+     * 空槽位，和 packBssid() 的失败值相同，这样的 BSSID 本来就不记录历史
+     */
+    private static final long EMPTY = WifiScanRecord.NO_BSSID;
+
+    private final double alpha;
+    private final int margin;
+    /**
+     * 容量总是 2 的幂，至少留一半空槽位
+     */
+    private long[] bssids;
+    private double[] values;
+    private long[] generations;
+    private int size;
+    private long generation = 0;
+    private long suppressedReorders = 0;
+
+    public SignalEstimator() {
+        this(DEFAULT_WINDOW, DEFAULT_MARGIN);
+    }
+
+    /**
+     * @param window 平滑窗口，1 表示不平滑
+     * @param margin 迟滞的 dB 数，0 表示不加迟滞
+     */
+    public SignalEstimator(int window, int margin) {
+        if (window < 1 || margin < 0) {
+            throw new IllegalArgumentException("window=" + window + ", margin=" + margin);
+        }
+        this.alpha = 2.0 / (window + 1);
+        this.margin = margin;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        bssids = new long[capacity];
+        Arrays.fill(bssids, EMPTY);
+        values = new double[capacity];
+        generations = new long[capacity];
+        size = 0;
+    }
+
+    /**
+     * 开始处理新一轮扫描结果
+     */
+    public void beginScan() {
+        generation++;
+        int expired = 0;
+        for (int i = 0; i < bssids.length; i++) {
+            if (bssids[i] != EMPTY && generation - generations[i] > MAX_MISSED_SCANS) {
+                expired++;
+            }
+        }
+        if (expired > 0) {
+            rehash(bssids.length);
+        }
+    }
+
+    /**
+     * 按 capacity 重新放置仍然有效的历史，丢弃过期的
+     */
+    private void rehash(int capacity) {
+        long[] oldBssids = bssids;
+        double[] oldValues = values;
+        long[] oldGenerations = generations;
+        allocate(capacity);
+        for (int i = 0; i < oldBssids.length; i++) {
+            if (oldBssids[i] != EMPTY && generation - oldGenerations[i] <= MAX_MISSED_SCANS) {
+                int slot = slot(oldBssids[i]);
+                bssids[slot] = oldBssids[i];
+                values[slot] = oldValues[i];
+                generations[slot] = oldGenerations[i];
+                size++;
+            }
+        }
+    }
+
+    /**
+     * bssid 所在的槽位，不存在时返回应当插入的空槽位
+     */
+    private int slot(long bssid) {
+        int mask = bssids.length - 1;
+        long hash = bssid * 0x9E3779B97F4A7C15L;
+        int slot = (int) (hash >>> 32) & mask;
+        while (bssids[slot] != EMPTY && bssids[slot] != bssid) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * 加入一个 BSSID 本轮的 RSSI，返回平滑后的值
+     *
+     * @param bssid {@link WifiScanRecord#packBssid} 的结果，无法解析的 BSSID 不平滑
+     */
+    public int estimate(long bssid, int rssi) {
+        if (bssid == EMPTY) {
+            return rssi;
+        }
+        int slot = slot(bssid);
+        if (bssids[slot] == EMPTY) {
+            if ((size + 1) * 2 > bssids.length) {
+                rehash(bssids.length * 2);
+                slot = slot(bssid);
+            }
+            bssids[slot] = bssid;
+            values[slot] = rssi;
+            size++;
+        } else if (generations[slot] != generation) {
+            values[slot] += alpha * (rssi - values[slot]);
+        }
+        generations[slot] = generation;
+        return (int) Math.round(values[slot]);
+    }
+
+    /**
+     * 根据平滑后的 RSSI 和当前显示的格数计算新的格数
+     *
+     * @param rssi         平滑后的 RSSI
+     * @param currentLevel 当前显示的格数，没有时为 -1
+     * @param rawRssi      未平滑的 RSSI，用于统计被抑制的重排
+     */
+    public int level(int rssi, int currentLevel, int rawRssi) {
+        if (rssi == Integer.MAX_VALUE) {
+            return 0;
+        }
+        if (currentLevel < 0) {
+            return AccessPoint.calculateSignalLevel(rssi, AccessPoint.SIGNAL_LEVELS);
+        }
+        int level = currentLevel;
+        int up = AccessPoint.calculateSignalLevel(rssi - margin, AccessPoint.SIGNAL_LEVELS);
+        int down = AccessPoint.calculateSignalLevel(rssi + margin, AccessPoint.SIGNAL_LEVELS);
+        if (up > currentLevel) {
+            level = up;
+        } else if (down < currentLevel) {
+            level = down;
+        }
+        if (level == currentLevel
+                && AccessPoint.calculateSignalLevel(rawRssi, AccessPoint.SIGNAL_LEVELS) != currentLevel) {
+            suppressedReorders++;
+        }
+        return level;
+    }
+
+    /**
+     * 平滑和迟滞一共挡掉了多少次格数变化
+     */
+    public long getSuppressedReorderCount() {
+        return suppressedReorders;
+    }
+}
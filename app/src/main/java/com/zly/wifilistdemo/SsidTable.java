@@ -0,0 +1,194 @@
+package com.zly.wifilistdemo;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * SSID 符号表
+ * <p>
+ * 每个不同的 SSID 对应唯一的 {@link Symbol}，其中预先算好了带引号、不带引号和排序用的形式，
+ * 匹配时比较引用或 id 即可，不需要再拼接、截取或折叠大小写。
+ * <p>
+ * 最近用到的 capacity 个符号一定保留；更早的只要还有 AccessPoint 等对象引用就不会被回收，
+ * 因此同一时刻同一个 SSID 不会有两个符号。被回收的符号的 id 会被重新分配，id 始终紧凑。
+ */
+public final class SsidTable {
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private static final SsidTable INSTANCE = new SsidTable(DEFAULT_CAPACITY);
+
+    public static final class Symbol {
+        /**
+         * 在同一时刻存活的符号中唯一
+         */
+        public final int id;
+        /**
+         * 不带引号的 SSID
+         */
+        public final String raw;
+        /**
+         * 带引号的 SSID，和 WifiConfiguration.SSID 的格式一致
+         */
+        public final String quoted;
+        /**
+         * 逐字符折叠过大小写，用 compareTo 比较的结果和原字符串 compareToIgnoreCase 一致
+         */
+        public final String collationKey;
+        /**
+         * 在 recent 中的位置
+         */
+        private int recentSlot = -1;
+
+        private Symbol(int id, String raw) {
+            this.id = id;
+            this.raw = raw;
+            this.quoted = "\"" + raw + "\"";
+            this.collationKey = AccessPoint.foldCase(raw);
+        }
+
+        @Override
+        public String toString() {
+            return id + ":" + raw;
+        }
+    }
+
+    /**
+     * 符号被回收后用来从索引中移除，并归还 id
+     */
+    private static final class Entry extends WeakReference<Symbol> {
+        final int id;
+        final String raw;
+        final String quoted;
+
+        Entry(Symbol symbol, ReferenceQueue<Symbol> queue) {
+            super(symbol, queue);
+            this.id = symbol.id;
+            this.raw = symbol.raw;
+            this.quoted = symbol.quoted;
+        }
+    }
+
+    private final Map<String, Entry> byRaw = new HashMap<>();
+    private final Map<String, Entry> byQuoted = new HashMap<>();
+    private final ReferenceQueue<Symbol> queue = new ReferenceQueue<>();
+    /**
+     * 最近用到的符号，按环形依次覆盖最早放入的
+     */
+    private final Symbol[] recent;
+    private int recentNext;
+    private int[] freeIds = new int[16];
+    private int freeCount;
+    private int nextId;
+
+    public SsidTable(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity=" + capacity);
+        }
+        this.recent = new Symbol[capacity];
+    }
+
+    /**
+     * 进程内共用的实例
+     */
+    public static SsidTable get() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param raw 不带引号的 SSID，null 按空字符串处理
+     */
+    public synchronized Symbol intern(String raw) {
+        if (raw == null) {
+            raw = "";
+        }
+        expunge();
+        Symbol symbol = lookup(byRaw, raw);
+        if (symbol == null) {
+            symbol = add(raw);
+        }
+        touch(symbol);
+        return symbol;
+    }
+
+    /**
+     * 按 WifiConfiguration.SSID 或 WifiInfo.getSSID() 的格式查找：带引号时去掉引号，
+     * 不带引号（十六进制 SSID 或 "&lt;unknown ssid&gt;"）时原样作为 SSID
+     */
+    public synchronized Symbol internQuoted(String ssid) {
+        if (!isQuoted(ssid)) {
+            return intern(ssid);
+        }
+        expunge();
+        Symbol symbol = lookup(byQuoted, ssid);
+        if (symbol == null) {
+            String raw = ssid.substring(1, ssid.length() - 1);
+            symbol = lookup(byRaw, raw);
+            if (symbol == null) {
+                symbol = add(raw);
+            }
+        }
+        touch(symbol);
+        return symbol;
+    }
+
+    /**
+     * 当前索引中的符号个数，包括已经不再被引用、还没有回收的
+     */
+    public synchronized int size() {
+        expunge();
+        return byRaw.size();
+    }
+
+    static boolean isQuoted(String ssid) {
+        int length = ssid == null ? 0 : ssid.length();
+        return length > 1 && ssid.charAt(0) == '"' && ssid.charAt(length - 1) == '"';
+    }
+
+    private static Symbol lookup(Map<String, Entry> index, String key) {
+        Entry entry = index.get(key);
+        return entry == null ? null : entry.get();
+    }
+
+    private Symbol add(String raw) {
+        int id = freeCount > 0 ? freeIds[--freeCount] : nextId++;
+        Symbol symbol = new Symbol(id, raw);
+        Entry entry = new Entry(symbol, queue);
+        // 旧的 Entry 已被清除但还没出队时，直接覆盖；出队时发现不是同一个 Entry 就不会误删
+        byRaw.put(raw, entry);
+        byQuoted.put(symbol.quoted, entry);
+        return symbol;
+    }
+
+    private void touch(Symbol symbol) {
+        if (symbol.recentSlot >= 0 && recent[symbol.recentSlot] == symbol) {
+            return;
+        }
+        Symbol evicted = recent[recentNext];
+        if (evicted != null) {
+            evicted.recentSlot = -1;
+        }
+        recent[recentNext] = symbol;
+        symbol.recentSlot = recentNext;
+        recentNext = (recentNext + 1) % recent.length;
+    }
+
+    private void expunge() {
+        Entry entry;
+        while ((entry = (Entry) queue.poll()) != null) {
+            if (byRaw.get(entry.raw) == entry) {
+                byRaw.remove(entry.raw);
+            }
+            if (byQuoted.get(entry.quoted) == entry) {
+                byQuoted.remove(entry.quoted);
+            }
+            if (freeCount == freeIds.length) {
+                int[] grown = new int[freeCount * 2];
+                System.arraycopy(freeIds, 0, grown, 0, freeCount);
+                freeIds = grown;
+            }
+            freeIds[freeCount++] = entry.id;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.zly.wifilistdemo;
+
+import android.content.Context;
+import android.support.annotation.StringRes;
+import android.util.SparseArray;
+
+/**
+ * 状态描述文字表
+ * <p>
+ * 创建时一次性读取所有状态字符串，之后生成列表行时直接查表，不再调用 context.getString。
+ */
+public class StatusTextTable {
+    private static final int[] STATUS_RES = {
+            R.string.network_wifi_status_connected_no_internet,
+            R.string.network_wifi_status_saved,
+            R.string.network_wifi_status_idle,
+            R.string.network_wifi_status_disabled,
+            R.string.network_wifi_status_network_failure,
+            R.string.network_wifi_status_wifi_failure,
+            R.string.network_wifi_status_password_failure,
+            R.string.network_wifi_status_scanning,
+            R.string.network_wifi_status_connecting,
+            R.string.network_wifi_status_authenticating,
+            R.string.network_wifi_status_obtaining_ip_address,
+            R.string.network_wifi_status_connected,
+            R.string.network_wifi_status_suspended,
+            R.string.network_wifi_status_disconnecting,
+            R.string.network_wifi_status_disconnected,
+            R.string.network_wifi_status_failed,
+            R.string.network_wifi_status_blocked,
+            R.string.network_wifi_status_verifying_poor_link,
+    };
+
+    private final SparseArray<String> texts;
+
+    /**
+     * 没有任何文字，get() 都返回 null，用于 JVM 上的测试
+     */
+    StatusTextTable() {
+        texts = null;
+    }
+
+    public StatusTextTable(Context context) {
+        texts = new SparseArray<>(STATUS_RES.length);
+        for (int res : STATUS_RES) {
+            texts.put(res, context.getString(res));
+        }
+    }
+
+    public String get(@StringRes int res) {
+        return texts == null ? null : texts.get(res);
+    }
+}
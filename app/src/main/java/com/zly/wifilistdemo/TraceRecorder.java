@@ -0,0 +1,152 @@
+package com.zly.wifilistdemo;
+
+import android.net.NetworkInfo;
+import android.net.wifi.WifiConfiguration;
+import android.net.wifi.WifiInfo;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Scheduler;
+
+/**
+ * 包装 {@link WifiSystem}，把广播事件和查询结果写入 {@link WifiTrace}
+ * <p>
+ * 修改网络的调用直接转发，不记录。写入失败后停止记录，不影响正常使用。
+ */
+public class TraceRecorder implements WifiSystem {
+    private final WifiSystem delegate;
+    private final WifiTrace.Writer writer;
+    private final Scheduler clock;
+    private volatile boolean failed;
+
+    /**
+     * @param clock 记录时间用的时钟，writer 也需要基于同一个时钟创建
+     */
+    public TraceRecorder(WifiSystem delegate, WifiTrace.Writer writer, Scheduler clock) {
+        this.delegate = delegate;
+        this.writer = writer;
+        this.clock = clock;
+    }
+
+    /**
+     * 记录一个广播事件，在 post 给 {@link WifiEventCoalescer} 之前调用
+     */
+    public void recordEvent(WifiEvent event) {
+        if (failed) {
+            return;
+        }
+        try {
+            writer.writeEvent(now(), event);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    public void close() {
+        failed = true;
+        try {
+            writer.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public List<WifiScanRecord> getScanResults() {
+        List<WifiScanRecord> records = delegate.getScanResults();
+        if (!failed) {
+            try {
+                writer.writeScanResults(now(), records);
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+        return records;
+    }
+
+    @Override
+    public List<WifiConfiguration> getConfiguredNetworks() {
+        List<WifiConfiguration> configs = delegate.getConfiguredNetworks();
+        if (!failed) {
+            try {
+                writer.writeConfiguredNetworks(now(), configs);
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+        return configs;
+    }
+
+    @Override
+    public WifiInfo getConnectionInfo() {
+        WifiInfo info = delegate.getConnectionInfo();
+        if (!failed) {
+            try {
+                writer.writeConnectionInfo(now(), info == null ? null : new WifiTrace.Connection(
+                        info.getNetworkId(), info.getSSID(), info.getBSSID(), info.getRssi()));
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+        return info;
+    }
+
+    @Override
+    public NetworkInfo getActiveNetworkInfo() {
+        NetworkInfo networkInfo = delegate.getActiveNetworkInfo();
+        if (!failed) {
+            try {
+                writer.writeNetworkInfo(now(), networkInfo);
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+        return networkInfo;
+    }
+
+    @Override
+    public boolean isCurrentNetworkValidated() {
+        return delegate.isCurrentNetworkValidated();
+    }
+
+    @Override
+    public boolean startScan() {
+        return delegate.startScan();
+    }
+
+    @Override
+    public boolean setWifiEnabled(boolean enabled) {
+        return delegate.setWifiEnabled(enabled);
+    }
+
+    @Override
+    public int addNetwork(WifiConfiguration config) {
+        return delegate.addNetwork(config);
+    }
+
+    @Override
+    public int updateNetwork(WifiConfiguration config) {
+        return delegate.updateNetwork(config);
+    }
+
+    @Override
+    public boolean enableNetwork(int networkId, boolean attemptConnect) {
+        return delegate.enableNetwork(networkId, attemptConnect);
+    }
+
+    @Override
+    public boolean removeNetwork(int networkId) {
+        return delegate.removeNetwork(networkId);
+    }
+
+    private long now() {
+        return clock.now(TimeUnit.MILLISECONDS);
+    }
+
+    private void fail(IOException e) {
+        e.printStackTrace();
+        close();
+    }
+}
@@ -0,0 +1,287 @@
+package com.zly.wifilistdemo;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 解析 ScanResult.capabilities
+ * <p>
+ * capabilities 形如 "[WPA2-PSK-CCMP+TKIP][RSN-PSK+SAE-CCMP][ESS][WPS]"，每个方括号内是
+ * "协议-密钥管理-加密方式"，密钥管理和加密方式可以用 '+' 连接多个。这里一次遍历把它解析成位掩码，
+ * 并按字符串缓存结果：同一次扫描中大部分网络的 capabilities 都相同。
+ */
+public class WifiCapabilities {
+    // 协议
+    public static final int PROTO_WPA = 1;
+    public static final int PROTO_RSN = 1 << 1;
+    public static final int PROTO_WEP = 1 << 2;
+    public static final int PROTO_WAPI = 1 << 3;
+
+    // 密钥管理
+    public static final int KEY_MGMT_PSK = 1;
+    public static final int KEY_MGMT_EAP = 1 << 1;
+    public static final int KEY_MGMT_SAE = 1 << 2;
+    public static final int KEY_MGMT_OWE = 1 << 3;
+    public static final int KEY_MGMT_OWE_TRANSITION = 1 << 4;
+    public static final int KEY_MGMT_EAP_SUITE_B_192 = 1 << 5;
+    public static final int KEY_MGMT_FT_PSK = 1 << 6;
+    public static final int KEY_MGMT_FT_EAP = 1 << 7;
+    public static final int KEY_MGMT_FT_SAE = 1 << 8;
+    public static final int KEY_MGMT_PSK_SHA256 = 1 << 9;
+    public static final int KEY_MGMT_EAP_SHA256 = 1 << 10;
+    public static final int KEY_MGMT_OSEN = 1 << 11;
+
+    // 加密方式
+    public static final int CIPHER_CCMP = 1;
+    public static final int CIPHER_TKIP = 1 << 1;
+    public static final int CIPHER_GCMP_256 = 1 << 2;
+    public static final int CIPHER_GCMP_128 = 1 << 3;
+
+    // 其他标记
+    public static final int FLAG_ESS = 1;
+    public static final int FLAG_IBSS = 1 << 1;
+    public static final int FLAG_WPS = 1 << 2;
+    public static final int FLAG_MFPC = 1 << 3;
+    public static final int FLAG_MFPR = 1 << 4;
+
+    private static final int ANY_PSK = KEY_MGMT_PSK | KEY_MGMT_FT_PSK | KEY_MGMT_PSK_SHA256;
+    private static final int ANY_EAP = KEY_MGMT_EAP | KEY_MGMT_FT_EAP | KEY_MGMT_EAP_SHA256 | KEY_MGMT_OSEN;
+    private static final int ANY_SAE = KEY_MGMT_SAE | KEY_MGMT_FT_SAE;
+
+    private static final int CACHE_SIZE = 64;
+
+    private static final Map<String, WifiCapabilities> CACHE =
+            new LinkedHashMap<String, WifiCapabilities>(CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, WifiCapabilities> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            };
+
+    /**
+     * 解析前的字符串，缓存命中时多条扫描结果共用同一个实例
+     */
+    public final String text;
+    public final int protocols;
+    public final int keyManagement;
+    public final int ciphers;
+    public final int flags;
+    /**
+     * AccessPoint.SECURITY_*
+     */
+    public final int security;
+    /**
+     * AccessPoint.PSK_*，非 PSK 网络为 PSK_UNKNOWN
+     */
+    public final int pskType;
+
+    private WifiCapabilities(String text, int protocols, int keyManagement, int ciphers, int flags,
+                             int wpaKeyManagement, int rsnKeyManagement) {
+        this.text = text;
+        this.protocols = protocols;
+        this.keyManagement = keyManagement;
+        this.ciphers = ciphers;
+        this.flags = flags;
+        this.security = classify(protocols, keyManagement);
+        this.pskType = security == AccessPoint.SECURITY_PSK
+                ? pskType(wpaKeyManagement, rsnKeyManagement) : AccessPoint.PSK_UNKNOWN;
+    }
+
+    /**
+     * 解析 capabilities，结果会被缓存
+     */
+    public static WifiCapabilities parse(String capabilities) {
+        if (capabilities == null) {
+            capabilities = "";
+        }
+        synchronized (CACHE) {
+            WifiCapabilities cached = CACHE.get(capabilities);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        WifiCapabilities parsed = tokenize(capabilities);
+        synchronized (CACHE) {
+            CACHE.put(capabilities, parsed);
+        }
+        return parsed;
+    }
+
+    public boolean has(int keyManagement) {
+        return (this.keyManagement & keyManagement) != 0;
+    }
+
+    /**
+     * 同时支持 WPA2-PSK 和 WPA3-SAE 的过渡模式
+     */
+    public boolean isPskSaeTransition() {
+        return (keyManagement & ANY_PSK) != 0 && (keyManagement & ANY_SAE) != 0;
+    }
+
+    private static int classify(int protocols, int keyManagement) {
+        if ((protocols & PROTO_WEP) != 0) {
+            return AccessPoint.SECURITY_WEP;
+        }
+        if ((keyManagement & KEY_MGMT_EAP_SUITE_B_192) != 0) {
+            return AccessPoint.SECURITY_EAP_SUITE_B;
+        }
+        if ((keyManagement & ANY_EAP) != 0) {
+            return AccessPoint.SECURITY_EAP;
+        }
+        // 过渡模式按 PSK 处理，老设备也能连接
+        if ((keyManagement & ANY_PSK) != 0) {
+            return AccessPoint.SECURITY_PSK;
+        }
+        if ((keyManagement & ANY_SAE) != 0) {
+            return AccessPoint.SECURITY_SAE;
+        }
+        if ((keyManagement & KEY_MGMT_OWE) != 0) {
+            return AccessPoint.SECURITY_OWE;
+        }
+        // OWE 过渡模式同时提供开放网络
+        return AccessPoint.SECURITY_NONE;
+    }
+
+    private static int pskType(int wpaKeyManagement, int rsnKeyManagement) {
+        boolean wpa = (wpaKeyManagement & ANY_PSK) != 0;
+        boolean wpa2 = (rsnKeyManagement & ANY_PSK) != 0;
+        if (wpa2 && wpa) {
+            return AccessPoint.PSK_WPA_WPA2;
+        } else if (wpa2) {
+            return AccessPoint.PSK_WPA2;
+        } else if (wpa) {
+            return AccessPoint.PSK_WPA;
+        } else {
+            return AccessPoint.PSK_UNKNOWN;
+        }
+    }
+
+    /**
+     * 一次遍历解析整个字符串，不创建子串
+     */
+    static WifiCapabilities tokenize(String capabilities) {
+        int protocols = 0;
+        int keyManagement = 0;
+        int ciphers = 0;
+        int flags = 0;
+        int wpaKeyManagement = 0;
+        int rsnKeyManagement = 0;
+        int length = capabilities.length();
+        int i = 0;
+        while (i < length) {
+            if (capabilities.charAt(i) != '[') {
+                i++;
+                continue;
+            }
+            int start = i + 1;
+            int end = capabilities.indexOf(']', start);
+            if (end < 0) {
+                end = length;
+            }
+            // 协议-密钥管理-加密方式，密钥管理（PSK-SHA256）和加密方式（GCMP-256）中都可能还有 '-'
+            int firstDash = indexOf(capabilities, '-', start, end);
+            if (firstDash < 0) {
+                flags |= flag(capabilities, start, end);
+                protocols |= capabilities.regionMatches(start, "WEP", 0, 3) && end - start == 3 ? PROTO_WEP : 0;
+            } else {
+                int protocol = protocol(capabilities, start, firstDash);
+                protocols |= protocol;
+                int secondDash = indexOf(capabilities, '-', firstDash + 1, end);
+                while (secondDash >= 0 && isSha256Suffix(capabilities, secondDash + 1, end)) {
+                    secondDash = indexOf(capabilities, '-', secondDash + 1, end);
+                }
+                int keyEnd = secondDash < 0 ? end : secondDash;
+                int elementKeyManagement = 0;
+                int tokenStart = firstDash + 1;
+                for (int j = tokenStart; j <= keyEnd; j++) {
+                    if (j == keyEnd || capabilities.charAt(j) == '+') {
+                        elementKeyManagement |= keyManagement(capabilities, tokenStart, j);
+                        tokenStart = j + 1;
+                    }
+                }
+                keyManagement |= elementKeyManagement;
+                if (protocol == PROTO_WPA) {
+                    wpaKeyManagement |= elementKeyManagement;
+                } else if (protocol == PROTO_RSN) {
+                    rsnKeyManagement |= elementKeyManagement;
+                }
+                if (secondDash >= 0) {
+                    tokenStart = secondDash + 1;
+                    for (int j = tokenStart; j <= end; j++) {
+                        if (j == end || capabilities.charAt(j) == '+') {
+                            ciphers |= cipher(capabilities, tokenStart, j);
+                            tokenStart = j + 1;
+                        }
+                    }
+                }
+            }
+            i = end + 1;
+        }
+        return new WifiCapabilities(capabilities, protocols, keyManagement, ciphers, flags, wpaKeyManagement, rsnKeyManagement);
+    }
+
+    private static int indexOf(String string, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (string.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * start 开始是否是密钥管理的 "SHA256" 后缀，后面紧跟 '-'、'+' 或者结束
+     */
+    private static boolean isSha256Suffix(String string, int start, int end) {
+        int suffixEnd = start + 6;
+        if (suffixEnd > end || !string.regionMatches(start, "SHA256", 0, 6)) {
+            return false;
+        }
+        return suffixEnd == end || string.charAt(suffixEnd) == '-' || string.charAt(suffixEnd) == '+';
+    }
+
+    private static boolean is(String string, int start, int end, String token) {
+        return end - start == token.length() && string.regionMatches(start, token, 0, token.length());
+    }
+
+    private static int protocol(String s, int start, int end) {
+        if (is(s, start, end, "WPA")) return PROTO_WPA;
+        // 较新的系统同时输出 WPA2 和 RSN，两者含义相同
+        if (is(s, start, end, "WPA2") || is(s, start, end, "RSN")) return PROTO_RSN;
+        if (is(s, start, end, "WAPI")) return PROTO_WAPI;
+        return 0;
+    }
+
+    private static int keyManagement(String s, int start, int end) {
+        if (is(s, start, end, "PSK") || is(s, start, end, "PSK/SHA1")) return KEY_MGMT_PSK;
+        if (is(s, start, end, "EAP") || is(s, start, end, "EAP/SHA1")) return KEY_MGMT_EAP;
+        if (is(s, start, end, "SAE")) return KEY_MGMT_SAE;
+        if (is(s, start, end, "OWE")) return KEY_MGMT_OWE;
+        if (is(s, start, end, "OWE_TRANSITION")) return KEY_MGMT_OWE_TRANSITION;
+        if (is(s, start, end, "EAP_SUITE_B_192")) return KEY_MGMT_EAP_SUITE_B_192;
+        if (is(s, start, end, "FT/PSK")) return KEY_MGMT_FT_PSK;
+        if (is(s, start, end, "FT/EAP")) return KEY_MGMT_FT_EAP;
+        if (is(s, start, end, "FT/SAE")) return KEY_MGMT_FT_SAE;
+        if (is(s, start, end, "PSK-SHA256") || is(s, start, end, "PSK/SHA256")) return KEY_MGMT_PSK_SHA256;
+        if (is(s, start, end, "EAP-SHA256") || is(s, start, end, "EAP/SHA256")) return KEY_MGMT_EAP_SHA256;
+        if (is(s, start, end, "OSEN")) return KEY_MGMT_OSEN;
+        return 0;
+    }
+
+    private static int cipher(String s, int start, int end) {
+        if (is(s, start, end, "CCMP")) return CIPHER_CCMP;
+        if (is(s, start, end, "TKIP")) return CIPHER_TKIP;
+        if (is(s, start, end, "GCMP-256")) return CIPHER_GCMP_256;
+        if (is(s, start, end, "GCMP-128") || is(s, start, end, "GCMP")) return CIPHER_GCMP_128;
+        return 0;
+    }
+
+    private static int flag(String s, int start, int end) {
+        if (is(s, start, end, "ESS")) return FLAG_ESS;
+        if (is(s, start, end, "IBSS")) return FLAG_IBSS;
+        if (is(s, start, end, "WPS")) return FLAG_WPS;
+        if (is(s, start, end, "MFPC")) return FLAG_MFPC;
+        if (is(s, start, end, "MFPR")) return FLAG_MFPR;
+        return 0;
+    }
+}
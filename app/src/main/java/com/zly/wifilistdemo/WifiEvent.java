@@ -0,0 +1,83 @@
+package com.zly.wifilistdemo;
+
+import android.net.NetworkInfo;
+
+import java.util.List;
+
+/**
+ * 触发列表刷新的广播或回调
+ */
+public class WifiEvent {
+    public static final int TYPE_CONNECTIVITY = 1;
+    public static final int TYPE_SCAN_RESULTS = 1 << 1;
+    public static final int TYPE_CONFIGURED_NETWORKS = 1 << 2;
+    public static final int TYPE_LINK_CONFIGURATION = 1 << 3;
+    public static final int TYPE_NETWORK_STATE = 1 << 4;
+    public static final int TYPE_CAPABILITIES = 1 << 5;
+
+    public final int type;
+    /**
+     * NETWORK_STATE_CHANGED 广播带的网络状态，其余事件为 null
+     */
+    public final NetworkInfo networkInfo;
+
+    public WifiEvent(int type) {
+        this(type, null);
+    }
+
+    public WifiEvent(int type, NetworkInfo networkInfo) {
+        this.type = type;
+        this.networkInfo = networkInfo;
+    }
+
+    /**
+     * 一个去抖窗口内合并后的事件
+     */
+    public static class Batch {
+        /**
+         * 出现过的事件类型
+         */
+        public final int types;
+        /**
+         * 合并的事件个数
+         */
+        public final int count;
+        /**
+         * 最后一个非空的网络状态
+         */
+        public final NetworkInfo networkInfo;
+
+        Batch(int types, int count, NetworkInfo networkInfo) {
+            this.types = types;
+            this.count = count;
+            this.networkInfo = networkInfo;
+        }
+
+        static Batch of(List<WifiEvent> events) {
+            int types = 0;
+            NetworkInfo networkInfo = null;
+            for (WifiEvent event : events) {
+                types |= event.type;
+                if (event.networkInfo != null) {
+                    networkInfo = event.networkInfo;
+                }
+            }
+            return new Batch(types, events.size(), networkInfo);
+        }
+
+        /**
+         * 把 earlier 中的事件并入 later，earlier 为 null 时返回 later
+         */
+        static Batch merge(Batch earlier, Batch later) {
+            if (earlier == null) {
+                return later;
+            }
+            return new Batch(earlier.types | later.types, earlier.count + later.count,
+                    later.networkInfo != null ? later.networkInfo : earlier.networkInfo);
+        }
+
+        public boolean has(int type) {
+            return (types & type) != 0;
+        }
+    }
+}
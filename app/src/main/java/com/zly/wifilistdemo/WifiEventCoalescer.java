@@ -0,0 +1,112 @@
+package com.zly.wifilistdemo;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.functions.Function;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.Subject;
+
+/**
+ * 合并成串到达的广播
+ * <p>
+ * 连接过程中一秒内会收到十几个广播，这里把一个去抖窗口内的事件合并成一个 {@link WifiEvent.Batch}，
+ * 每个 Batch 只做一次重新计算；新的 Batch 到达时丢弃还没完成的旧计算。
+ * 事件一直不间断时，批次中第一个事件到达 maxWait 之后也会输出，避免界面长时间不更新。
+ */
+public class WifiEventCoalescer {
+    private final Subject<WifiEvent> events = PublishSubject.<WifiEvent>create().toSerialized();
+    private final long window;
+    private final long maxWait;
+    private final TimeUnit unit;
+    private final Scheduler scheduler;
+
+    private final AtomicLong receivedEventCount = new AtomicLong();
+    private final AtomicLong mergedEventCount = new AtomicLong();
+
+    /**
+     * 最长等待 4 个去抖窗口
+     */
+    public WifiEventCoalescer(long window, TimeUnit unit, Scheduler scheduler) {
+        this(window, window * 4, unit, scheduler);
+    }
+
+    /**
+     * @param window    去抖窗口，窗口内没有新事件时才输出
+     * @param maxWait   批次中第一个事件最多等待多久，不小于 window 才有意义
+     * @param unit      window 和 maxWait 的单位
+     * @param scheduler 计时用的 Scheduler
+     */
+    public WifiEventCoalescer(long window, long maxWait, TimeUnit unit, Scheduler scheduler) {
+        this.window = window;
+        this.maxWait = maxWait;
+        this.unit = unit;
+        this.scheduler = scheduler;
+    }
+
+    public void post(WifiEvent event) {
+        receivedEventCount.incrementAndGet();
+        events.onNext(event);
+    }
+
+    /**
+     * 去抖后的事件批次，去抖窗口结束或者等待达到 maxWait 时输出，以先到的为准
+     */
+    public Observable<WifiEvent.Batch> batches() {
+        // 每个批次结束后重新订阅边界，maxWait 从新批次的第一个事件开始计时
+        return events.publish(shared -> shared.buffer(() -> Observable.merge(
+                shared.debounce(window, unit, scheduler),
+                shared.take(1).delay(maxWait, unit, scheduler))
+                .take(1)))
+                .filter(list -> !list.isEmpty())
+                .map(list -> {
+                    mergedEventCount.addAndGet(list.size() - 1);
+                    return WifiEvent.Batch.of(list);
+                });
+    }
+
+    /**
+     * 在 workScheduler 上处理每个批次，只保留最新批次的结果
+     * <p>
+     * 还没开始处理就被新批次取消的批次，事件并入新批次一起处理，扫描结果等事件不会因为取消而丢失；
+     * 已经开始的处理会执行完，只丢弃结果。
+     * 单个批次处理失败只打印异常，不会结束整个事件流。
+     */
+    public <T> Observable<T> process(Function<WifiEvent.Batch, T> processor, Scheduler workScheduler) {
+        return Observable.defer(() -> {
+            AtomicReference<WifiEvent.Batch> unfinished = new AtomicReference<>();
+            return batches().switchMap(batch -> {
+                WifiEvent.Batch pending = WifiEvent.Batch.merge(unfinished.get(), batch);
+                unfinished.set(pending);
+                Observable<T> work = Observable.fromCallable(() -> {
+                    try {
+                        return processor.apply(pending);
+                    } finally {
+                        // 开始处理之后即使结果被丢弃，事件也已经处理过
+                        unfinished.compareAndSet(pending, null);
+                    }
+                });
+                return work.subscribeOn(workScheduler)
+                        .doOnError(Throwable::printStackTrace)
+                        .onErrorResumeNext(Observable.empty());
+            });
+        });
+    }
+
+    /**
+     * 收到的事件总数
+     */
+    public long getReceivedEventCount() {
+        return receivedEventCount.get();
+    }
+
+    /**
+     * 被合并掉、没有单独触发计算的事件数
+     */
+    public long getMergedEventCount() {
+        return mergedEventCount.get();
+    }
+}
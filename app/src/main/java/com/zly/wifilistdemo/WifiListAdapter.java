@@ -1,6 +1,11 @@
 package com.zly.wifilistdemo;
 
+import android.graphics.drawable.Drawable;
 import android.support.annotation.NonNull;
+import android.support.v7.recyclerview.extensions.AsyncDifferConfig;
+import android.support.v7.recyclerview.extensions.AsyncListDiffer;
+import android.support.v7.util.AdapterListUpdateCallback;
+import android.support.v7.util.ListUpdateCallback;
 import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -8,19 +13,51 @@ import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class WifiListAdapter extends RecyclerView.Adapter<WifiListAdapter.WifiViewHolder> {
-    private List<AccessPoint> list;
+    /**
+     * 上次保存的扫描结果显示为半透明
+     */
+    private static final float STALE_ALPHA = 0.5f;
+
+    /**
+     * 在后台线程计算新旧列表的差异，只通知真正变化的条目
+     */
+    private final AsyncListDiffer<AccessPointItem> differ;
+    /**
+     * 每个 key 第一次出现时分配的 id，只要这个 key 还在列表中就不变；
+     * 提交新快照时丢掉既不在当前列表也不在新快照中的 key
+     */
+    private final Map<String, Long> itemIds = new HashMap<>();
+    private long nextItemId;
     private OnItemClickListener itemClickListener;
+    private AccessPointSnapshot snapshot;
+
+    public WifiListAdapter(Metrics metrics) {
+        differ = new AsyncListDiffer<>(new MeasuredUpdateCallback(this, metrics),
+                new AsyncDifferConfig.Builder<>(AccessPointItem.DIFF_CALLBACK).build());
+        setHasStableIds(true);
+    }
 
     public interface OnItemClickListener {
         void onClick(AccessPoint accessPoint);
     }
 
-    public void setAccessPoints(List<AccessPoint> list) {
-        this.list = list;
-        notifyDataSetChanged();
+    /**
+     * 显示新的快照，比当前版本旧的快照直接丢弃
+     */
+    public void submitSnapshot(AccessPointSnapshot snapshot) {
+        if (snapshot.items == null || !snapshot.isNewerThan(this.snapshot)) {
+            return;
+        }
+        this.snapshot = snapshot;
+        pruneItemIds(snapshot.items);
+        differ.submitList(snapshot.items);
     }
 
     public void setItemClickListener(OnItemClickListener itemClickListener) {
@@ -30,47 +67,164 @@ public class WifiListAdapter extends RecyclerView.Adapter<WifiListAdapter.WifiVi
     @NonNull
     @Override
     public WifiViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        return new WifiViewHolder(LayoutInflater.from(parent.getContext()).inflate(R.layout.item_wifi, parent, false));
+        return new WifiViewHolder(LayoutInflater.from(parent.getContext()).inflate(R.layout.item_wifi, parent, false),
+                this);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull WifiViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (!payloads.isEmpty() && onlySignalLevel(payloads)) {
+            holder.ivSignal.setImageLevel(differ.getCurrentList().get(position).level);
+            return;
+        }
+        onBindViewHolder(holder, position);
     }
 
     @Override
     public void onBindViewHolder(@NonNull WifiViewHolder holder, int position) {
-        AccessPoint accessPoint = list.get(position);
-        holder.tvName.setText(accessPoint.ssid);
-        if (accessPoint.isSaved()) {
+        AccessPointItem item = differ.getCurrentList().get(position);
+        holder.tvName.setText(item.title);
+        if (item.status != null) {
             holder.tvState.setVisibility(View.VISIBLE);
-            holder.tvState.setText(accessPoint.getStatusSummary());
+            holder.tvState.setText(item.status);
         } else {
             holder.tvState.setVisibility(View.GONE);
         }
-        if (accessPoint.isSecured) {
-            holder.ivSignal.setImageResource(R.drawable.icon_wifi_signal_lock_level);
-        } else {
-            holder.ivSignal.setImageResource(R.drawable.icon_wifi_signal_level);
+        holder.ivSignal.setImageDrawable(holder.getIcon(item.secured));
+        holder.ivSignal.setImageLevel(item.level);
+        holder.itemView.setAlpha(item.stale ? STALE_ALPHA : 1f);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        String key = differ.getCurrentList().get(position).key;
+        Long id = itemIds.get(key);
+        if (id == null) {
+            id = nextItemId++;
+            itemIds.put(key, id);
+        }
+        return id;
+    }
+
+    /**
+     * 差异在后台计算，完成之前仍然显示当前列表，所以当前列表中的 key 也要保留
+     */
+    private void pruneItemIds(List<AccessPointItem> items) {
+        if (itemIds.isEmpty()) {
+            return;
+        }
+        List<AccessPointItem> current = differ.getCurrentList();
+        Set<String> keys = new HashSet<>(items.size() + current.size());
+        for (AccessPointItem item : items) {
+            keys.add(item.key);
         }
-        holder.ivSignal.setImageLevel(accessPoint.getSignalLevel());
-        holder.itemView.setOnClickListener(v -> {
-            if (itemClickListener != null) {
-                itemClickListener.onClick(accessPoint);
+        for (AccessPointItem item : current) {
+            keys.add(item.key);
+        }
+        itemIds.keySet().retainAll(keys);
+    }
+
+    private void onItemClick(int position) {
+        List<AccessPointItem> items = differ.getCurrentList();
+        // 点击时列表可能已经更新，位置无效时忽略
+        if (itemClickListener != null && position >= 0 && position < items.size()) {
+            itemClickListener.onClick(items.get(position).accessPoint);
+        }
+    }
+
+    private static boolean onlySignalLevel(List<Object> payloads) {
+        for (Object payload : payloads) {
+            if (payload != AccessPointItem.PAYLOAD_SIGNAL_LEVEL) {
+                return false;
             }
-        });
+        }
+        return true;
     }
 
     @Override
     public int getItemCount() {
-        return list == null ? 0 : list.size();
+        return differ.getCurrentList().size();
     }
 
-    static class WifiViewHolder extends RecyclerView.ViewHolder {
+    /**
+     * 通知 RecyclerView 的同时记录列表有变化，行绑定完成的时间由 LayoutManager 记录
+     */
+    private static class MeasuredUpdateCallback implements ListUpdateCallback {
+        private final ListUpdateCallback delegate;
+        private final Metrics metrics;
+
+        MeasuredUpdateCallback(RecyclerView.Adapter<?> adapter, Metrics metrics) {
+            this.delegate = new AdapterListUpdateCallback(adapter);
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            metrics.markRowsChanged();
+            delegate.onInserted(position, count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            metrics.markRowsChanged();
+            delegate.onRemoved(position, count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            metrics.markRowsChanged();
+            delegate.onMoved(fromPosition, toPosition);
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            metrics.markRowsChanged();
+            delegate.onChanged(position, count, payload);
+        }
+    }
+
+    /**
+     * 点击监听和信号图标在 ViewHolder 中只创建一次，绑定时不分配对象
+     */
+    static class WifiViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
         TextView tvName;
         TextView tvState;
         ImageView ivSignal;
+        private final WifiListAdapter adapter;
+        /**
+         * 每一行的信号强度不同，level-list 不能在行之间共用
+         */
+        private Drawable icon;
+        private Drawable lockIcon;
 
-        public WifiViewHolder(View itemView) {
+        public WifiViewHolder(View itemView, WifiListAdapter adapter) {
             super(itemView);
+            this.adapter = adapter;
             tvName = itemView.findViewById(R.id.tvName);
             tvState = itemView.findViewById(R.id.tvState);
             ivSignal = itemView.findViewById(R.id.ivSignal);
+            itemView.setOnClickListener(this);
+        }
+
+        Drawable getIcon(boolean secured) {
+            if (secured) {
+                if (lockIcon == null) {
+                    lockIcon = itemView.getContext().getDrawable(R.drawable.icon_wifi_signal_lock_level);
+                }
+                return lockIcon;
+            }
+            if (icon == null) {
+                icon = itemView.getContext().getDrawable(R.drawable.icon_wifi_signal_level);
+            }
+            return icon;
+        }
+
+        @Override
+        public void onClick(View v) {
+            int position = getAdapterPosition();
+            if (position != RecyclerView.NO_POSITION) {
+                adapter.onItemClick(position);
+            }
         }
     }
 }
@@ -0,0 +1,679 @@
+package com.zly.wifilistdemo;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkInfo;
+import android.net.NetworkRequest;
+import android.net.wifi.SupplicantState;
+import android.net.wifi.WifiConfiguration;
+import android.net.wifi.WifiInfo;
+import android.net.wifi.WifiManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.BehaviorSubject;
+import io.reactivex.subjects.Subject;
+
+/**
+ * 进程内共用的 Wi-Fi 状态
+ * <p>
+ * 扫描调度、广播接收和 NetworkCallback 都由这里持有，不随 Activity 重建。订阅 {@link #snapshots()}
+ * 时立即收到最新的列表；第一个订阅者到来时开始扫描和监听，最后一个订阅者离开后再等
+ * {@link Config#graceMillis}，期间没有新的订阅者才停止，旋转屏幕等配置变化不会重新注册和扫描。
+ * 多个界面同时订阅时共用同一个扫描循环。
+ */
+public class WifiRepository {
+    /**
+     * {@link #portalStatuses()} 中表示当前没有连接或者还没有探测结果
+     */
+    public static final int PORTAL_STATUS_NONE = -1;
+
+    private static WifiRepository instance;
+
+    public static class Config {
+        public static final Config DEFAULT = new Config(5000, 250, 1000, TimeUnit.DAYS.toMillis(1));
+
+        /**
+         * 最后一个订阅者离开后等待多久才停止
+         */
+        public final long graceMillis;
+        /**
+         * 广播去抖窗口
+         */
+        public final long debounceMillis;
+        /**
+         * 广播不间断时，最多等待多久就重新计算一次
+         */
+        public final long maxBatchDelayMillis;
+        /**
+         * 超过这个时间的扫描结果不再用于冷启动显示
+         */
+        public final long savedScanMaxAgeMillis;
+
+        public Config(long graceMillis, long debounceMillis, long maxBatchDelayMillis, long savedScanMaxAgeMillis) {
+            this.graceMillis = graceMillis;
+            this.debounceMillis = debounceMillis;
+            this.maxBatchDelayMillis = maxBatchDelayMillis;
+            this.savedScanMaxAgeMillis = savedScanMaxAgeMillis;
+        }
+    }
+
+    /**
+     * 注册广播和 NetworkCallback，收到的事件交给 {@link WifiRepository} 的 on* 方法
+     */
+    public interface Registration {
+        void register(WifiRepository repository);
+
+        void unregister();
+    }
+
+    private final Metrics metrics = Metrics.get();
+    private final Registration registration;
+    private final ScanSnapshotStore snapshotStore;
+    /**
+     * 单独的线程保存扫描结果，不随扫描的订阅取消而中断，也不占用扫描到显示的时间
+     */
+    private final Scheduler snapshotWriter;
+    private final PortalResultCache portalResultCache;
+    private final StatusTextTable statusTexts;
+    private final Config config;
+    private final Scheduler clock;
+    private final Scheduler workScheduler;
+    private final AccessPointMerger accessPointMerger;
+    private final WifiEventCoalescer eventCoalescer;
+    private final ScanScheduler scanScheduler;
+
+    private WifiSystem wifiSystem;
+    private TraceRecorder traceRecorder;
+    private SavedNetworkIndex savedNetworkIndex;
+    private ScanPipeline scanPipeline;
+    private ConnectionManager connectionManager;
+
+    private final BehaviorSubject<AccessPointSnapshot> snapshots = BehaviorSubject.create();
+    private final Subject<Integer> portalStatuses =
+            BehaviorSubject.createDefault(PORTAL_STATUS_NONE).toSerialized();
+    private final Subject<ConnectionManager.Attempt> connectionAttempts =
+            BehaviorSubject.<ConnectionManager.Attempt>create().toSerialized();
+
+    private int subscriberCount;
+    private boolean running;
+    private boolean started;
+    private boolean restoreEnabled = true;
+    private Disposable pendingStop;
+    private Disposable accessPointUpdates;
+    private Disposable restoreAccessPoints;
+    private Disposable portalCheck;
+
+    private volatile Network currentNetwork;
+    private int lastPortalNetworkId = AccessPoint.INVALID_NETWORK_ID;
+    /**
+     * 正在检查的网络，系统报告通过验证后把结果写入缓存，每次连接只写一次
+     */
+    private String portalBssid;
+    private String portalSsid;
+
+    /**
+     * @param snapshotStore     为 null 时不保存和恢复扫描结果
+     * @param portalResultCache 为 null 时不检查 Captive Portal
+     * @param clock             计时用的 Scheduler
+     * @param workScheduler     扫描和处理广播的 Scheduler
+     */
+    public WifiRepository(Context context, WifiSystem wifiSystem, Registration registration,
+                          ScanSnapshotStore snapshotStore, PortalResultCache portalResultCache,
+                          StatusTextTable statusTexts, Config config, Scheduler clock, Scheduler workScheduler) {
+        this.registration = registration;
+        this.snapshotStore = snapshotStore;
+        this.snapshotWriter = snapshotStore == null ? null
+                : Schedulers.from(Executors.newSingleThreadExecutor());
+        this.portalResultCache = portalResultCache;
+        if (portalResultCache != null) {
+            metrics.register("portal cache hits", portalResultCache::getHitCount);
+            metrics.register("portal cache stale hits", portalResultCache::getStaleHitCount);
+            metrics.register("portal cache misses", portalResultCache::getMissCount);
+        }
+        this.statusTexts = statusTexts;
+        this.config = config;
+        this.clock = clock;
+        this.workScheduler = workScheduler;
+        this.accessPointMerger = new AccessPointMerger(context);
+        metrics.register("suppressed reorders", accessPointMerger::getSuppressedReorderCount);
+        this.eventCoalescer = new WifiEventCoalescer(config.debounceMillis, config.maxBatchDelayMillis,
+                TimeUnit.MILLISECONDS, clock);
+        metrics.register("merged events", eventCoalescer::getMergedEventCount);
+        this.scanScheduler = new AdaptiveScanScheduler(this::startScan, workScheduler,
+                AdaptiveScanScheduler.Config.DEFAULT);
+        setWifiSystem(wifiSystem);
+    }
+
+    /**
+     * 进程内共用的实例，设备不支持 Wi-Fi 时返回 null
+     */
+    public static synchronized WifiRepository get(Context context) {
+        if (instance == null) {
+            Context appContext = context.getApplicationContext();
+            WifiManager wifiManager = (WifiManager) appContext.getSystemService(Context.WIFI_SERVICE);
+            if (wifiManager == null) {
+                return null;
+            }
+            instance = new WifiRepository(appContext,
+                    new AndroidWifiSystem(appContext, wifiManager, Metrics.get()),
+                    new AndroidRegistration(appContext),
+                    new ScanSnapshotStore(new File(appContext.getFilesDir(), "last_scan")),
+                    new PortalResultCache(new File(appContext.getFilesDir(), "portal_results"),
+                            PortalResultCache.Config.DEFAULT, Schedulers.io()),
+                    new StatusTextTable(appContext),
+                    Config.DEFAULT, Schedulers.computation(), Schedulers.io());
+        }
+        return instance;
+    }
+
+    private void setWifiSystem(WifiSystem wifiSystem) {
+        this.wifiSystem = wifiSystem;
+        this.savedNetworkIndex = new SavedNetworkIndex(wifiSystem);
+        this.scanPipeline = new ScanPipeline(wifiSystem, accessPointMerger, savedNetworkIndex);
+        this.connectionManager = new ConnectionManager(wifiSystem, savedNetworkIndex,
+                ConnectionManager.Config.DEFAULT, clock, metrics);
+        connectionManager.setListener(this::onAttemptChanged);
+    }
+
+    /**
+     * 把之后的广播和查询结果记录到 file，停止时结束记录；只能在第一次开始之前调用
+     *
+     * @return 已经开始过或者已经在记录时返回 false
+     */
+    public synchronized boolean recordTrace(File file) throws IOException {
+        if (started || traceRecorder != null) {
+            return false;
+        }
+        WifiTrace.Writer writer = new WifiTrace.Writer(file, System.currentTimeMillis(),
+                workScheduler.now(TimeUnit.MILLISECONDS));
+        traceRecorder = new TraceRecorder(wifiSystem, writer, workScheduler);
+        setWifiSystem(traceRecorder);
+        return true;
+    }
+
+    /**
+     * 是否在第一次扫描完成之前先显示上次保存的结果，默认显示；只在开始之前设置有效，
+     * 用于对比两种情况下显示出第一行的时间
+     */
+    public synchronized void setRestoreEnabled(boolean restoreEnabled) {
+        this.restoreEnabled = restoreEnabled;
+    }
+
+    public synchronized boolean isRestoreEnabled() {
+        return restoreEnabled;
+    }
+
+    /**
+     * 最新的列表，订阅时立即收到当前的快照（如果有），之后每次变化收到新的快照
+     * <p>
+     * 在 workScheduler 上发出，订阅期间保持扫描和监听。处理不过来时只保留最新的一个快照，
+     * 中间的快照直接丢弃；切换线程时用 observeOn(scheduler, false, 1)，避免在缓冲区里积压旧快照。
+     * 多个订阅者共用同一份扫描结果，不会各自查询 WifiManager。
+     */
+    public Flowable<AccessPointSnapshot> snapshots() {
+        return snapshots.toFlowable(BackpressureStrategy.LATEST)
+                .doOnSubscribe(subscription -> acquire())
+                .doFinally(this::release);
+    }
+
+    /**
+     * 和 {@link #snapshots()} 相同，但发出的是相对于这个订阅者上一次收到的快照的变化，
+     * 第一个变化相对于空列表。丢弃了中间快照时，变化也会合并在下一个里，不会遗漏。
+     */
+    public Flowable<AccessPointMerger.Delta> deltas() {
+        return Flowable.defer(() -> {
+            AccessPointSnapshot[] previous = {AccessPointSnapshot.EMPTY};
+            return snapshots().map(snapshot -> {
+                AccessPointMerger.Delta delta = AccessPointMerger.Delta.between(previous[0], snapshot);
+                previous[0] = snapshot;
+                return delta;
+            });
+        });
+    }
+
+    /**
+     * 当前连接的网络的 Captive Portal 探测结果，PortalProbe.RESULT_*
+     * <p>
+     * 订阅时立即收到最近的结果，界面在旋转等重建期间不会错过；断开或停止后为 {@link #PORTAL_STATUS_NONE}。
+     */
+    public Observable<Integer> portalStatuses() {
+        return portalStatuses.distinctUntilChanged();
+    }
+
+    /**
+     * 连接尝试的每次状态变化，订阅时先收到还没结束的尝试的最近状态，已经结束的尝试不再重复发出
+     */
+    public Observable<ConnectionManager.Attempt> connectionAttempts() {
+        return Observable.defer(() -> {
+            ConnectionManager.Attempt last = connectionManager.getAttempt();
+            if (last == null || !last.isFinished()) {
+                return connectionAttempts;
+            }
+            return connectionAttempts.filter(attempt -> attempt.id != last.id);
+        });
+    }
+
+    /**
+     * 当前订阅 {@link #snapshots()} 和 {@link #deltas()} 的个数
+     */
+    public synchronized int getSubscriberCount() {
+        return subscriberCount;
+    }
+
+    /**
+     * 用户操作界面时调用，扫描间隔恢复到最短
+     */
+    public void onUserInteraction() {
+        scanScheduler.onUserInteraction();
+    }
+
+    /**
+     * 已保存的网络直接使用原来的配置，之后的进度从 {@link #connectionAttempts()} 获得
+     *
+     * @param password 用户输入的密码，没有输入时为 null
+     */
+    public ConnectionManager.Attempt connect(AccessPoint accessPoint, String password) {
+        return connectionManager.connect(accessPoint, password);
+    }
+
+    /**
+     * @return 是否取消保存成功
+     */
+    public boolean forget(AccessPoint accessPoint) {
+        boolean result = wifiSystem.removeNetwork(accessPoint.wifiConfiguration.networkId);
+        savedNetworkIndex.invalidate();
+        return result;
+    }
+
+    private synchronized void acquire() {
+        subscriberCount++;
+        if (pendingStop != null) {
+            pendingStop.dispose();
+            pendingStop = null;
+        }
+        if (!running) {
+            start();
+        }
+    }
+
+    private synchronized void release() {
+        subscriberCount--;
+        if (subscriberCount == 0 && running) {
+            pendingStop = clock.scheduleDirect(this::stopIfUnused, config.graceMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void stopIfUnused() {
+        pendingStop = null;
+        if (subscriberCount == 0 && running) {
+            stop();
+        }
+    }
+
+    private void start() {
+        running = true;
+        started = true;
+        wifiSystem.setWifiEnabled(true);
+        scanPipeline.start();
+        scanScheduler.start();
+        if (snapshotStore != null && restoreEnabled && snapshots.getValue() == null) {
+            // 第一次扫描完成之前先显示上次保存的结果
+            restoreAccessPoints = Maybe.fromCallable(this::restoreAccessPoints)
+                    .subscribeOn(workScheduler)
+                    .subscribe(this::publish, Throwable::printStackTrace);
+        }
+        accessPointUpdates = eventCoalescer.process(this::updateAccessPoints, workScheduler)
+                .subscribe(this::publish);
+        registration.register(this);
+    }
+
+    private void stop() {
+        running = false;
+        registration.unregister();
+        scanScheduler.stop();
+        if (restoreAccessPoints != null) {
+            restoreAccessPoints.dispose();
+            restoreAccessPoints = null;
+        }
+        accessPointUpdates.dispose();
+        accessPointUpdates = null;
+        resetPortalCheck();
+        if (traceRecorder != null) {
+            traceRecorder.close();
+        }
+    }
+
+    /**
+     * 保存的结果和扫描结果可能在不同线程上算出，只发出比当前新的快照
+     */
+    private void publish(AccessPointSnapshot snapshot) {
+        synchronized (snapshots) {
+            AccessPointSnapshot current = snapshots.getValue();
+            if (current == null || snapshot.isNewerThan(current)) {
+                snapshots.onNext(snapshot);
+            }
+        }
+    }
+
+    private void startScan() {
+        metrics.markScanRequested();
+        wifiSystem.startScan();
+    }
+
+    void onEvent(WifiEvent event) {
+        TraceRecorder recorder = traceRecorder;
+        if (recorder != null) {
+            recorder.recordEvent(event);
+        }
+        eventCoalescer.post(event);
+    }
+
+    void onPasswordError() {
+        if (connectionManager.onAuthenticationError()) {
+            // 由 onAttemptChanged 标记对应的条目
+            return;
+        }
+        // 不是从这里发起的连接，例如系统自动重连，按当前连接的配置找到条目
+        WifiConfiguration wifiConfiguration = scanPipeline.getWifiConfiguration();
+        if (wifiConfiguration != null) {
+            markPasswordError(AccessPoint.getKey(SsidTable.get().internQuoted(wifiConfiguration.SSID).raw,
+                    AccessPoint.getSecurity(wifiConfiguration)));
+        }
+    }
+
+    /**
+     * @param state     ConnectionManager.STATE_*
+     * @param networkId 广播中带的 networkId，不知道时为 INVALID_NETWORK_ID
+     */
+    void onConnectionProgress(int state, int networkId) {
+        connectionManager.onProgress(state, networkId);
+    }
+
+    void onDisconnected() {
+        connectionManager.onDisconnected();
+    }
+
+    private void onAttemptChanged(ConnectionManager.Attempt attempt) {
+        connectionAttempts.onNext(attempt);
+        if (attempt.failure == ConnectionManager.FAILURE_AUTHENTICATION) {
+            markPasswordError(attempt.key);
+        }
+    }
+
+    /**
+     * 在 workScheduler 上标记条目并发布新的快照
+     */
+    private void markPasswordError(String key) {
+        Maybe.fromCallable(() -> {
+            AccessPointMerger.Delta delta = accessPointMerger.markPasswordError(key);
+            return delta == null ? null : withItems(delta.getSnapshot(), scanPipeline.isValidated());
+        }).subscribeOn(workScheduler).subscribe(this::publish, Throwable::printStackTrace);
+    }
+
+    void onNetworkAvailable(Network network) {
+        currentNetwork = network;
+        // 扫描流水线可能还没处理新网络的广播，直接查询当前连接，避免用旧网络的 BSSID 记录探测结果
+        checkPortal(network, wifiSystem.getConnectionInfo());
+    }
+
+    void onNetworkCapabilitiesChanged(Network network, boolean validated) {
+        if (network.equals(currentNetwork)) {
+            onEvent(new WifiEvent(WifiEvent.TYPE_CAPABILITIES));
+            if (validated) {
+                connectionManager.onValidated();
+                onPortalValidated();
+            }
+        }
+    }
+
+    /**
+     * 系统确认当前网络可以上网，例如用户已经在 Captive Portal 登录，覆盖缓存中需要登录的结果
+     */
+    private synchronized void onPortalValidated() {
+        if (portalBssid == null) {
+            return;
+        }
+        if (portalCheck != null) {
+            portalCheck.dispose();
+            portalCheck = null;
+        }
+        portalResultCache.put(portalBssid, portalSsid, PortalProbe.RESULT_VALIDATED);
+        portalBssid = null;
+        portalSsid = null;
+        portalStatuses.onNext(PortalProbe.RESULT_VALIDATED);
+    }
+
+    /**
+     * 读取上次保存的扫描结果，在 workScheduler 上运行
+     *
+     * @return 标记为过时的快照，没有保存过、已经过期或者已经有扫描结果时返回 null
+     */
+    private AccessPointSnapshot restoreAccessPoints() {
+        ScanSnapshotStore.Saved saved = snapshotStore.read();
+        if (saved == null || System.currentTimeMillis() - saved.savedAt > config.savedScanMaxAgeMillis) {
+            return null;
+        }
+        AccessPointMerger.Delta delta = accessPointMerger.restore(saved.records, savedNetworkIndex);
+        if (delta == null) {
+            return null;
+        }
+        AccessPointSnapshot snapshot = delta.getSnapshot();
+        return snapshot.withItems(AccessPointItem.fromList(snapshot.accessPoints, statusTexts, true, true));
+    }
+
+    /**
+     * 处理去抖合并后的一批事件，在 workScheduler 上运行
+     */
+    private AccessPointSnapshot updateAccessPoints(WifiEvent.Batch batch) {
+        long start = System.nanoTime();
+        AccessPointMerger.Delta delta = scanPipeline.process(batch);
+        metrics.record(Metrics.HISTOGRAM_PROCESS, System.nanoTime() - start);
+        if (batch.has(WifiEvent.TYPE_NETWORK_STATE | WifiEvent.TYPE_CAPABILITIES)) {
+            WifiInfo wifiInfo = scanPipeline.getWifiInfo();
+            if (wifiInfo == null || wifiInfo.getNetworkId() == AccessPoint.INVALID_NETWORK_ID) {
+                // 表示没有 wifi 连接，之前的探测结果不再有效
+                resetPortalCheck();
+            }
+        }
+        if (batch.has(WifiEvent.TYPE_SCAN_RESULTS)) {
+            scanScheduler.onScanResults(delta.added.size() + delta.removed.size() + delta.moved.size());
+            if (snapshotStore != null) {
+                saveAccessPoints(delta.getAccessPoints(), System.currentTimeMillis());
+            }
+        }
+        // 只在已连接时查询一次网络验证状态，所有行共用
+        AccessPointSnapshot snapshot = withItems(delta.getSnapshot(), scanPipeline.isValidated());
+        // 合并时只为新增和变化的条目生成副本
+        metrics.record(Metrics.HISTOGRAM_ALLOCATIONS,
+                delta.added.size() + delta.updated.size() + snapshot.items.size());
+        metrics.markMerged(batch.has(WifiEvent.TYPE_SCAN_RESULTS));
+        return snapshot;
+    }
+
+    /**
+     * 在 snapshotWriter 上保存，accessPoints 是冻结的副本，可以在其他线程读取
+     */
+    private void saveAccessPoints(List<AccessPoint> accessPoints, long savedAt) {
+        snapshotWriter.scheduleDirect(() -> {
+            try {
+                snapshotStore.write(accessPoints, savedAt);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    private AccessPointSnapshot withItems(AccessPointSnapshot snapshot, boolean validated) {
+        return snapshot.withItems(AccessPointItem.fromList(snapshot.accessPoints, statusTexts, validated));
+    }
+
+    /**
+     * 取消正在进行的探测，清除最近的结果
+     */
+    private synchronized void resetPortalCheck() {
+        if (portalCheck != null) {
+            portalCheck.dispose();
+            portalCheck = null;
+        }
+        lastPortalNetworkId = AccessPoint.INVALID_NETWORK_ID;
+        portalBssid = null;
+        portalSsid = null;
+        portalStatuses.onNext(PORTAL_STATUS_NONE);
+    }
+
+    private synchronized void checkPortal(Network network, WifiInfo wifiInfo) {
+        if (!running || portalResultCache == null || wifiInfo == null
+                || wifiInfo.getNetworkId() == AccessPoint.INVALID_NETWORK_ID
+                || wifiInfo.getNetworkId() == lastPortalNetworkId) {
+            return;
+        }
+        lastPortalNetworkId = wifiInfo.getNetworkId();
+        if (portalCheck != null) {
+            portalCheck.dispose();
+        }
+        String bssid = wifiInfo.getBSSID();
+        String ssid = AccessPoint.removeDoubleQuotes(wifiInfo.getSSID());
+        portalBssid = bssid;
+        portalSsid = ssid;
+        // 使用当前的网络打开链接
+        PortalProbe probe = new PortalProbe(network::openConnection, PortalProbe.Config.DEFAULT, workScheduler);
+        // 先发出缓存的结果，过期时在后台重新探测
+        portalCheck = portalResultCache.check(bssid, ssid, probe.probe())
+                .subscribeOn(workScheduler)
+                .subscribe(portalStatuses::onNext, Throwable::printStackTrace);
+    }
+
+    /**
+     * 注册系统广播和 Wi-Fi 的 NetworkCallback
+     */
+    private static class AndroidRegistration implements Registration {
+        private final Context context;
+        private final Metrics metrics = Metrics.get();
+        private WifiRepository repository;
+
+        AndroidRegistration(Context context) {
+            this.context = context;
+        }
+
+        @Override
+        public void register(WifiRepository repository) {
+            this.repository = repository;
+            IntentFilter filter = new IntentFilter();
+            filter.addAction(ConnectivityManager.CONNECTIVITY_ACTION);
+            filter.addAction(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION);
+            filter.addAction("android.net.wifi.CONFIGURED_NETWORKS_CHANGE");
+            filter.addAction("android.net.wifi.LINK_CONFIGURATION_CHANGED");
+            filter.addAction(WifiManager.NETWORK_STATE_CHANGED_ACTION);
+            filter.addAction(WifiManager.SUPPLICANT_STATE_CHANGED_ACTION);
+            context.registerReceiver(broadcastReceiver, filter);
+            ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+            if (cm != null) {
+                NetworkRequest.Builder request = new NetworkRequest.Builder()
+                        .addTransportType(NetworkCapabilities.TRANSPORT_WIFI);
+                cm.registerNetworkCallback(request.build(), callback);
+            }
+        }
+
+        @Override
+        public void unregister() {
+            context.unregisterReceiver(broadcastReceiver);
+            ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+            if (cm != null) {
+                cm.unregisterNetworkCallback(callback);
+            }
+        }
+
+        private final BroadcastReceiver broadcastReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                String action = intent.getAction();
+                if (action != null) {
+                    switch (action) {
+                        case ConnectivityManager.CONNECTIVITY_ACTION:
+                            metrics.increment(Metrics.COUNTER_BROADCAST_CONNECTIVITY);
+                            repository.onEvent(new WifiEvent(WifiEvent.TYPE_CONNECTIVITY));
+                            break;
+                        case WifiManager.SCAN_RESULTS_AVAILABLE_ACTION:
+                            metrics.increment(Metrics.COUNTER_BROADCAST_SCAN_RESULTS);
+                            metrics.markScanResults();
+                            repository.onEvent(new WifiEvent(WifiEvent.TYPE_SCAN_RESULTS));
+                            break;
+                        case "android.net.wifi.LINK_CONFIGURATION_CHANGED":
+                            metrics.increment(Metrics.COUNTER_BROADCAST_LINK_CONFIGURATION);
+                            repository.onEvent(new WifiEvent(WifiEvent.TYPE_LINK_CONFIGURATION));
+                            break;
+                        case "android.net.wifi.CONFIGURED_NETWORKS_CHANGE":
+                            metrics.increment(Metrics.COUNTER_BROADCAST_CONFIGURED_NETWORKS);
+                            repository.onEvent(new WifiEvent(WifiEvent.TYPE_CONFIGURED_NETWORKS));
+                            break;
+                        case WifiManager.NETWORK_STATE_CHANGED_ACTION:
+                            metrics.increment(Metrics.COUNTER_BROADCAST_NETWORK_STATE);
+                            NetworkInfo info = intent.getParcelableExtra(WifiManager.EXTRA_NETWORK_INFO);
+                            onNetworkState(intent, info);
+                            repository.onEvent(new WifiEvent(WifiEvent.TYPE_NETWORK_STATE, info));
+                            break;
+                        case WifiManager.SUPPLICANT_STATE_CHANGED_ACTION:
+                            metrics.increment(Metrics.COUNTER_BROADCAST_SUPPLICANT_STATE);
+                            int error = intent.getIntExtra(WifiManager.EXTRA_SUPPLICANT_ERROR, -1);
+                            if (error == WifiManager.ERROR_AUTHENTICATING) {
+                                repository.onPasswordError();
+                            } else {
+                                SupplicantState state = intent.getParcelableExtra(WifiManager.EXTRA_NEW_STATE);
+                                repository.onConnectionProgress(ConnectionManager.stateOf(state),
+                                        AccessPoint.INVALID_NETWORK_ID);
+                            }
+                            break;
+                    }
+                }
+            }
+        };
+
+        private void onNetworkState(Intent intent, NetworkInfo info) {
+            if (info == null) {
+                return;
+            }
+            if (info.getDetailedState() == NetworkInfo.DetailedState.DISCONNECTED
+                    || info.getDetailedState() == NetworkInfo.DetailedState.FAILED) {
+                repository.onDisconnected();
+                return;
+            }
+            WifiInfo wifiInfo = intent.getParcelableExtra(WifiManager.EXTRA_WIFI_INFO);
+            repository.onConnectionProgress(ConnectionManager.stateOf(info.getDetailedState()),
+                    wifiInfo == null ? AccessPoint.INVALID_NETWORK_ID : wifiInfo.getNetworkId());
+        }
+
+        private final ConnectivityManager.NetworkCallback callback = new ConnectivityManager.NetworkCallback() {
+
+            @Override
+            public void onAvailable(Network network) {
+                super.onAvailable(network);
+                repository.onNetworkAvailable(network);
+            }
+
+            @Override
+            public void onCapabilitiesChanged(Network network, NetworkCapabilities networkCapabilities) {
+                super.onCapabilitiesChanged(network, networkCapabilities);
+                metrics.increment(Metrics.COUNTER_CAPABILITIES_CHANGED);
+                repository.onNetworkCapabilitiesChanged(network,
+                        networkCapabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED));
+            }
+        };
+    }
+}
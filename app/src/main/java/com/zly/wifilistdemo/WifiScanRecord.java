@@ -0,0 +1,80 @@
+package com.zly.wifilistdemo;
+
+import android.net.wifi.ScanResult;
+
+/**
+ * 单条扫描结果，只保留列表需要的字段，便于在 JVM 上构造和比较
+ */
+public class WifiScanRecord {
+    /**
+     * packBssid() 无法解析时的返回值
+     */
+    static final long NO_BSSID = -1;
+
+    public final String ssid;
+    public final String bssid;
+    public final String capabilities;
+    public final int level;
+    public final int frequency;
+
+    public WifiScanRecord(String ssid, String bssid, String capabilities, int level, int frequency) {
+        this.ssid = ssid;
+        this.bssid = bssid;
+        this.capabilities = capabilities == null ? "" : capabilities;
+        this.level = level;
+        this.frequency = frequency;
+    }
+
+    /**
+     * 返回信号强度替换为 level 的副本
+     */
+    public WifiScanRecord withLevel(int level) {
+        return level == this.level ? this : new WifiScanRecord(ssid, bssid, capabilities, level, frequency);
+    }
+
+    public static WifiScanRecord from(ScanResult result) {
+        return new WifiScanRecord(result.SSID, result.BSSID, result.capabilities, result.level, result.frequency);
+    }
+
+    /**
+     * 把 "aa:bb:cc:dd:ee:ff" 压成 48 位整数，格式不对时返回 NO_BSSID
+     */
+    static long packBssid(String bssid) {
+        if (bssid == null || bssid.length() != 17) {
+            return NO_BSSID;
+        }
+        long packed = 0;
+        for (int i = 0; i < 17; i++) {
+            char c = bssid.charAt(i);
+            if (i % 3 == 2) {
+                if (c != ':') {
+                    return NO_BSSID;
+                }
+                continue;
+            }
+            int digit = Character.digit(c, 16);
+            if (digit < 0) {
+                return NO_BSSID;
+            }
+            packed = (packed << 4) | digit;
+        }
+        return packed;
+    }
+
+    static String unpackBssid(long packed) {
+        if (packed == NO_BSSID) {
+            return null;
+        }
+        char[] chars = new char[17];
+        for (int i = 5; i >= 0; i--) {
+            int b = (int) (packed & 0xff);
+            packed >>>= 8;
+            chars[i * 3] = Character.forDigit(b >>> 4, 16);
+            chars[i * 3 + 1] = Character.forDigit(b & 0xf, 16);
+            if (i < 5) {
+                chars[i * 3 + 2] = ':';
+            }
+        }
+        return new String(chars);
+    }
+}
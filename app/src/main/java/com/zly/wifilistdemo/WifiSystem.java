@@ -0,0 +1,52 @@
+package com.zly.wifilistdemo;
+
+import android.net.NetworkInfo;
+import android.net.wifi.WifiConfiguration;
+import android.net.wifi.WifiInfo;
+
+import java.util.List;
+
+/**
+ * 列表用到的系统服务
+ * <p>
+ * 真机上由 {@link AndroidWifiSystem} 实现；{@link TraceRecorder} 包装它记录调用结果，
+ * benchmark 模块中的 TraceReplayer 在 JVM 上用记录的结果代替系统服务。
+ */
+public interface WifiSystem {
+
+    /**
+     * WifiManager.getScanResults()，转换为 {@link WifiScanRecord}
+     */
+    List<WifiScanRecord> getScanResults();
+
+    List<WifiConfiguration> getConfiguredNetworks();
+
+    WifiInfo getConnectionInfo();
+
+    /**
+     * ConnectivityManager.getActiveNetworkInfo()
+     */
+    NetworkInfo getActiveNetworkInfo();
+
+    /**
+     * 当前连接的 wifi 是否已通过验证
+     */
+    boolean isCurrentNetworkValidated();
+
+    boolean startScan();
+
+    boolean setWifiEnabled(boolean enabled);
+
+    int addNetwork(WifiConfiguration config);
+
+    /**
+     * 修改 config.networkId 对应的已保存配置，例如换一个密码
+     *
+     * @return 失败时返回 {@link AccessPoint#INVALID_NETWORK_ID}
+     */
+    int updateNetwork(WifiConfiguration config);
+
+    boolean enableNetwork(int networkId, boolean attemptConnect);
+
+    boolean removeNetwork(int networkId);
+}
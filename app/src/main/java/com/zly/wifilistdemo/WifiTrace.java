@@ -0,0 +1,393 @@
+package com.zly.wifilistdemo;
+
+import android.net.NetworkInfo;
+import android.net.wifi.WifiConfiguration;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 扫描轨迹文件：按时间顺序记录广播事件和系统服务的返回值
+ * <p>
+ * 文件格式：文件头（magic、版本、开始记录时的系统时间），之后是连续的记录。每条记录为
+ * 类型（1 字节）、与上一条记录的时间差（毫秒，变长整数）和内容。字符串在第一次出现时写入，
+ * 之后只写编号；BSSID 压成 6 字节，信号强度 1 字节，频率 2 字节。
+ * 不记录密码等敏感内容，WEP 网络只记录是否设置了密钥。
+ */
+public final class WifiTrace {
+    static final int MAGIC = 0x57545243;
+    static final int VERSION = 1;
+
+    public static final int TYPE_EVENT = 1;
+    public static final int TYPE_SCAN_RESULTS = 2;
+    public static final int TYPE_CONFIGURED_NETWORKS = 3;
+    public static final int TYPE_CONNECTION_INFO = 4;
+    public static final int TYPE_NETWORK_INFO = 5;
+
+    /**
+     * 没有网络状态
+     */
+    public static final int NO_STATE = -1;
+
+    /**
+     * 6 字节中表示无法解析的 BSSID，对应广播地址，不会是真实的 BSSID
+     */
+    private static final long NO_BSSID = 0xffffffffffffL;
+
+    private WifiTrace() {
+    }
+
+    static int stateOf(NetworkInfo networkInfo) {
+        NetworkInfo.DetailedState state = networkInfo == null ? null : networkInfo.getDetailedState();
+        return state == null ? NO_STATE : state.ordinal();
+    }
+
+    /**
+     * 记录中的状态编号转回 DetailedState，NO_STATE 或未知编号返回 null
+     */
+    public static NetworkInfo.DetailedState detailedState(int state) {
+        NetworkInfo.DetailedState[] states = NetworkInfo.DetailedState.values();
+        return states != null && state >= 0 && state < states.length ? states[state] : null;
+    }
+
+    /**
+     * 记录的连接信息，对应 WifiInfo 中列表用到的字段
+     */
+    public static final class Connection {
+        public final int networkId;
+        /**
+         * 与 WifiInfo.getSSID() 相同，带引号
+         */
+        public final String ssid;
+        public final String bssid;
+        public final int rssi;
+
+        public Connection(int networkId, String ssid, String bssid, int rssi) {
+            this.networkId = networkId;
+            this.ssid = ssid;
+            this.bssid = bssid;
+            this.rssi = rssi;
+        }
+    }
+
+    /**
+     * 读出的一条记录，只有和 type 对应的字段有值
+     */
+    public static final class Record {
+        public final int type;
+        /**
+         * 距开始记录的毫秒数
+         */
+        public final long time;
+        /**
+         * TYPE_EVENT：{@link WifiEvent} 的类型
+         */
+        public final int eventType;
+        /**
+         * TYPE_EVENT 和 TYPE_NETWORK_INFO：DetailedState 的编号，没有时为 {@link #NO_STATE}
+         */
+        public final int state;
+        public final List<WifiScanRecord> scanRecords;
+        public final List<WifiConfiguration> configurations;
+        /**
+         * TYPE_CONNECTION_INFO：没有连接信息时为 null
+         */
+        public final Connection connection;
+
+        Record(int type, long time, int eventType, int state, List<WifiScanRecord> scanRecords,
+               List<WifiConfiguration> configurations, Connection connection) {
+            this.type = type;
+            this.time = time;
+            this.eventType = eventType;
+            this.state = state;
+            this.scanRecords = scanRecords;
+            this.configurations = configurations;
+            this.connection = connection;
+        }
+    }
+
+    /**
+     * 写入轨迹文件，可以在多个线程调用
+     */
+    public static final class Writer implements Closeable {
+        private final DataOutputStream out;
+        private final Map<String, Integer> strings = new HashMap<>();
+        private long lastTime;
+
+        /**
+         * @param startedAt 开始记录时的系统时间，只写入文件头
+         * @param time      开始记录时的单调时间（毫秒），之后每条记录的时间都基于同一个时钟
+         */
+        public Writer(File file, long startedAt, long time) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(startedAt);
+            lastTime = time;
+        }
+
+        public synchronized void writeEvent(long time, WifiEvent event) throws IOException {
+            writeHeader(TYPE_EVENT, time);
+            writeVarInt(event.type);
+            out.writeByte(stateOf(event.networkInfo));
+        }
+
+        public synchronized void writeScanResults(long time, List<WifiScanRecord> records) throws IOException {
+            writeHeader(TYPE_SCAN_RESULTS, time);
+            writeCount(records);
+            if (records != null) {
+                for (WifiScanRecord record : records) {
+                    writeString(record.ssid);
+                    writeBssid(record.bssid);
+                    writeString(record.capabilities);
+                    out.writeByte(record.level);
+                    out.writeChar(record.frequency);
+                }
+            }
+        }
+
+        public synchronized void writeConfiguredNetworks(long time, List<WifiConfiguration> configs)
+                throws IOException {
+            writeHeader(TYPE_CONFIGURED_NETWORKS, time);
+            writeCount(configs);
+            if (configs != null) {
+                for (WifiConfiguration config : configs) {
+                    out.writeInt(config.networkId);
+                    writeString(config.SSID);
+                    long[] keyManagement = config.allowedKeyManagement == null
+                            ? new long[0] : config.allowedKeyManagement.toLongArray();
+                    out.writeLong(keyManagement.length == 0 ? 0 : keyManagement[0]);
+                    out.writeBoolean(config.wepKeys != null && config.wepKeys[0] != null);
+                }
+            }
+        }
+
+        public synchronized void writeConnectionInfo(long time, Connection connection) throws IOException {
+            writeHeader(TYPE_CONNECTION_INFO, time);
+            out.writeBoolean(connection != null);
+            if (connection != null) {
+                out.writeInt(connection.networkId);
+                writeString(connection.ssid);
+                writeBssid(connection.bssid);
+                out.writeByte(connection.rssi);
+            }
+        }
+
+        public synchronized void writeNetworkInfo(long time, NetworkInfo networkInfo) throws IOException {
+            writeHeader(TYPE_NETWORK_INFO, time);
+            out.writeByte(stateOf(networkInfo));
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            out.close();
+        }
+
+        private void writeHeader(int type, long time) throws IOException {
+            out.writeByte(type);
+            writeVarInt((int) Math.min(Integer.MAX_VALUE, Math.max(0, time - lastTime)));
+            lastTime = Math.max(lastTime, time);
+        }
+
+        /**
+         * null 写 0，否则写 size + 1
+         */
+        private void writeCount(List<?> list) throws IOException {
+            writeVarInt(list == null ? 0 : list.size() + 1);
+        }
+
+        /**
+         * null 写 0，已有的字符串写 编号 + 1，新字符串写 当前个数 + 1 后跟内容
+         */
+        private void writeString(String string) throws IOException {
+            if (string == null) {
+                writeVarInt(0);
+                return;
+            }
+            Integer index = strings.get(string);
+            if (index != null) {
+                writeVarInt(index + 1);
+                return;
+            }
+            writeVarInt(strings.size() + 1);
+            out.writeUTF(string);
+            strings.put(string, strings.size());
+        }
+
+        private void writeBssid(String bssid) throws IOException {
+            long packed = WifiScanRecord.packBssid(bssid);
+            if (packed == WifiScanRecord.NO_BSSID) {
+                packed = NO_BSSID;
+            }
+            out.writeShort((int) (packed >>> 32));
+            out.writeInt((int) packed);
+        }
+
+        private void writeVarInt(int value) throws IOException {
+            while ((value & ~0x7f) != 0) {
+                out.writeByte((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+    }
+
+    /**
+     * 顺序读取轨迹文件
+     */
+    public static final class Reader implements Closeable {
+        private final DataInputStream in;
+        private final List<String> strings = new ArrayList<>();
+        public final long startedAt;
+        private long time;
+
+        public Reader(File file) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                if (in.readInt() != MAGIC) {
+                    throw new IOException("not a wifi trace: " + file);
+                }
+                int version = in.readInt();
+                if (version != VERSION) {
+                    throw new IOException("unsupported trace version " + version);
+                }
+                startedAt = in.readLong();
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        }
+
+        /**
+         * @return 下一条记录，读到文件末尾时返回 null
+         */
+        public Record next() throws IOException {
+            int type = in.read();
+            if (type < 0) {
+                return null;
+            }
+            time += readVarInt();
+            switch (type) {
+                case TYPE_EVENT:
+                    int eventType = readVarInt();
+                    return new Record(type, time, eventType, in.readByte(), null, null, null);
+                case TYPE_SCAN_RESULTS:
+                    return new Record(type, time, 0, NO_STATE, readScanRecords(), null, null);
+                case TYPE_CONFIGURED_NETWORKS:
+                    return new Record(type, time, 0, NO_STATE, null, readConfigurations(), null);
+                case TYPE_CONNECTION_INFO:
+                    Connection connection = null;
+                    if (in.readBoolean()) {
+                        connection = new Connection(in.readInt(), readString(), readBssid(), in.readByte());
+                    }
+                    return new Record(type, time, 0, NO_STATE, null, null, connection);
+                case TYPE_NETWORK_INFO:
+                    return new Record(type, time, 0, in.readByte(), null, null, null);
+                default:
+                    throw new IOException("unknown record type " + type);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private List<WifiScanRecord> readScanRecords() throws IOException {
+            int count = readVarInt() - 1;
+            if (count < 0) {
+                return null;
+            }
+            List<WifiScanRecord> records = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String ssid = readString();
+                String bssid = readBssid();
+                String capabilities = readString();
+                int level = in.readByte();
+                int frequency = in.readChar();
+                records.add(new WifiScanRecord(ssid, bssid, capabilities, level, frequency));
+            }
+            return records;
+        }
+
+        private List<WifiConfiguration> readConfigurations() throws IOException {
+            int count = readVarInt() - 1;
+            if (count < 0) {
+                return null;
+            }
+            List<WifiConfiguration> configs = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                WifiConfiguration config = new WifiConfiguration();
+                config.networkId = in.readInt();
+                config.SSID = readString();
+                config.allowedKeyManagement = BitSet.valueOf(new long[]{in.readLong()});
+                config.wepKeys = new String[4];
+                if (in.readBoolean()) {
+                    // 只记录了有没有密钥
+                    config.wepKeys[0] = "";
+                }
+                configs.add(config);
+            }
+            return configs;
+        }
+
+        private String readString() throws IOException {
+            int ref = readVarInt();
+            if (ref == 0) {
+                return null;
+            }
+            if (ref == strings.size() + 1) {
+                strings.add(in.readUTF());
+            } else if (ref > strings.size()) {
+                throw new IOException("bad string reference " + ref);
+            }
+            return strings.get(ref - 1);
+        }
+
+        private String readBssid() throws IOException {
+            long packed = ((long) in.readUnsignedShort() << 32) | (in.readInt() & 0xffffffffL);
+            return packed == NO_BSSID ? null : WifiScanRecord.unpackBssid(packed);
+        }
+
+        private int readVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = in.readByte();
+                value |= (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("malformed varint");
+        }
+    }
+
+    /**
+     * 读出整个文件
+     */
+    public static List<Record> readAll(File file) throws IOException {
+        List<Record> records = new ArrayList<>();
+        try (Reader reader = new Reader(file)) {
+            Record record;
+            while ((record = reader.next()) != null) {
+                records.add(record);
+            }
+        } catch (EOFException e) {
+            // 记录过程中进程被杀时最后一条记录可能不完整，丢弃
+        }
+        return records;
+    }
+}
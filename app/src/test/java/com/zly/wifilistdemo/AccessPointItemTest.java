@@ -0,0 +1,76 @@
+package com.zly.wifilistdemo;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 用合并器连续发布的两份快照驱动 {@link AccessPointItem#DIFF_CALLBACK}
+ */
+public class AccessPointItemTest {
+    private final AccessPointMerger merger = new AccessPointMerger(null);
+    private final StatusTextTable statusTexts = new StatusTextTable();
+
+    private static WifiScanRecord record(String ssid, String bssid, int level) {
+        return new WifiScanRecord(ssid, bssid, "[WPA2-PSK-CCMP][ESS]", level, 2412);
+    }
+
+    private List<AccessPointItem> merge(WifiScanRecord... records) {
+        List<AccessPoint> accessPoints = merger.merge(Arrays.asList(records), null, null, null, null)
+                .getAccessPoints();
+        return AccessPointItem.fromList(accessPoints, statusTexts, false);
+    }
+
+    private static AccessPointItem find(List<AccessPointItem> items, String ssid) {
+        for (AccessPointItem item : items) {
+            if (item.title.equals(ssid)) {
+                return item;
+            }
+        }
+        throw new AssertionError(ssid);
+    }
+
+    @Test
+    public void signalChange_bindsSignalLevelOnly() {
+        List<AccessPointItem> first = merge(
+                record("a", "00:00:00:00:00:01", -50),
+                record("b", "00:00:00:00:00:02", -90));
+        List<AccessPointItem> second = merge(
+                record("a", "00:00:00:00:00:01", -50),
+                record("b", "00:00:00:00:00:02", -60));
+
+        AccessPointItem oldItem = find(first, "b");
+        AccessPointItem newItem = find(second, "b");
+        assertNotSame(oldItem.accessPoint, newItem.accessPoint);
+        assertTrue(AccessPointItem.DIFF_CALLBACK.areItemsTheSame(oldItem, newItem));
+        assertFalse(AccessPointItem.DIFF_CALLBACK.areContentsTheSame(oldItem, newItem));
+        assertSame(AccessPointItem.PAYLOAD_SIGNAL_LEVEL,
+                AccessPointItem.DIFF_CALLBACK.getChangePayload(oldItem, newItem));
+    }
+
+    @Test
+    public void unchangedRow_isSameContent() {
+        List<AccessPointItem> first = merge(record("a", "00:00:00:00:00:01", -50));
+        List<AccessPointItem> second = merge(record("a", "00:00:00:00:00:01", -51));
+
+        assertTrue(AccessPointItem.DIFF_CALLBACK.areContentsTheSame(find(first, "a"), find(second, "a")));
+    }
+
+    @Test
+    public void staleChange_needsFullBind() {
+        AccessPoint accessPoint = merger.merge(Arrays.asList(record("a", "00:00:00:00:00:01", -50)),
+                null, null, null, null).getAccessPoints().get(0);
+        AccessPointItem stale = new AccessPointItem(accessPoint, statusTexts, false, true);
+        AccessPointItem live = new AccessPointItem(accessPoint, statusTexts, false, false);
+
+        assertFalse(AccessPointItem.DIFF_CALLBACK.areContentsTheSame(stale, live));
+        assertEquals(null, AccessPointItem.DIFF_CALLBACK.getChangePayload(stale, live));
+    }
+}
@@ -0,0 +1,268 @@
+package com.zly.wifilistdemo;
+
+import android.net.wifi.WifiConfiguration;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 用构造的扫描批次驱动 {@link AccessPointMerger}
+ */
+public class AccessPointMergerTest {
+    private AccessPointMerger merger;
+
+    @Before
+    public void setUp() {
+        merger = new AccessPointMerger(null);
+    }
+
+    private static WifiScanRecord record(String ssid, String bssid, int level) {
+        return record(ssid, bssid, level, 2412);
+    }
+
+    private static WifiScanRecord record(String ssid, String bssid, int level, int frequency) {
+        return new WifiScanRecord(ssid, bssid, "[WPA2-PSK-CCMP][ESS]", level, frequency);
+    }
+
+    static WifiConfiguration config(String ssid, int networkId, int security) {
+        WifiConfiguration config = new WifiConfiguration();
+        config.SSID = ssid;
+        config.networkId = networkId;
+        config.allowedKeyManagement = new BitSet();
+        config.wepKeys = new String[4];
+        if (security == AccessPoint.SECURITY_PSK) {
+            config.allowedKeyManagement.set(WifiConfiguration.KeyMgmt.WPA_PSK);
+        } else if (security == AccessPoint.SECURITY_EAP) {
+            config.allowedKeyManagement.set(WifiConfiguration.KeyMgmt.WPA_EAP);
+        } else if (security == AccessPoint.SECURITY_SAE) {
+            config.allowedKeyManagement.set(AccessPoint.KEY_MGMT_SAE);
+        } else if (security == AccessPoint.SECURITY_OWE) {
+            config.allowedKeyManagement.set(AccessPoint.KEY_MGMT_OWE);
+        }
+        return config;
+    }
+
+    private static List<String> ssids(List<AccessPoint> accessPoints) {
+        List<String> ssids = new ArrayList<>();
+        for (AccessPoint accessPoint : accessPoints) {
+            ssids.add(accessPoint.ssid);
+        }
+        return ssids;
+    }
+
+    @Test
+    public void firstBatch_allAdded() {
+        AccessPointMerger.Delta delta = merger.merge(Arrays.asList(
+                record("a", "00:00:00:00:00:01", -50),
+                record("b", "00:00:00:00:00:02", -90)), null, null, null, null);
+        assertEquals(Arrays.asList("a", "b"), ssids(delta.added));
+        assertTrue(delta.removed.isEmpty());
+        assertTrue(delta.updated.isEmpty());
+        assertTrue(delta.moved.isEmpty());
+        assertEquals(Arrays.asList("a", "b"), ssids(delta.getAccessPoints()));
+    }
+
+    @Test
+    public void identicalBatch_isEmptyDeltaAndKeepsInstances() {
+        List<WifiScanRecord> batch = Arrays.asList(
+                record("a", "00:00:00:00:00:01", -50),
+                record("b", "00:00:00:00:00:02", -90));
+        AccessPoint first = merger.merge(batch, null, null, null, null).getAccessPoints().get(0);
+        AccessPointMerger.Delta delta = merger.merge(batch, null, null, null, null);
+        assertTrue(delta.isEmpty());
+        assertSame(first, delta.getAccessPoints().get(0));
+    }
+
+    @Test
+    public void missingEntry_isRemoved() {
+        merger.merge(Arrays.asList(
+                record("a", "00:00:00:00:00:01", -50),
+                record("b", "00:00:00:00:00:02", -90)), null, null, null, null);
+        AccessPointMerger.Delta delta = merger.merge(Collections.singletonList(
+                record("a", "00:00:00:00:00:01", -50)), null, null, null, null);
+        assertEquals(Collections.singletonList("b"), ssids(delta.removed));
+        assertEquals(Collections.singletonList("a"), ssids(delta.getAccessPoints()));
+    }
+
+    @Test
+    public void signalChange_isUpdatedAndMoved() {
+        merger.merge(Arrays.asList(
+                record("a", "00:00:00:00:00:01", -50),
+                record("b", "00:00:00:00:00:02", -90),
+                record("c", "00:00:00:00:00:03", -95)), null, null, null, null);
+        AccessPointMerger.Delta delta = merger.merge(Arrays.asList(
+                record("a", "00:00:00:00:00:01", -50),
+                record("b", "00:00:00:00:00:02", -90),
+                record("c", "00:00:00:00:00:03", -40)), null, null, null, null);
+        assertEquals(Collections.singletonList("c"), ssids(delta.updated));
+        assertEquals(Collections.singletonList("c"), ssids(delta.moved));
+        assertEquals(Arrays.asList("a", "c", "b"), ssids(delta.getAccessPoints()));
+    }
+
+    @Test
+    public void insertion_doesNotMoveOthers() {
+        merger.merge(Arrays.asList(
+                record("a", "00:00:00:00:00:01", -50),
+                record("c", "00:00:00:00:00:03", -50)), null, null, null, null);
+        AccessPointMerger.Delta delta = merger.merge(Arrays.asList(
+                record("a", "00:00:00:00:00:01", -50),
+                record("b", "00:00:00:00:00:02", -50),
+                record("c", "00:00:00:00:00:03", -50)), null, null, null, null);
+        assertEquals(Collections.singletonList("b"), ssids(delta.added));
+        assertTrue(delta.moved.isEmpty());
+    }
+
+    @Test
+    public void duplicateSsidInBatch_isMergedOnce() {
+        AccessPointMerger.Delta delta = merger.merge(Arrays.asList(
+                record("a", "00:00:00:00:00:01", -50),
+                record("a", "00:00:00:00:00:02", -60)), null, null, null, null);
+        assertEquals(1, delta.getAccessPoints().size());
+    }
+
+    @Test
+    public void multipleBssids_strongestRepresentsGroup() {
+        AccessPointMerger.Delta delta = merger.merge(Arrays.asList(
+                record("mesh", "00:00:00:00:00:01", -85),
+                record("mesh", "00:00:00:00:00:02", -45),
+                record("mesh", "00:00:00:00:00:03", -70)), null, null, null, null);
+        AccessPoint accessPoint = delta.getAccessPoints().get(0);
+        assertEquals(-45, accessPoint.getRssi());
+        assertEquals("00:00:00:00:00:02", accessPoint.bssid);
+        assertEquals(3, accessPoint.getScanRecords().size());
+        assertEquals("00:00:00:00:00:02", accessPoint.getBestScanRecord().bssid);
+
+        // 最强的 BSSID 消失后由次强的代表
+        delta = merger.merge(Arrays.asList(
+                record("mesh", "00:00:00:00:00:01", -85),
+                record("mesh", "00:00:00:00:00:03", -70)), null, null, null, null);
+        assertEquals(Collections.singletonList("mesh"), ssids(delta.updated));
+        assertEquals(-70, delta.getAccessPoints().get(0).getRssi());
+        assertEquals(2, delta.getAccessPoints().get(0).getScanRecords().size());
+    }
+
+    @Test
+    public void memberOrFrequencyChange_isUpdated() {
+        merger.merge(Arrays.asList(
+                record("mesh", "00:00:00:00:00:01", -45),
+                record("mesh", "00:00:00:00:00:02", -70)), null, null, null, null);
+
+        // 最强的 BSSID 和个数都没变，次强的换成了另一个
+        AccessPointMerger.Delta delta = merger.merge(Arrays.asList(
+                record("mesh", "00:00:00:00:00:01", -45),
+                record("mesh", "00:00:00:00:00:03", -70)), null, null, null, null);
+        assertEquals(Collections.singletonList("mesh"), ssids(delta.updated));
+
+        // 次强的 BSSID 换到了 5 GHz
+        delta = merger.merge(Arrays.asList(
+                record("mesh", "00:00:00:00:00:01", -45),
+                record("mesh", "00:00:00:00:00:03", -70, 5180)), null, null, null, null);
+        assertEquals(Collections.singletonList("mesh"), ssids(delta.updated));
+        assertEquals(5180, delta.getAccessPoints().get(0).getScanTable().getFrequency(1));
+
+        // 只是扫描结果的顺序不同
+        delta = merger.merge(Arrays.asList(
+                record("mesh", "00:00:00:00:00:03", -70, 5180),
+                record("mesh", "00:00:00:00:00:01", -45)), null, null, null, null);
+        assertTrue(delta.updated.isEmpty());
+    }
+
+    @Test
+    public void sameSsidDifferentSecurity_areSeparateEntries() {
+        AccessPointMerger.Delta delta = merger.merge(Arrays.asList(
+                record("a", "00:00:00:00:00:01", -50),
+                new WifiScanRecord("a", "00:00:00:00:00:02", "[ESS]", -60, 2412)), null, null, null, null);
+        assertEquals(Arrays.asList("a", "a"), ssids(delta.getAccessPoints()));
+        AccessPoint secured = delta.getAccessPoints().get(0);
+        AccessPoint open = delta.getAccessPoints().get(1);
+        assertEquals(AccessPoint.SECURITY_PSK, secured.security);
+        assertEquals(AccessPoint.SECURITY_NONE, open.security);
+        assertFalse(secured.equals(open));
+        assertFalse(secured.getKey().equals(open.getKey()));
+    }
+
+    @Test
+    public void equalsAndHashCode_areConsistent() {
+        AccessPoint a = new AccessPoint(null, record("a", "00:00:00:00:00:01", -50));
+        AccessPoint b = new AccessPoint(null, record("a", "00:00:00:00:00:02", -80));
+        b.setWifiConfiguration(config("\"a\"", 4, AccessPoint.SECURITY_PSK));
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+    }
+
+    @Test
+    public void signalNearLevelBoundary_doesNotReorder() {
+        AccessPointMerger plain = new AccessPointMerger(null, new SignalEstimator(1, 0));
+        int plainMoves = 0;
+        for (int i = 0; i < 10; i++) {
+            // -69 是 2 格，-72 是 1 格
+            List<WifiScanRecord> batch = Arrays.asList(
+                    record("a", "00:00:00:00:00:01", i % 2 == 0 ? -69 : -72),
+                    record("b", "00:00:00:00:00:02", -60));
+            AccessPointMerger.Delta delta = merger.merge(batch, null, null, null, null);
+            if (i > 0) {
+                assertTrue(delta.moved.isEmpty());
+                assertEquals(Arrays.asList("a", "b"), ssids(delta.getAccessPoints()));
+            }
+            plainMoves += plain.merge(batch, null, null, null, null).moved.size();
+        }
+        assertTrue(merger.getSuppressedReorderCount() > 0);
+        assertTrue(plainMoves > 0);
+        assertEquals(0, plain.getSuppressedReorderCount());
+    }
+
+    @Test
+    public void sustainedSignalChange_stillReorders() {
+        merger.merge(Arrays.asList(
+                record("a", "00:00:00:00:00:01", -60),
+                record("b", "00:00:00:00:00:02", -60)), null, null, null, null);
+        List<String> order = null;
+        for (int i = 0; i < 5; i++) {
+            order = ssids(merger.merge(Arrays.asList(
+                    record("a", "00:00:00:00:00:01", -90),
+                    record("b", "00:00:00:00:00:02", -60)), null, null, null, null).getAccessPoints());
+        }
+        assertEquals(Arrays.asList("b", "a"), order);
+    }
+
+    @Test
+    public void savedConfiguration_isApplied() {
+        SavedNetworkIndex savedNetworks = new SavedNetworkIndex(null);
+        savedNetworks.setConfigurations(Collections.singletonList(
+                config("\"b\"", 7, AccessPoint.SECURITY_PSK)));
+        List<WifiScanRecord> batch = Arrays.asList(
+                record("a", "00:00:00:00:00:01", -50),
+                record("b", "00:00:00:00:00:02", -90));
+        merger.merge(batch, null, null, null, null);
+        AccessPointMerger.Delta delta = merger.merge(batch, savedNetworks, null, null, null);
+        assertEquals(Collections.singletonList("b"), ssids(delta.updated));
+        // 已保存的网络排在未保存的前面
+        assertEquals(Arrays.asList("b", "a"), ssids(delta.getAccessPoints()));
+        assertEquals(7, delta.getAccessPoints().get(0).networkId);
+
+        delta = merger.merge(batch, null, null, null, null);
+        assertEquals(Collections.singletonList("b"), ssids(delta.updated));
+        assertEquals(AccessPoint.INVALID_NETWORK_ID, delta.getAccessPoints().get(1).networkId);
+    }
+
+    @Test
+    public void savedConfiguration_mustMatchSecurity() {
+        SavedNetworkIndex savedNetworks = new SavedNetworkIndex(null);
+        savedNetworks.setConfigurations(Collections.singletonList(
+                config("\"a\"", 3, AccessPoint.SECURITY_NONE)));
+        AccessPointMerger.Delta delta = merger.merge(Collections.singletonList(
+                record("a", "00:00:00:00:00:01", -50)), savedNetworks, null, null, null);
+        assertEquals(AccessPoint.INVALID_NETWORK_ID, delta.getAccessPoints().get(0).networkId);
+    }
+}
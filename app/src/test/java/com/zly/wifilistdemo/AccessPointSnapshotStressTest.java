@@ -0,0 +1,93 @@
+package com.zly.wifilistdemo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 多个线程同时合并和读取快照，读到的快照必须是某一次合并的完整结果
+ */
+public class AccessPointSnapshotStressTest {
+    private static final int ACCESS_POINTS = 64;
+    private static final int UPDATERS = 4;
+    private static final int READERS = 4;
+    private static final int BATCHES = 500;
+
+    /**
+     * 同一批里所有条目信号相同，不同批次信号不同
+     */
+    private static List<WifiScanRecord> batch(int rssi) {
+        List<WifiScanRecord> records = new ArrayList<>(ACCESS_POINTS);
+        for (int i = 0; i < ACCESS_POINTS; i++) {
+            records.add(new WifiScanRecord("ssid" + i, String.format("00:00:00:00:00:%02x", i),
+                    "[WPA2-PSK-CCMP][ESS]", rssi, 2412));
+        }
+        return records;
+    }
+
+    @Test
+    public void concurrentUpdatersAndReaders_seeConsistentSnapshots() throws Exception {
+        AccessPointMerger merger = new AccessPointMerger(null);
+        merger.merge(batch(-50), null, null, null, null);
+        ExecutorService executor = Executors.newFixedThreadPool(UPDATERS + READERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Future<?>> updaters = new ArrayList<>();
+        List<Future<Integer>> readers = new ArrayList<>();
+
+        for (int u = 0; u < UPDATERS; u++) {
+            final int seed = u;
+            updaters.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < BATCHES; i++) {
+                    merger.merge(batch(-40 - (seed * BATCHES + i) % 60), null, null, null, null);
+                }
+                return null;
+            }));
+        }
+        for (int r = 0; r < READERS; r++) {
+            readers.add(executor.submit(() -> {
+                start.await();
+                long lastVersion = 0;
+                int reads = 0;
+                while (running.get()) {
+                    AccessPointSnapshot snapshot = merger.getSnapshot();
+                    assertTrue(snapshot.version >= lastVersion);
+                    lastVersion = snapshot.version;
+                    List<AccessPoint> accessPoints = snapshot.accessPoints;
+                    assertEquals(ACCESS_POINTS, accessPoints.size());
+                    int rssi = accessPoints.get(0).getRssi();
+                    for (int i = 0; i < accessPoints.size(); i++) {
+                        assertEquals(rssi, accessPoints.get(i).getRssi());
+                        if (i > 0) {
+                            assertTrue(accessPoints.get(i - 1).compareTo(accessPoints.get(i)) <= 0);
+                        }
+                    }
+                    reads++;
+                }
+                return reads;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> updater : updaters) {
+            updater.get(30, TimeUnit.SECONDS);
+        }
+        running.set(false);
+        for (Future<Integer> reader : readers) {
+            assertTrue(reader.get(30, TimeUnit.SECONDS) > 0);
+        }
+        executor.shutdown();
+        assertEquals(1 + UPDATERS * BATCHES, merger.getSnapshot().version);
+    }
+}
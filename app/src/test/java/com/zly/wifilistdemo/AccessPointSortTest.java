@@ -0,0 +1,68 @@
+package com.zly.wifilistdemo;
+
+import android.net.wifi.WifiConfiguration;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 排序主键的顺序必须和原来的 compareTo 一致，耗时的比较见 benchmark 模块中的 SortBenchmark
+ */
+public class AccessPointSortTest {
+    private static final int[] SIZES = {50, 500, 5000};
+
+    /**
+     * 之前 AccessPoint.compareTo() 的实现
+     */
+    private static final Comparator<AccessPoint> LEGACY = (a, b) -> {
+        boolean reachableA = a.getRssi() != Integer.MAX_VALUE;
+        boolean reachableB = b.getRssi() != Integer.MAX_VALUE;
+        if (a.isActive() && !b.isActive()) return -1;
+        if (!a.isActive() && b.isActive()) return 1;
+        if (reachableA && !reachableB) return -1;
+        if (!reachableA && reachableB) return 1;
+        if (a.isSaved() && !b.isSaved()) return -1;
+        if (!a.isSaved() && b.isSaved()) return 1;
+        int difference = b.getSignalLevel() - a.getSignalLevel();
+        if (difference != 0) {
+            return difference;
+        }
+        return a.ssid.compareToIgnoreCase(b.ssid);
+    };
+
+    private static List<AccessPoint> accessPoints(int size, Random random) {
+        List<AccessPoint> accessPoints = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String ssid = (random.nextBoolean() ? "Office-" : "guest_") + Integer.toHexString(random.nextInt());
+            AccessPoint accessPoint = new AccessPoint(null, new WifiScanRecord(ssid, "00:00:00:00:00:00",
+                    "[WPA2-PSK-CCMP][ESS]", -30 - random.nextInt(70), 2412));
+            if (random.nextInt(10) == 0) {
+                WifiConfiguration config = new WifiConfiguration();
+                config.networkId = i;
+                accessPoint.setWifiConfiguration(config);
+            }
+            accessPoints.add(accessPoint);
+        }
+        return accessPoints;
+    }
+
+    @Test
+    public void packedKey_matchesLegacyOrder() {
+        Random random = new Random(42);
+        for (int size : SIZES) {
+            List<AccessPoint> legacy = accessPoints(size, random);
+            List<AccessPoint> packed = new ArrayList<>(legacy);
+            Collections.shuffle(packed, random);
+            Collections.sort(legacy, LEGACY);
+            Collections.sort(packed);
+            assertEquals(legacy, packed);
+        }
+    }
+}
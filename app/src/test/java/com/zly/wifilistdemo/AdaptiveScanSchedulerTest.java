@@ -0,0 +1,133 @@
+package com.zly.wifilistdemo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+
+public class AdaptiveScanSchedulerTest {
+    private TestScheduler clock;
+    private List<Long> scans;
+    private List<AdaptiveScanScheduler.Decision> decisions;
+
+    @Before
+    public void setUp() {
+        clock = new TestScheduler();
+        scans = new ArrayList<>();
+        decisions = new ArrayList<>();
+    }
+
+    private AdaptiveScanScheduler create(AdaptiveScanScheduler.Config config) {
+        AdaptiveScanScheduler scheduler = new AdaptiveScanScheduler(
+                () -> scans.add(clock.now(TimeUnit.MILLISECONDS)), clock, config);
+        scheduler.setDecisionListener(decisions::add);
+        return scheduler;
+    }
+
+    @Test
+    public void stableResults_backOff() {
+        AdaptiveScanScheduler scheduler = create(new AdaptiveScanScheduler.Config(
+                10_000, 40_000, 2, 100, 120_000, 1));
+        scheduler.start();
+        clock.triggerActions();
+        assertEquals(1, scans.size());
+
+        scheduler.onScanResults(0);
+        assertEquals(20_000, scheduler.getInterval());
+        clock.advanceTimeTo(20_000, TimeUnit.MILLISECONDS);
+        scheduler.onScanResults(0);
+        assertEquals(40_000, scheduler.getInterval());
+        clock.advanceTimeTo(60_000, TimeUnit.MILLISECONDS);
+        scheduler.onScanResults(0);
+        assertEquals(40_000, scheduler.getInterval());
+
+        assertEquals(3, scans.size());
+        assertEquals(0L, (long) scans.get(0));
+        assertEquals(20_000L, (long) scans.get(1));
+        assertEquals(60_000L, (long) scans.get(2));
+    }
+
+    @Test
+    public void churn_resetsToMinInterval() {
+        AdaptiveScanScheduler scheduler = create(new AdaptiveScanScheduler.Config(
+                10_000, 80_000, 2, 100, 120_000, 3));
+        scheduler.start();
+        clock.triggerActions();
+        scheduler.onScanResults(0);
+        clock.advanceTimeTo(20_000, TimeUnit.MILLISECONDS);
+        scheduler.onScanResults(0);
+        assertEquals(40_000, scheduler.getInterval());
+
+        clock.advanceTimeTo(60_000, TimeUnit.MILLISECONDS);
+        scheduler.onScanResults(2);
+        assertEquals(80_000, scheduler.getInterval());
+        clock.advanceTimeTo(140_000, TimeUnit.MILLISECONDS);
+        scheduler.onScanResults(5);
+        assertEquals(10_000, scheduler.getInterval());
+        clock.advanceTimeTo(150_000, TimeUnit.MILLISECONDS);
+        assertEquals(5, scans.size());
+    }
+
+    @Test
+    public void passiveResults_areIgnored() {
+        AdaptiveScanScheduler scheduler = create(new AdaptiveScanScheduler.Config(
+                10_000, 80_000, 2, 100, 120_000, 1));
+        scheduler.start();
+        clock.triggerActions();
+        scheduler.onScanResults(0);
+        assertEquals(20_000, scheduler.getInterval());
+
+        // 其他应用触发的扫描结果，不是对自己请求的回应
+        scheduler.onScanResults(0);
+        scheduler.onScanResults(5);
+        assertEquals(20_000, scheduler.getInterval());
+        clock.advanceTimeTo(20_000, TimeUnit.MILLISECONDS);
+        assertEquals(2, scans.size());
+    }
+
+    @Test
+    public void userInteraction_bringsNextScanForward() {
+        AdaptiveScanScheduler scheduler = create(new AdaptiveScanScheduler.Config(
+                10_000, 80_000, 2, 100, 120_000, 1));
+        scheduler.start();
+        clock.triggerActions();
+        scheduler.onScanResults(0);
+        clock.advanceTimeTo(15_000, TimeUnit.MILLISECONDS);
+        assertEquals(1, scans.size());
+
+        scheduler.onUserInteraction();
+        clock.triggerActions();
+        assertEquals(2, scans.size());
+        assertEquals(15_000L, (long) scans.get(1));
+    }
+
+    @Test
+    public void budget_throttlesScans() {
+        AdaptiveScanScheduler scheduler = create(new AdaptiveScanScheduler.Config(
+                10_000, 10_000, 2, 4, 120_000, 1));
+        scheduler.start();
+        clock.advanceTimeTo(119_999, TimeUnit.MILLISECONDS);
+        assertEquals(4, scans.size());
+        assertEquals(AdaptiveScanScheduler.Decision.THROTTLED, decisions.get(4).action);
+        assertEquals(80_000, decisions.get(4).nextDelay);
+
+        clock.advanceTimeTo(120_000, TimeUnit.MILLISECONDS);
+        assertEquals(5, scans.size());
+    }
+
+    @Test
+    public void stop_cancelsPendingScan() {
+        AdaptiveScanScheduler scheduler = create(AdaptiveScanScheduler.Config.DEFAULT);
+        scheduler.start();
+        clock.triggerActions();
+        scheduler.stop();
+        clock.advanceTimeBy(1, TimeUnit.HOURS);
+        assertEquals(1, scans.size());
+    }
+}
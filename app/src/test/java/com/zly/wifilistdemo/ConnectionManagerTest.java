@@ -0,0 +1,219 @@
+package com.zly.wifilistdemo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConnectionManagerTest {
+    private static final ConnectionManager.Config CONFIG = new ConnectionManager.Config(1000, 2000);
+    private static final int SAVED_NETWORK_ID = 7;
+    private static final int SAVED_SAE_NETWORK_ID = 8;
+    private static final String SAE = "[RSN-SAE-CCMP][ESS]";
+
+    private TestScheduler clock;
+    private FakeWifiSystem system;
+    private Metrics metrics;
+    private ConnectionManager manager;
+    private final List<ConnectionManager.Attempt> reported = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        clock = new TestScheduler();
+        system = new FakeWifiSystem();
+        system.configurations = Arrays.asList(
+                AccessPointMergerTest.config("\"home\"", SAVED_NETWORK_ID, AccessPoint.SECURITY_PSK),
+                AccessPointMergerTest.config("\"office\"", SAVED_SAE_NETWORK_ID, AccessPoint.SECURITY_SAE));
+        metrics = new Metrics();
+        manager = new ConnectionManager(system, new SavedNetworkIndex(system), CONFIG, clock, metrics);
+        manager.setListener(reported::add);
+    }
+
+    private static AccessPoint accessPoint(String ssid) {
+        return accessPoint(ssid, "[WPA2-PSK-CCMP][ESS]");
+    }
+
+    private static AccessPoint accessPoint(String ssid, String capabilities) {
+        return new AccessPoint(null, ScanTable.of(Collections.singletonList(
+                new WifiScanRecord(ssid, "a0:b1:c2:d3:e4:01", capabilities, -50, 2412))));
+    }
+
+    private void advance(long millis) {
+        clock.advanceTimeBy(millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void connect_reusesSavedNetworkId() {
+        ConnectionManager.Attempt attempt = manager.connect(accessPoint("home"), null);
+
+        assertEquals(SAVED_NETWORK_ID, attempt.networkId);
+        assertEquals(ConnectionManager.STATE_REQUESTED, attempt.state);
+        assertTrue(system.added.isEmpty());
+        assertEquals(Collections.singletonList(SAVED_NETWORK_ID), system.enabled);
+        assertEquals(AccessPoint.getKey("home", AccessPoint.SECURITY_PSK), attempt.key);
+    }
+
+    @Test
+    public void connect_unsavedWithoutPassword_failsWithoutAdding() {
+        ConnectionManager.Attempt attempt = manager.connect(accessPoint("cafe"), null);
+
+        assertEquals(ConnectionManager.STATE_FAILED, attempt.state);
+        assertEquals(ConnectionManager.FAILURE_CONFIGURATION, attempt.failure);
+        assertTrue(system.added.isEmpty());
+        assertTrue(system.enabled.isEmpty());
+    }
+
+    @Test
+    public void connect_savedSae_reusesNetworkId() {
+        ConnectionManager.Attempt attempt = manager.connect(accessPoint("office", SAE), null);
+
+        assertEquals(SAVED_SAE_NETWORK_ID, attempt.networkId);
+        assertEquals(ConnectionManager.STATE_REQUESTED, attempt.state);
+        assertEquals(Collections.singletonList(SAVED_SAE_NETWORK_ID), system.enabled);
+    }
+
+    @Test
+    public void connect_unsavedSaeOrOwe_failsWithoutAdding() {
+        ConnectionManager.Attempt sae = manager.connect(accessPoint("cafe", SAE), "password");
+        ConnectionManager.Attempt owe = manager.connect(accessPoint("cafe", "[RSN-OWE-CCMP][ESS]"), null);
+
+        assertEquals(ConnectionManager.FAILURE_UNSUPPORTED_SECURITY, sae.failure);
+        assertEquals(ConnectionManager.STATE_FAILED, owe.state);
+        assertEquals(ConnectionManager.FAILURE_UNSUPPORTED_SECURITY, owe.failure);
+        assertTrue(system.added.isEmpty());
+        assertTrue(system.enabled.isEmpty());
+    }
+
+    @Test
+    public void phases_recordLatency() {
+        manager.connect(accessPoint("home"), null);
+        advance(100);
+        manager.onProgress(ConnectionManager.STATE_ASSOCIATING, AccessPoint.INVALID_NETWORK_ID);
+        advance(200);
+        manager.onProgress(ConnectionManager.STATE_AUTHENTICATING, AccessPoint.INVALID_NETWORK_ID);
+        advance(300);
+        // 没有收到获取 IP 的广播，这段时间计入认证
+        manager.onProgress(ConnectionManager.STATE_CONNECTED, SAVED_NETWORK_ID);
+        advance(400);
+        manager.onValidated();
+
+        ConnectionManager.Attempt attempt = manager.getAttempt();
+        assertEquals(ConnectionManager.STATE_VALIDATED, attempt.state);
+        assertEquals(100, attempt.getPhaseMillis(ConnectionManager.STATE_REQUESTED));
+        assertEquals(200, attempt.getPhaseMillis(ConnectionManager.STATE_ASSOCIATING));
+        assertEquals(300, attempt.getPhaseMillis(ConnectionManager.STATE_AUTHENTICATING));
+        assertEquals(-1, attempt.getPhaseMillis(ConnectionManager.STATE_OBTAINING_IP));
+        assertEquals(400, attempt.getPhaseMillis(ConnectionManager.STATE_CONNECTED));
+        assertEquals(1000, attempt.getElapsedMillis());
+        assertEquals(5, reported.size());
+
+        assertEquals(1, metrics.getHistogram(Metrics.HISTOGRAM_CONNECT).getCount());
+        assertEquals(0, metrics.getHistogram(Metrics.HISTOGRAM_CONNECT_OBTAINING_IP).getCount());
+        assertEquals(1, metrics.getHistogram(Metrics.HISTOGRAM_CONNECT_VALIDATING).getCount());
+    }
+
+    @Test
+    public void progress_ignoresOtherNetworksAndGoingBack() {
+        manager.connect(accessPoint("home"), null);
+        manager.onProgress(ConnectionManager.STATE_AUTHENTICATING, AccessPoint.INVALID_NETWORK_ID);
+        manager.onProgress(ConnectionManager.STATE_ASSOCIATING, AccessPoint.INVALID_NETWORK_ID);
+        manager.onProgress(ConnectionManager.STATE_CONNECTED, SAVED_NETWORK_ID + 1);
+        // 连接上之前的断开由 supplicant 重试
+        manager.onDisconnected();
+        manager.onValidated();
+
+        assertEquals(ConnectionManager.STATE_AUTHENTICATING, manager.getAttempt().state);
+    }
+
+    @Test
+    public void phaseTimeout_failsAttempt() {
+        manager.connect(accessPoint("home"), null);
+        advance(CONFIG.phaseTimeoutMillis - 1);
+        // 进入新阶段后重新计时
+        manager.onProgress(ConnectionManager.STATE_ASSOCIATING, AccessPoint.INVALID_NETWORK_ID);
+        advance(CONFIG.phaseTimeoutMillis - 1);
+        assertFalse(manager.getAttempt().isFinished());
+
+        advance(1);
+        ConnectionManager.Attempt attempt = manager.getAttempt();
+        assertEquals(ConnectionManager.STATE_FAILED, attempt.state);
+        assertEquals(ConnectionManager.FAILURE_TIMEOUT, attempt.failure);
+        assertEquals(CONFIG.phaseTimeoutMillis - 1, attempt.getPhaseMillis(ConnectionManager.STATE_REQUESTED));
+        assertEquals(1, metrics.getCounter(Metrics.COUNTER_CONNECT_FAILURES));
+
+        manager.onProgress(ConnectionManager.STATE_CONNECTED, SAVED_NETWORK_ID);
+        assertEquals(ConnectionManager.STATE_FAILED, manager.getAttempt().state);
+    }
+
+    @Test
+    public void connectedWithoutValidation_endsUnvalidated() {
+        manager.connect(accessPoint("home"), null);
+        manager.onProgress(ConnectionManager.STATE_CONNECTED, SAVED_NETWORK_ID);
+        advance(CONFIG.phaseTimeoutMillis);
+        assertFalse(manager.getAttempt().isFinished());
+
+        advance(CONFIG.validationTimeoutMillis - CONFIG.phaseTimeoutMillis);
+        ConnectionManager.Attempt attempt = manager.getAttempt();
+        assertEquals(ConnectionManager.STATE_UNVALIDATED, attempt.state);
+        assertEquals(ConnectionManager.FAILURE_NONE, attempt.failure);
+        assertTrue(attempt.isFinished());
+        assertEquals(0, metrics.getCounter(Metrics.COUNTER_CONNECT_FAILURES));
+        assertEquals(1, metrics.getCounter(Metrics.COUNTER_CONNECT_UNVALIDATED));
+    }
+
+    @Test
+    public void validatedAfterConnectedBroadcast_completes() {
+        manager.connect(accessPoint("home"), null);
+        manager.onProgress(ConnectionManager.STATE_OBTAINING_IP, SAVED_NETWORK_ID);
+        manager.onProgress(ConnectionManager.STATE_CONNECTED, SAVED_NETWORK_ID);
+        manager.onValidated();
+
+        assertEquals(ConnectionManager.STATE_VALIDATED, manager.getAttempt().state);
+    }
+
+    @Test
+    public void validatedBeforeConnectedBroadcast_completes() {
+        manager.connect(accessPoint("home"), null);
+        // 关联之前的验证来自之前的网络
+        manager.onValidated();
+        assertEquals(ConnectionManager.STATE_REQUESTED, manager.getAttempt().state);
+
+        manager.onProgress(ConnectionManager.STATE_OBTAINING_IP, SAVED_NETWORK_ID);
+        advance(100);
+        manager.onValidated();
+        manager.onProgress(ConnectionManager.STATE_CONNECTED, SAVED_NETWORK_ID);
+        advance(CONFIG.validationTimeoutMillis);
+
+        ConnectionManager.Attempt attempt = manager.getAttempt();
+        assertEquals(ConnectionManager.STATE_VALIDATED, attempt.state);
+        assertEquals(100, attempt.getPhaseMillis(ConnectionManager.STATE_OBTAINING_IP));
+        assertEquals(0, attempt.getPhaseMillis(ConnectionManager.STATE_CONNECTED));
+        assertEquals(0, metrics.getCounter(Metrics.COUNTER_CONNECT_FAILURES));
+    }
+
+    @Test
+    public void authenticationError_failsCurrentAttemptOnly() {
+        assertFalse(manager.onAuthenticationError());
+
+        ConnectionManager.Attempt first = manager.connect(accessPoint("home"), null);
+        ConnectionManager.Attempt second = manager.connect(accessPoint("home"), null);
+        assertTrue(manager.onAuthenticationError());
+
+        assertEquals(first.id, reported.get(1).id);
+        assertEquals(ConnectionManager.FAILURE_CANCELLED, reported.get(1).failure);
+        ConnectionManager.Attempt failed = reported.get(reported.size() - 1);
+        assertEquals(second.id, failed.id);
+        assertEquals(ConnectionManager.FAILURE_AUTHENTICATION, failed.failure);
+        assertFalse(manager.onAuthenticationError());
+    }
+}
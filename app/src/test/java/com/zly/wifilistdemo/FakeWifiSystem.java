@@ -0,0 +1,81 @@
+package com.zly.wifilistdemo;
+
+import android.net.NetworkInfo;
+import android.net.wifi.WifiConfiguration;
+import android.net.wifi.WifiInfo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 返回预先设置好的结果，并记录扫描请求和修改网络的调用
+ */
+class FakeWifiSystem implements WifiSystem {
+    List<WifiScanRecord> scanRecords = Collections.emptyList();
+    List<WifiConfiguration> configurations;
+    int scanRequests;
+    final List<WifiConfiguration> added = new ArrayList<>();
+    final List<WifiConfiguration> updated = new ArrayList<>();
+    final List<Integer> enabled = new ArrayList<>();
+    int nextNetworkId = 100;
+
+    @Override
+    public List<WifiScanRecord> getScanResults() {
+        return scanRecords;
+    }
+
+    @Override
+    public List<WifiConfiguration> getConfiguredNetworks() {
+        return configurations;
+    }
+
+    @Override
+    public WifiInfo getConnectionInfo() {
+        return null;
+    }
+
+    @Override
+    public NetworkInfo getActiveNetworkInfo() {
+        return null;
+    }
+
+    @Override
+    public boolean isCurrentNetworkValidated() {
+        return true;
+    }
+
+    @Override
+    public boolean startScan() {
+        scanRequests++;
+        return true;
+    }
+
+    @Override
+    public boolean setWifiEnabled(boolean enabled) {
+        return true;
+    }
+
+    @Override
+    public int addNetwork(WifiConfiguration config) {
+        added.add(config);
+        return nextNetworkId++;
+    }
+
+    @Override
+    public int updateNetwork(WifiConfiguration config) {
+        updated.add(config);
+        return config.networkId;
+    }
+
+    @Override
+    public boolean enableNetwork(int networkId, boolean attemptConnect) {
+        enabled.add(networkId);
+        return true;
+    }
+
+    @Override
+    public boolean removeNetwork(int networkId) {
+        return false;
+    }
+}
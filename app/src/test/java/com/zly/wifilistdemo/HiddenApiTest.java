@@ -0,0 +1,31 @@
+package com.zly.wifilistdemo;
+
+import android.net.wifi.WifiConfiguration;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 隐藏 API 无法调用时 {@link HiddenApi} 返回默认值，不抛出异常
+ */
+public class HiddenApiTest {
+
+    @Test
+    public void newConfiguration_isEnabled() {
+        WifiConfiguration config = new WifiConfiguration();
+        assertTrue(HiddenApi.isNetworkEnabled(config));
+        assertEquals(0, HiddenApi.getNetworkSelectionDisableReason(config));
+        // 第二次使用缓存的查找结果
+        assertTrue(HiddenApi.isNetworkEnabled(config));
+    }
+
+    @Test
+    public void nullReceiver_returnsDefaults() {
+        assertTrue(HiddenApi.isNetworkEnabled(null));
+        assertEquals(0, HiddenApi.getNetworkSelectionDisableReason(null));
+        assertNull(HiddenApi.getCurrentNetwork(null));
+    }
+}
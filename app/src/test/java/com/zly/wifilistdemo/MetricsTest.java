@@ -0,0 +1,138 @@
+package com.zly.wifilistdemo;
+
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link Histogram} 的精度和并发计数，以及 {@link Metrics} 各阶段的计时
+ */
+public class MetricsTest {
+
+    @Test
+    public void buckets_coverRangeWithoutGaps() {
+        assertEquals(0, Histogram.index(0));
+        assertEquals(7, Histogram.index(7));
+        for (int i = 1; i < Histogram.BUCKET_COUNT; i++) {
+            long lower = Histogram.upperBound(i - 1) + 1;
+            assertEquals(i, Histogram.index(lower));
+            assertEquals(i, Histogram.index(Histogram.upperBound(i)));
+            assertTrue(Histogram.upperBound(i) - lower <= lower / 8);
+        }
+        assertEquals(Long.MAX_VALUE, Histogram.upperBound(Histogram.BUCKET_COUNT - 1));
+    }
+
+    @Test
+    public void percentiles_withinBucketError() {
+        Histogram histogram = new Histogram();
+        Random random = new Random(1);
+        long[] values = new long[10000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 1000 + random.nextInt(50_000_000);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double fraction : new double[]{0.5, 0.9, 0.99}) {
+            long exact = values[(int) Math.ceil(fraction * values.length) - 1];
+            long estimate = histogram.getPercentile(fraction);
+            assertTrue(estimate >= exact);
+            assertTrue(estimate <= exact + exact / 8);
+        }
+        assertEquals(values[values.length - 1], histogram.getPercentile(1));
+        assertEquals(values[values.length - 1], histogram.getMax());
+        assertEquals(values.length, histogram.getCount());
+    }
+
+    @Test
+    public void concurrentRecords_areAllCounted() throws InterruptedException {
+        Histogram histogram = new Histogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int seed = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record((i * 31 + seed) % 1_000_000);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(400_000, histogram.getCount());
+        assertEquals(400_000, histogram.getCount());
+        assertEquals(999_999, histogram.getMax());
+        assertEquals(999_999, histogram.getPercentile(1));
+    }
+
+    @Test
+    public void stages_measuredOncePerCycle() throws InterruptedException {
+        Metrics metrics = new Metrics();
+        metrics.markScanRequested();
+        // 结果返回之前重复请求不重新计时
+        Thread.sleep(5);
+        metrics.markScanRequested();
+        metrics.markScanResults();
+        metrics.markScanResults();
+        metrics.markMerged(true);
+        metrics.markRowsChanged();
+        metrics.markRowsChanged();
+        metrics.markRowsBound();
+        metrics.markRowsBound();
+
+        Histogram scan = metrics.getHistogram(Metrics.HISTOGRAM_SCAN);
+        assertEquals(1, scan.getCount());
+        assertTrue(scan.getMax() >= 5_000_000);
+        assertEquals(1, metrics.getHistogram(Metrics.HISTOGRAM_MERGE).getCount());
+        assertEquals(1, metrics.getHistogram(Metrics.HISTOGRAM_RENDER).getCount());
+        assertEquals(1, metrics.getCounter(Metrics.COUNTER_UPDATES));
+
+        // 没有扫描结果的更新不计入 results -> merged，没有变化的更新不计入 merged -> rows bound
+        metrics.markMerged(false);
+        metrics.markRowsBound();
+        assertEquals(1, metrics.getHistogram(Metrics.HISTOGRAM_MERGE).getCount());
+        assertEquals(1, metrics.getHistogram(Metrics.HISTOGRAM_RENDER).getCount());
+    }
+
+    @Test
+    public void dump_listsEveryMetric() {
+        Metrics metrics = new Metrics();
+        metrics.increment(Metrics.COUNTER_BROADCAST_SCAN_RESULTS);
+        metrics.add(Metrics.COUNTER_BINDER_CALLS, 3);
+        metrics.record(Metrics.HISTOGRAM_ALLOCATIONS, 42);
+        StringWriter text = new StringWriter();
+        metrics.dump(new PrintWriter(text));
+        String dump = text.toString();
+        assertTrue(dump, dump.matches("(?s).*\\bSCAN_RESULTS +1\n.*"));
+        assertTrue(dump, dump.matches("(?s).*\\bbinder calls +3\n.*"));
+        assertTrue(dump, dump.matches("(?s).*allocations/update +n=1 +p50=42\\.00 .*"));
+
+        metrics.reset();
+        assertEquals(0, metrics.getCounter(Metrics.COUNTER_BINDER_CALLS));
+        assertEquals(0, metrics.getHistogram(Metrics.HISTOGRAM_ALLOCATIONS).getCount());
+    }
+
+    @Test
+    public void gauges_areReadWhenDumped() {
+        Metrics metrics = new Metrics();
+        long[] value = {1};
+        metrics.register("merged events", () -> value[0]);
+        value[0] = 5;
+        StringWriter text = new StringWriter();
+        metrics.dump(new PrintWriter(text));
+        assertTrue(text.toString(), text.toString().matches("(?s).*\\bmerged events +5\n.*"));
+
+        // 同名的计数替换之前登记的
+        metrics.register("merged events", () -> 7);
+        assertEquals(7, metrics.getGauge("merged events").get());
+    }
+}
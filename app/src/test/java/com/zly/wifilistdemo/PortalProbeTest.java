@@ -0,0 +1,166 @@
+package com.zly.wifilistdemo;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.schedulers.Schedulers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 用本地 HTTP 服务模拟 204、跳转、慢响应和错误几种探测地址
+ */
+public class PortalProbeTest {
+    private static final long SLOW_MILLIS = 5_000;
+
+    private HttpServer server;
+    private final AtomicInteger errorRequests = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/generate_204", exchange -> {
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.createContext("/redirect", exchange -> {
+            exchange.getResponseHeaders().add("Location", "http://login.example.com/");
+            exchange.sendResponseHeaders(302, -1);
+            exchange.close();
+        });
+        server.createContext("/login_page", exchange -> {
+            byte[] body = "<html>login</html>".getBytes("UTF-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(SLOW_MILLIS);
+                exchange.sendResponseHeaders(204, -1);
+            } catch (InterruptedException | IOException ignored) {
+            } finally {
+                exchange.close();
+            }
+        });
+        server.createContext("/error", exchange -> {
+            errorRequests.incrementAndGet();
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    /**
+     * 本地没有 TLS，用普通 HTTP 地址扮演 HTTPS 探测
+     */
+    private PortalProbe.Endpoint https(String path) {
+        return new PortalProbe.Endpoint(url(path), PortalProbe.Endpoint.TYPE_HTTPS);
+    }
+
+    private PortalProbe.Endpoint http(String path) {
+        return new PortalProbe.Endpoint(url(path), PortalProbe.Endpoint.TYPE_HTTP);
+    }
+
+    private PortalProbe.Result probe(int maxAttempts, PortalProbe.Endpoint... endpoints) {
+        PortalProbe.Config config = new PortalProbe.Config(Arrays.asList(endpoints), 2_000, maxAttempts, 50, 200);
+        return new PortalProbe(url -> url.openConnection(), config, Schedulers.io()).probe().blockingGet();
+    }
+
+    private static int closedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Test
+    public void bothAnswer204_isValidated() {
+        PortalProbe.Result result = probe(1, http("/generate_204"), https("/generate_204"));
+        assertEquals(PortalProbe.RESULT_VALIDATED, result.status);
+    }
+
+    @Test
+    public void redirect_isPortal_withoutWaitingForSlowProbe() {
+        long start = System.nanoTime();
+        PortalProbe.Result result = probe(1, http("/redirect"), https("/slow"));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        assertEquals(PortalProbe.RESULT_PORTAL, result.status);
+        assertEquals("http://login.example.com/", result.redirectUrl);
+        assertTrue("took " + elapsedMillis + " ms", elapsedMillis < 1_500);
+    }
+
+    @Test
+    public void loginPageContent_isPortal() {
+        assertEquals(PortalProbe.RESULT_PORTAL, probe(1, http("/login_page"), https("/error")).status);
+    }
+
+    @Test
+    public void fastHttps_winsOverSlowHttp() {
+        long start = System.nanoTime();
+        PortalProbe.Result result = probe(1, http("/slow"), https("/generate_204"));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        assertEquals(PortalProbe.RESULT_VALIDATED, result.status);
+        assertTrue("took " + elapsedMillis + " ms", elapsedMillis < 1_500);
+    }
+
+    @Test
+    public void httpOnlyReachable_isPartial() throws IOException {
+        PortalProbe.Endpoint unreachable = new PortalProbe.Endpoint(
+                "http://127.0.0.1:" + closedPort() + "/generate_204", PortalProbe.Endpoint.TYPE_HTTPS);
+        assertEquals(PortalProbe.RESULT_PARTIAL, probe(1, http("/generate_204"), unreachable).status);
+    }
+
+    @Test
+    public void slowProbe_timesOut() {
+        PortalProbe.Config config = new PortalProbe.Config(Arrays.asList(http("/slow"), https("/slow")),
+                300, 1, 50, 200);
+        long start = System.nanoTime();
+        PortalProbe.Result result = new PortalProbe(url -> url.openConnection(), config, Schedulers.io())
+                .probe().blockingGet();
+        assertEquals(PortalProbe.RESULT_NO_INTERNET, result.status);
+        assertTrue((System.nanoTime() - start) / 1_000_000 < 1_500);
+    }
+
+    @Test
+    public void allFailing_retriesWithBoundedAttempts() {
+        PortalProbe.Result result = probe(3, http("/error"), https("/error"));
+        assertEquals(PortalProbe.RESULT_NO_INTERNET, result.status);
+        assertEquals(3, result.attempts);
+        assertEquals(6, errorRequests.get());
+    }
+
+    @Test
+    public void backoff_isExponentialAndCapped() {
+        PortalProbe.Config config = new PortalProbe.Config(Arrays.asList(http("/error")), 1_000, 10, 100, 500);
+        PortalProbe probe = new PortalProbe(url -> url.openConnection(), config, Schedulers.io());
+        assertEquals(100, probe.backoff(1));
+        assertEquals(200, probe.backoff(2));
+        assertEquals(400, probe.backoff(3));
+        assertEquals(500, probe.backoff(4));
+        assertEquals(500, probe.backoff(9));
+    }
+}
@@ -0,0 +1,147 @@
+package com.zly.wifilistdemo;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Single;
+import io.reactivex.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * 用 TestScheduler 控制时间，校验缓存的过期和持久化
+ */
+public class PortalResultCacheTest {
+    private static final PortalResultCache.Config CONFIG = new PortalResultCache.Config(
+            TimeUnit.HOURS.toMillis(1), TimeUnit.DAYS.toMillis(1), 2);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private TestScheduler clock;
+    private final AtomicInteger probes = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        file = new File(folder.getRoot(), "portal_results");
+        clock = new TestScheduler();
+        clock.advanceTimeTo(TimeUnit.DAYS.toMillis(100), TimeUnit.MILLISECONDS);
+    }
+
+    private Single<PortalProbe.Result> probe(int status) {
+        return Single.fromCallable(() -> {
+            probes.incrementAndGet();
+            return new PortalProbe.Result(status, null, null, 1);
+        });
+    }
+
+    @Test
+    public void miss_probesAndStores() {
+        PortalResultCache cache = new PortalResultCache(file, CONFIG, clock);
+        cache.check("b1", "corp", probe(PortalProbe.RESULT_PORTAL)).test()
+                .assertValues(PortalProbe.RESULT_PORTAL);
+        assertEquals(1, probes.get());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void freshHit_doesNotProbe() {
+        PortalResultCache cache = new PortalResultCache(file, CONFIG, clock);
+        cache.put("b1", "corp", PortalProbe.RESULT_VALIDATED);
+        cache.check("b1", "corp", probe(PortalProbe.RESULT_PORTAL)).test()
+                .assertValues(PortalProbe.RESULT_VALIDATED);
+        assertEquals(0, probes.get());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void staleHit_emitsCachedThenRevalidates() {
+        PortalResultCache cache = new PortalResultCache(file, CONFIG, clock);
+        cache.put("b1", "corp", PortalProbe.RESULT_VALIDATED);
+        clock.advanceTimeBy(2, TimeUnit.HOURS);
+        cache.check("b1", "corp", probe(PortalProbe.RESULT_PORTAL)).test()
+                .assertValues(PortalProbe.RESULT_VALIDATED, PortalProbe.RESULT_PORTAL);
+        assertEquals(1, cache.getStaleHitCount());
+        assertEquals(PortalProbe.RESULT_PORTAL, cache.get("b1", "corp").status);
+
+        // 结果没变时只发出一次
+        clock.advanceTimeBy(2, TimeUnit.HOURS);
+        cache.check("b1", "corp", probe(PortalProbe.RESULT_PORTAL)).test()
+                .assertValues(PortalProbe.RESULT_PORTAL);
+    }
+
+    @Test
+    public void freshPortal_isRevalidated() {
+        PortalResultCache cache = new PortalResultCache(file, CONFIG, clock);
+        cache.put("b1", "corp", PortalProbe.RESULT_PORTAL);
+        cache.check("b1", "corp", probe(PortalProbe.RESULT_PORTAL)).test()
+                .assertValues(PortalProbe.RESULT_PORTAL);
+        assertEquals(1, probes.get());
+
+        // 用户登录之后系统报告网络已验证，重新连接时直接使用，不再提示登录
+        cache.put("b1", "corp", PortalProbe.RESULT_VALIDATED);
+        cache.check("b1", "corp", probe(PortalProbe.RESULT_PORTAL)).test()
+                .assertValues(PortalProbe.RESULT_VALIDATED);
+        assertEquals(1, probes.get());
+    }
+
+    @Test
+    public void expiredEntry_isMiss() {
+        PortalResultCache cache = new PortalResultCache(file, CONFIG, clock);
+        cache.put("b1", "corp", PortalProbe.RESULT_VALIDATED);
+        clock.advanceTimeBy(2, TimeUnit.DAYS);
+        assertNull(cache.get("b1", "corp"));
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void keyIncludesSsidAndBssid() {
+        PortalResultCache cache = new PortalResultCache(file, CONFIG, clock);
+        cache.put("b1", "corp", PortalProbe.RESULT_VALIDATED);
+        assertNull(cache.get("b2", "corp"));
+        assertNull(cache.get("b1", "guest"));
+    }
+
+    @Test
+    public void survivesRestart() {
+        new PortalResultCache(file, CONFIG, clock).put("b1", "corp", PortalProbe.RESULT_PORTAL);
+        PortalResultCache.Entry entry = new PortalResultCache(file, CONFIG, clock).get("b1", "corp");
+        assertNotNull(entry);
+        assertEquals(PortalProbe.RESULT_PORTAL, entry.status);
+    }
+
+    @Test
+    public void leastRecentlyUsed_isEvicted() {
+        PortalResultCache cache = new PortalResultCache(file, CONFIG, clock);
+        cache.put("b1", "a", PortalProbe.RESULT_VALIDATED);
+        cache.put("b2", "b", PortalProbe.RESULT_VALIDATED);
+        cache.get("b1", "a");
+        cache.put("b3", "c", PortalProbe.RESULT_VALIDATED);
+        PortalResultCache reloaded = new PortalResultCache(file, CONFIG, clock);
+        assertNotNull(reloaded.get("b1", "a"));
+        assertNull(reloaded.get("b2", "b"));
+        assertNotNull(reloaded.get("b3", "c"));
+    }
+
+    @Test
+    public void corruptedFile_isIgnored() throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[]{0x50, 0x52, 0x43, 0x31, 0, 0, 0, 1, 0, 0, 0, 9, 1, 2});
+        }
+        PortalResultCache cache = new PortalResultCache(file, CONFIG, clock);
+        assertNull(cache.get("b1", "corp"));
+        cache.put("b1", "corp", PortalProbe.RESULT_VALIDATED);
+        assertNotNull(new PortalResultCache(file, CONFIG, clock).get("b1", "corp"));
+    }
+}
@@ -0,0 +1,123 @@
+package com.zly.wifilistdemo;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * 保存和读取扫描结果，文件损坏时必须返回 null
+ */
+public class ScanSnapshotStoreTest {
+    private static final String[] CAPABILITIES = {
+            "[WPA2-PSK-CCMP][ESS]", "[WPA-PSK-CCMP+TKIP][WPA2-PSK-CCMP+TKIP][ESS][WPS]", "[ESS]",
+            "[RSN-SAE-CCMP][ESS][MFPR][MFPC]"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private ScanSnapshotStore store;
+
+    @Before
+    public void setUp() {
+        file = new File(folder.getRoot(), "last_scan");
+        store = new ScanSnapshotStore(file);
+    }
+
+    private static List<WifiScanRecord> records(int size, Random random) {
+        List<WifiScanRecord> records = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            // 每 5 个 BSSID 属于同一个 SSID
+            records.add(new WifiScanRecord("网络-" + (i / 5), String.format("a0:b1:c2:%02x:%02x:%02x",
+                    i >> 16 & 0xff, i >> 8 & 0xff, i & 0xff), CAPABILITIES[(i / 5) % CAPABILITIES.length],
+                    -30 - random.nextInt(70), random.nextBoolean() ? 2412 : 5745));
+        }
+        return records;
+    }
+
+    private static List<AccessPoint> merge(List<WifiScanRecord> records) {
+        return new AccessPointMerger(null, new SignalEstimator(1, 0))
+                .merge(records, null, null, null, null).getAccessPoints();
+    }
+
+    private static List<String> describe(List<AccessPoint> accessPoints) {
+        List<String> descriptions = new ArrayList<>();
+        for (AccessPoint accessPoint : accessPoints) {
+            for (WifiScanRecord record : accessPoint.getScanRecords()) {
+                descriptions.add(accessPoint.getKey() + " " + record.bssid + " " + record.capabilities
+                        + " " + record.level + " " + record.frequency);
+            }
+        }
+        return descriptions;
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        List<AccessPoint> accessPoints = merge(records(500, new Random(1)));
+        store.write(accessPoints, 1234L);
+        ScanSnapshotStore.Saved saved = store.read();
+        assertNotNull(saved);
+        assertEquals(1234L, saved.savedAt);
+        assertEquals(500, saved.records.size());
+        assertEquals(describe(accessPoints), describe(merge(saved.records)));
+    }
+
+    @Test
+    public void missingFile_returnsNull() {
+        assertNull(store.read());
+    }
+
+    @Test
+    public void corruptedPayload_returnsNull() throws IOException {
+        store.write(merge(records(50, new Random(2))), 1L);
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.seek(file.length() / 2);
+            int b = out.read();
+            out.seek(file.length() / 2);
+            out.write(b ^ 0x40);
+        }
+        assertNull(store.read());
+    }
+
+    @Test
+    public void truncatedFile_returnsNull() throws IOException {
+        store.write(merge(records(50, new Random(3))), 1L);
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(file.length() - 7);
+        }
+        assertNull(store.read());
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(10);
+        }
+        assertNull(store.read());
+    }
+
+    @Test
+    public void unknownVersion_returnsNull() throws IOException {
+        store.write(merge(records(5, new Random(4))), 1L);
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.seek(4);
+            out.writeInt(99);
+        }
+        assertNull(store.read());
+    }
+
+    @Test
+    public void bssid_packsAndUnpacks() {
+        assertEquals("a0:b1:c2:0d:ee:ff", WifiScanRecord.unpackBssid(WifiScanRecord.packBssid("A0:B1:C2:0D:EE:FF")));
+        assertNull(WifiScanRecord.unpackBssid(WifiScanRecord.packBssid(null)));
+        assertNull(WifiScanRecord.unpackBssid(WifiScanRecord.packBssid("not a mac address")));
+    }
+}
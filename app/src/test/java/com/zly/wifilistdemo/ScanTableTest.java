@@ -0,0 +1,91 @@
+package com.zly.wifilistdemo;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 按列存放的扫描结果，以及按压缩 BSSID 保存的信号历史
+ */
+public class ScanTableTest {
+    @Test
+    public void of_keepsEveryField() {
+        List<WifiScanRecord> records = Arrays.asList(
+                new WifiScanRecord("会议室", "A0:B1:C2:D3:E4:F5", "[WPA2-PSK-CCMP][ESS]", -70, 2412),
+                new WifiScanRecord("会议室", "a0:b1:c2:d3:e4:f6", "[WPA-PSK-TKIP][ESS]", -45, 5180),
+                new WifiScanRecord("会议室", "bad", "[WPA2-PSK-CCMP][ESS]", -90, 2437));
+        ScanTable table = ScanTable.of(records);
+        assertEquals(3, table.size());
+        assertEquals(1, table.getStrongest());
+        assertEquals(0xa0b1c2d3e4f6L, table.getBssid(1));
+        assertEquals(WifiScanRecord.NO_BSSID, table.getBssid(2));
+
+        List<WifiScanRecord> restored = table.asList();
+        assertEquals(3, restored.size());
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals("会议室", restored.get(i).ssid);
+            assertEquals(records.get(i).capabilities, restored.get(i).capabilities);
+            assertEquals(records.get(i).level, restored.get(i).level);
+            assertEquals(records.get(i).frequency, restored.get(i).frequency);
+        }
+        assertEquals("a0:b1:c2:d3:e4:f5", restored.get(0).bssid);
+        assertNull(restored.get(2).bssid);
+        assertEquals(AccessPoint.PSK_WPA, table.getCapabilities(1).pskType);
+    }
+
+    @Test
+    public void equalCapabilities_areShared() {
+        ScanTable table = ScanTable.of(Arrays.asList(
+                new WifiScanRecord("a", "00:00:00:00:00:01", new String("[WPA2-PSK-CCMP][ESS]"), -50, 2412),
+                new WifiScanRecord("a", "00:00:00:00:00:02", new String("[WPA2-PSK-CCMP][ESS]"), -60, 2412)));
+        assertSame(table.getCapabilities(0), table.getCapabilities(1));
+        assertSame(table.getRecord(0).capabilities, table.getRecord(1).capabilities);
+    }
+
+    @Test
+    public void accessPoint_readsStrongestRow() {
+        AccessPoint accessPoint = new AccessPoint(null, ScanTable.of(Arrays.asList(
+                new WifiScanRecord("mesh", "00:00:00:00:00:01", "[ESS]", -80, 2412),
+                new WifiScanRecord("mesh", "00:00:00:00:00:02", "[ESS]", -40, 2412))));
+        assertEquals("mesh", accessPoint.ssid);
+        assertEquals("00:00:00:00:00:02", accessPoint.bssid);
+        assertEquals(-40, accessPoint.getRssi());
+        assertEquals(AccessPoint.SECURITY_NONE, accessPoint.security);
+
+        String bssid = accessPoint.bssid;
+        // 代表的 BSSID 没变时不重新生成字符串
+        assertTrue(accessPoint.update(ScanTable.of(Arrays.asList(
+                new WifiScanRecord("mesh", "00:00:00:00:00:02", "[ESS]", -42, 2412)))));
+        assertSame(bssid, accessPoint.bssid);
+        assertEquals(1, accessPoint.getScanTable().size());
+    }
+
+    @Test
+    public void signalEstimator_keepsHistoryAcrossGrowthAndExpiry() {
+        SignalEstimator estimator = new SignalEstimator(3, 0);
+        estimator.beginScan();
+        for (long bssid = 0; bssid < 1000; bssid++) {
+            assertEquals(-60, estimator.estimate(bssid, -60));
+        }
+        estimator.beginScan();
+        // alpha = 0.5
+        assertEquals(-50, estimator.estimate(7, -40));
+        // 同一轮重复出现不再平滑
+        assertEquals(-50, estimator.estimate(7, -40));
+        assertEquals(-40, estimator.estimate(WifiScanRecord.NO_BSSID, -40));
+
+        for (int i = 0; i < 4; i++) {
+            estimator.beginScan();
+            estimator.estimate(7, -40);
+        }
+        // 其余 BSSID 连续 4 轮没有出现，历史已丢弃
+        assertEquals(-80, estimator.estimate(8, -80));
+        assertTrue(estimator.estimate(7, -40) > -42);
+    }
+}
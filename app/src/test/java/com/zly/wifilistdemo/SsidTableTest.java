@@ -0,0 +1,100 @@
+package com.zly.wifilistdemo;
+
+import android.net.wifi.WifiConfiguration;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * SSID 符号的唯一性、预先计算的形式，以及容量之外的回收
+ */
+public class SsidTableTest {
+
+    @Test
+    public void intern_returnsSameSymbolForEveryForm() {
+        SsidTable table = new SsidTable(8);
+        SsidTable.Symbol symbol = table.intern("Office");
+        assertSame(symbol, table.intern(new String("Office")));
+        assertSame(symbol, table.internQuoted("\"Office\""));
+        assertEquals("Office", symbol.raw);
+        assertEquals("\"Office\"", symbol.quoted);
+        assertEquals("office", symbol.collationKey);
+        assertNotSame(symbol, table.intern("office"));
+
+        // 十六进制 SSID 和 <unknown ssid> 不带引号
+        assertEquals("e4bda0e5a5bd", table.internQuoted("e4bda0e5a5bd").raw);
+        assertEquals("<unknown ssid>", table.internQuoted("<unknown ssid>").raw);
+        assertSame(table.intern(""), table.internQuoted(null));
+        assertSame(table.intern(""), table.internQuoted("\"\""));
+        assertEquals("\"", table.internQuoted("\"").raw);
+    }
+
+    @Test
+    public void collationKey_ordersLikeCompareToIgnoreCase() {
+        SsidTable table = new SsidTable(8);
+        String[] ssids = {"abc", "ABD", "Straße", "STRASSE", "İstanbul", "istanbul", "会议室"};
+        for (String a : ssids) {
+            for (String b : ssids) {
+                assertEquals(a + " " + b, Integer.signum(a.compareToIgnoreCase(b)),
+                        Integer.signum(table.intern(a).collationKey.compareTo(table.intern(b).collationKey)));
+            }
+        }
+    }
+
+    @Test
+    public void unreferencedSymbols_areEvictedAndIdsReused() throws InterruptedException {
+        SsidTable table = new SsidTable(2);
+        SsidTable.Symbol kept = table.intern("kept");
+        int keptId = kept.id;
+        for (int i = 0; i < 100; i++) {
+            table.intern("transient-" + i);
+        }
+        for (int i = 0; i < 50 && table.size() > 3; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        // 还被引用的符号和最近的两个符号保留
+        assertTrue("size=" + table.size(), table.size() <= 3);
+        assertSame(kept, table.intern("kept"));
+        assertEquals(keptId, kept.id);
+
+        List<SsidTable.Symbol> symbols = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            symbols.add(table.intern("again-" + i));
+        }
+        for (SsidTable.Symbol symbol : symbols) {
+            assertTrue(symbol.toString(), symbol.id < 101);
+        }
+    }
+
+    @Test
+    public void accessPoint_matchesConfigurationBySymbol() {
+        AccessPoint accessPoint = new AccessPoint(null, new WifiScanRecord("Lobby", "00:00:00:00:00:01",
+                "[WPA2-PSK-CCMP][ESS]", -50, 2412));
+        WifiConfiguration config = AccessPointMergerTest.config("\"Lobby\"", 3, AccessPoint.SECURITY_PSK);
+        AccessPoint saved = new AccessPoint(config);
+        assertSame(accessPoint.getSsidSymbol(), saved.getSsidSymbol());
+        assertEquals(accessPoint, saved);
+        assertEquals("\"Lobby\"", accessPoint.getQuotedSSID());
+        assertSame(accessPoint.getQuotedSSID(), accessPoint.getQuotedSSID());
+        assertSame(accessPoint.getKey(), accessPoint.getKey());
+
+        SavedNetworkIndex index = new SavedNetworkIndex(null);
+        index.setConfigurations(Collections.singletonList(config));
+        assertSame(config, index.get(accessPoint.getSsidSymbol(), AccessPoint.SECURITY_PSK));
+        assertSame(config, index.get("Lobby", AccessPoint.SECURITY_PSK));
+
+        // 直接改写 ssid 字段后重新查找符号
+        accessPoint.ssid = "Lobby 2";
+        assertEquals("\"Lobby 2\"", accessPoint.getQuotedSSID());
+        assertEquals("Lobby 2,2", accessPoint.getKey());
+    }
+}
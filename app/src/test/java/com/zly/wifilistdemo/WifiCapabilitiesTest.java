@@ -0,0 +1,111 @@
+package com.zly.wifilistdemo;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 用真实设备上出现过的 capabilities 校验解析结果
+ */
+public class WifiCapabilitiesTest {
+    private static final int NONE = AccessPoint.SECURITY_NONE;
+    private static final int WEP = AccessPoint.SECURITY_WEP;
+    private static final int PSK = AccessPoint.SECURITY_PSK;
+    private static final int EAP = AccessPoint.SECURITY_EAP;
+    private static final int SAE = AccessPoint.SECURITY_SAE;
+    private static final int OWE = AccessPoint.SECURITY_OWE;
+    private static final int SUITE_B = AccessPoint.SECURITY_EAP_SUITE_B;
+
+    /**
+     * capabilities, security, pskType
+     */
+    private static final Object[][] CASES = {
+            {"", NONE, AccessPoint.PSK_UNKNOWN},
+            {"[ESS]", NONE, AccessPoint.PSK_UNKNOWN},
+            {"[IBSS]", NONE, AccessPoint.PSK_UNKNOWN},
+            {"[WEP][ESS]", WEP, AccessPoint.PSK_UNKNOWN},
+            {"[WPA-PSK-TKIP][ESS]", PSK, AccessPoint.PSK_WPA},
+            {"[WPA2-PSK-CCMP][ESS]", PSK, AccessPoint.PSK_WPA2},
+            {"[WPA2-PSK-CCMP][ESS][WPS]", PSK, AccessPoint.PSK_WPA2},
+            {"[WPA-PSK-CCMP+TKIP][WPA2-PSK-CCMP+TKIP][ESS]", PSK, AccessPoint.PSK_WPA_WPA2},
+            {"[WPA-PSK-CCMP+TKIP][WPA2-PSK-CCMP+TKIP][ESS][WPS]", PSK, AccessPoint.PSK_WPA_WPA2},
+            {"[WPA2-PSK-CCMP][RSN-PSK-CCMP][ESS]", PSK, AccessPoint.PSK_WPA2},
+            {"[WPA2-PSK+FT/PSK-CCMP][ESS]", PSK, AccessPoint.PSK_WPA2},
+            {"[WPA2-PSK-SHA256-CCMP][ESS]", PSK, AccessPoint.PSK_WPA2},
+            // WPA2/WPA3 过渡模式
+            {"[RSN-PSK+SAE-CCMP][ESS]", PSK, AccessPoint.PSK_WPA2},
+            {"[WPA2-PSK+SAE-CCMP][RSN-PSK+SAE-CCMP][ESS][MFPC]", PSK, AccessPoint.PSK_WPA2},
+            {"[RSN-SAE-CCMP][ESS]", SAE, AccessPoint.PSK_UNKNOWN},
+            {"[RSN-SAE+FT/SAE-CCMP][ESS][MFPR][MFPC]", SAE, AccessPoint.PSK_UNKNOWN},
+            {"[RSN-OWE-CCMP][ESS][MFPR][MFPC]", OWE, AccessPoint.PSK_UNKNOWN},
+            {"[RSN-OWE_TRANSITION-CCMP][ESS]", NONE, AccessPoint.PSK_UNKNOWN},
+            {"[WPA2-EAP-CCMP][ESS]", EAP, AccessPoint.PSK_UNKNOWN},
+            {"[WPA2-EAP/SHA1-CCMP][RSN-EAP/SHA1-CCMP][ESS]", EAP, AccessPoint.PSK_UNKNOWN},
+            {"[WPA2-EAP+FT/EAP-CCMP][ESS]", EAP, AccessPoint.PSK_UNKNOWN},
+            {"[RSN-EAP_SUITE_B_192-GCMP-256][ESS][MFPR][MFPC]", SUITE_B, AccessPoint.PSK_UNKNOWN},
+            {"[WPA2-EAP/SHA1+EAP_SUITE_B_192-GCMP-256][ESS]", SUITE_B, AccessPoint.PSK_UNKNOWN},
+    };
+
+    @Test
+    public void classify() {
+        for (Object[] c : CASES) {
+            String capabilities = (String) c[0];
+            WifiCapabilities parsed = WifiCapabilities.tokenize(capabilities);
+            assertEquals(capabilities, c[1], parsed.security);
+            assertEquals(capabilities, c[2], parsed.pskType);
+        }
+    }
+
+    @Test
+    public void bitmask() {
+        WifiCapabilities parsed = WifiCapabilities.tokenize("[WPA-PSK-CCMP+TKIP][WPA2-PSK+SAE-CCMP][ESS][WPS]");
+        assertEquals(WifiCapabilities.PROTO_WPA | WifiCapabilities.PROTO_RSN, parsed.protocols);
+        assertEquals(WifiCapabilities.KEY_MGMT_PSK | WifiCapabilities.KEY_MGMT_SAE, parsed.keyManagement);
+        assertEquals(WifiCapabilities.CIPHER_CCMP | WifiCapabilities.CIPHER_TKIP, parsed.ciphers);
+        assertEquals(WifiCapabilities.FLAG_ESS | WifiCapabilities.FLAG_WPS, parsed.flags);
+        assertTrue(parsed.isPskSaeTransition());
+
+        parsed = WifiCapabilities.tokenize("[RSN-EAP_SUITE_B_192-GCMP-256][ESS]");
+        assertEquals(WifiCapabilities.KEY_MGMT_EAP_SUITE_B_192, parsed.keyManagement);
+        assertEquals(WifiCapabilities.CIPHER_GCMP_256, parsed.ciphers);
+        assertFalse(parsed.isPskSaeTransition());
+    }
+
+    @Test
+    public void sha256KeyManagement_keepsCiphers() {
+        WifiCapabilities parsed = WifiCapabilities.tokenize("[WPA2-PSK-SHA256-CCMP][ESS]");
+        assertEquals(WifiCapabilities.KEY_MGMT_PSK_SHA256, parsed.keyManagement);
+        assertEquals(WifiCapabilities.CIPHER_CCMP, parsed.ciphers);
+
+        parsed = WifiCapabilities.tokenize("[RSN-PSK+PSK-SHA256-CCMP+TKIP][ESS]");
+        assertEquals(WifiCapabilities.KEY_MGMT_PSK | WifiCapabilities.KEY_MGMT_PSK_SHA256, parsed.keyManagement);
+        assertEquals(WifiCapabilities.CIPHER_CCMP | WifiCapabilities.CIPHER_TKIP, parsed.ciphers);
+
+        parsed = WifiCapabilities.tokenize("[RSN-EAP-SHA256-GCMP-256][ESS]");
+        assertEquals(WifiCapabilities.KEY_MGMT_EAP_SHA256, parsed.keyManagement);
+        assertEquals(WifiCapabilities.CIPHER_GCMP_256, parsed.ciphers);
+
+        parsed = WifiCapabilities.tokenize("[WPA2-EAP-SHA256]");
+        assertEquals(WifiCapabilities.KEY_MGMT_EAP_SHA256, parsed.keyManagement);
+        assertEquals(0, parsed.ciphers);
+    }
+
+    @Test
+    public void malformed_doesNotThrow() {
+        String[] inputs = {"[", "]", "[WPA2", "[WPA2-", "[WPA2-PSK-", "[-][--][+]", "WPA2-PSK-CCMP", "[WPA2-PSK-CCMP"};
+        for (String input : inputs) {
+            WifiCapabilities.tokenize(input);
+        }
+        assertEquals(PSK, WifiCapabilities.tokenize("[WPA2-PSK-CCMP").security);
+        assertEquals(NONE, WifiCapabilities.parse(null).security);
+    }
+
+    @Test
+    public void parse_isCached() {
+        String capabilities = "[WPA2-PSK-CCMP][ESS][cached]";
+        assertSame(WifiCapabilities.parse(capabilities), WifiCapabilities.parse(new String(capabilities)));
+    }
+}
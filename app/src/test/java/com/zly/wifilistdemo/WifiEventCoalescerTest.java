@@ -0,0 +1,151 @@
+package com.zly.wifilistdemo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WifiEventCoalescerTest {
+    private TestScheduler scheduler;
+    private WifiEventCoalescer coalescer;
+
+    @Before
+    public void setUp() {
+        scheduler = new TestScheduler();
+        coalescer = new WifiEventCoalescer(100, 400, TimeUnit.MILLISECONDS, scheduler);
+    }
+
+    @Test
+    public void burst_isMergedIntoOneBatch() {
+        TestObserver<WifiEvent.Batch> observer = coalescer.batches().test();
+        coalescer.post(new WifiEvent(WifiEvent.TYPE_SCAN_RESULTS));
+        scheduler.advanceTimeBy(50, TimeUnit.MILLISECONDS);
+        coalescer.post(new WifiEvent(WifiEvent.TYPE_CONNECTIVITY));
+        scheduler.advanceTimeBy(50, TimeUnit.MILLISECONDS);
+        coalescer.post(new WifiEvent(WifiEvent.TYPE_NETWORK_STATE));
+        observer.assertNoValues();
+
+        scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+        observer.assertValueCount(1);
+        WifiEvent.Batch batch = observer.values().get(0);
+        assertEquals(3, batch.count);
+        assertTrue(batch.has(WifiEvent.TYPE_SCAN_RESULTS));
+        assertTrue(batch.has(WifiEvent.TYPE_NETWORK_STATE));
+        assertEquals(3, coalescer.getReceivedEventCount());
+        assertEquals(2, coalescer.getMergedEventCount());
+    }
+
+    @Test
+    public void quietGap_startsNewBatch() {
+        TestObserver<WifiEvent.Batch> observer = coalescer.batches().test();
+        coalescer.post(new WifiEvent(WifiEvent.TYPE_SCAN_RESULTS));
+        scheduler.advanceTimeBy(200, TimeUnit.MILLISECONDS);
+        coalescer.post(new WifiEvent(WifiEvent.TYPE_SCAN_RESULTS));
+        scheduler.advanceTimeBy(200, TimeUnit.MILLISECONDS);
+
+        observer.assertValueCount(2);
+        assertEquals(0, coalescer.getMergedEventCount());
+    }
+
+    @Test
+    public void continuousEvents_areFlushedAfterMaxWait() {
+        TestObserver<WifiEvent.Batch> observer = coalescer.batches().test();
+        coalescer.post(new WifiEvent(WifiEvent.TYPE_SCAN_RESULTS));
+        for (int i = 0; i < 7; i++) {
+            scheduler.advanceTimeBy(50, TimeUnit.MILLISECONDS);
+            coalescer.post(new WifiEvent(WifiEvent.TYPE_CAPABILITIES));
+        }
+        observer.assertNoValues();
+
+        scheduler.advanceTimeBy(50, TimeUnit.MILLISECONDS);
+        observer.assertValueCount(1);
+        assertEquals(8, observer.values().get(0).count);
+
+        // 新批次重新计时
+        for (int i = 0; i < 7; i++) {
+            coalescer.post(new WifiEvent(WifiEvent.TYPE_CAPABILITIES));
+            scheduler.advanceTimeBy(50, TimeUnit.MILLISECONDS);
+        }
+        observer.assertValueCount(1);
+        coalescer.post(new WifiEvent(WifiEvent.TYPE_CAPABILITIES));
+        scheduler.advanceTimeBy(50, TimeUnit.MILLISECONDS);
+        observer.assertValueCount(2);
+        assertEquals(8, observer.values().get(1).count);
+    }
+
+    @Test
+    public void newBatch_dropsStaleComputation() {
+        TestScheduler worker = new TestScheduler();
+        AtomicInteger computed = new AtomicInteger();
+        TestObserver<Integer> observer = coalescer
+                .process(batch -> computed.incrementAndGet(), worker)
+                .test();
+        coalescer.post(new WifiEvent(WifiEvent.TYPE_SCAN_RESULTS));
+        scheduler.advanceTimeBy(200, TimeUnit.MILLISECONDS);
+        coalescer.post(new WifiEvent(WifiEvent.TYPE_SCAN_RESULTS));
+        scheduler.advanceTimeBy(200, TimeUnit.MILLISECONDS);
+        worker.triggerActions();
+
+        assertEquals(1, computed.get());
+        observer.assertValues(1);
+    }
+
+    @Test
+    public void cancelledBatch_isMergedIntoNext() {
+        TestScheduler worker = new TestScheduler();
+        List<WifiEvent.Batch> processed = new ArrayList<>();
+        TestObserver<Integer> observer = coalescer
+                .process(batch -> {
+                    processed.add(batch);
+                    return batch.count;
+                }, worker)
+                .test();
+        coalescer.post(new WifiEvent(WifiEvent.TYPE_SCAN_RESULTS));
+        scheduler.advanceTimeBy(200, TimeUnit.MILLISECONDS);
+        // 扫描结果还没处理就来了新的批次
+        coalescer.post(new WifiEvent(WifiEvent.TYPE_CAPABILITIES));
+        scheduler.advanceTimeBy(200, TimeUnit.MILLISECONDS);
+        worker.triggerActions();
+
+        assertEquals(1, processed.size());
+        assertTrue(processed.get(0).has(WifiEvent.TYPE_SCAN_RESULTS));
+        assertTrue(processed.get(0).has(WifiEvent.TYPE_CAPABILITIES));
+        observer.assertValues(2);
+
+        // 处理完之后不再并入
+        coalescer.post(new WifiEvent(WifiEvent.TYPE_CAPABILITIES));
+        scheduler.advanceTimeBy(200, TimeUnit.MILLISECONDS);
+        worker.triggerActions();
+        assertFalse(processed.get(1).has(WifiEvent.TYPE_SCAN_RESULTS));
+    }
+
+    @Test
+    public void failedComputation_keepsStreamAlive() {
+        AtomicInteger calls = new AtomicInteger();
+        TestObserver<Integer> observer = coalescer
+                .process(batch -> {
+                    if (calls.incrementAndGet() == 1) {
+                        throw new IllegalStateException("boom");
+                    }
+                    return calls.get();
+                }, scheduler)
+                .test();
+        coalescer.post(new WifiEvent(WifiEvent.TYPE_SCAN_RESULTS));
+        scheduler.advanceTimeBy(200, TimeUnit.MILLISECONDS);
+        coalescer.post(new WifiEvent(WifiEvent.TYPE_SCAN_RESULTS));
+        scheduler.advanceTimeBy(200, TimeUnit.MILLISECONDS);
+
+        observer.assertNoErrors();
+        observer.assertValues(2);
+    }
+}
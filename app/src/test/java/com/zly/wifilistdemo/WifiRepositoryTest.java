@@ -0,0 +1,312 @@
+package com.zly.wifilistdemo;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.disposables.Disposable;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subscribers.TestSubscriber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class WifiRepositoryTest {
+    private static final WifiRepository.Config CONFIG = new WifiRepository.Config(5000, 250, 1000,
+            TimeUnit.DAYS.toMillis(1));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * 用资源 id 代替文字，可以在 JVM 上检查每一行显示的状态
+     */
+    private static final StatusTextTable STATUS_TEXTS = new StatusTextTable() {
+        @Override
+        public String get(int res) {
+            return String.valueOf(res);
+        }
+    };
+
+    private TestScheduler clock;
+    private FakeWifiSystem system;
+    private FakeRegistration registration;
+    private WifiRepository repository;
+
+    /**
+     * 只记录注册和注销的次数，事件由测试直接调用 repository.onEvent
+     */
+    private static class FakeRegistration implements WifiRepository.Registration {
+        int registered;
+        int unregistered;
+
+        @Override
+        public void register(WifiRepository repository) {
+            registered++;
+        }
+
+        @Override
+        public void unregister() {
+            unregistered++;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        clock = new TestScheduler();
+        system = new FakeWifiSystem();
+        registration = new FakeRegistration();
+        repository = new WifiRepository(null, system, registration, null, null, STATUS_TEXTS, CONFIG,
+                clock, clock);
+    }
+
+    private static List<WifiScanRecord> scan(int size) {
+        List<WifiScanRecord> records = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            records.add(new WifiScanRecord("wifi-" + i, String.format("a0:b1:c2:d3:e4:%02x", i),
+                    "[ESS]", -40 - i, 2412));
+        }
+        return records;
+    }
+
+    private void deliverScan(List<WifiScanRecord> records) {
+        system.scanRecords = records;
+        repository.onEvent(new WifiEvent(WifiEvent.TYPE_SCAN_RESULTS));
+        clock.advanceTimeBy(CONFIG.debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static List<String> ssids(List<AccessPoint> accessPoints) {
+        List<String> ssids = new ArrayList<>();
+        for (AccessPoint accessPoint : accessPoints) {
+            ssids.add(accessPoint.ssid);
+        }
+        Collections.sort(ssids);
+        return ssids;
+    }
+
+    private static AccessPointItem item(AccessPointSnapshot snapshot, String ssid) {
+        for (AccessPointItem item : snapshot.items) {
+            if (item.title.equals(ssid)) {
+                return item;
+            }
+        }
+        throw new AssertionError(ssid + " not in " + ssids(snapshot.accessPoints));
+    }
+
+    private static AccessPoint find(AccessPointSnapshot snapshot, String ssid) {
+        for (AccessPoint accessPoint : snapshot.accessPoints) {
+            if (accessPoint.ssid.equals(ssid)) {
+                return accessPoint;
+            }
+        }
+        throw new AssertionError(ssid + " not in " + ssids(snapshot.accessPoints));
+    }
+
+    @Test
+    public void subscribers_shareOneScanLoop() {
+        Disposable first = repository.snapshots().subscribe();
+        Disposable second = repository.snapshots().subscribe();
+        clock.triggerActions();
+
+        assertEquals(2, repository.getSubscriberCount());
+        assertEquals(1, registration.registered);
+        assertEquals(1, system.scanRequests);
+
+        first.dispose();
+        second.dispose();
+        assertEquals(0, repository.getSubscriberCount());
+    }
+
+    @Test
+    public void resubscribeWithinGrace_keepsRunning() {
+        repository.snapshots().subscribe().dispose();
+        clock.advanceTimeBy(CONFIG.graceMillis - 1, TimeUnit.MILLISECONDS);
+        // 旋转屏幕：旧 Activity 已经取消订阅，新 Activity 在宽限期内重新订阅
+        Disposable disposable = repository.snapshots().subscribe();
+        clock.advanceTimeBy(CONFIG.graceMillis * 2, TimeUnit.MILLISECONDS);
+
+        assertEquals(1, registration.registered);
+        assertEquals(0, registration.unregistered);
+        disposable.dispose();
+    }
+
+    @Test
+    public void lastUnsubscribe_stopsAfterGrace() {
+        repository.snapshots().subscribe().dispose();
+        clock.advanceTimeBy(CONFIG.graceMillis - 1, TimeUnit.MILLISECONDS);
+        assertEquals(0, registration.unregistered);
+
+        clock.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+        assertEquals(1, registration.unregistered);
+
+        int scanRequests = system.scanRequests;
+        clock.advanceTimeBy(10, TimeUnit.MINUTES);
+        assertEquals(scanRequests, system.scanRequests);
+
+        Disposable disposable = repository.snapshots().subscribe();
+        assertEquals(2, registration.registered);
+        disposable.dispose();
+    }
+
+    @Test
+    public void newSubscriber_receivesLatestSnapshotImmediately() {
+        TestSubscriber<AccessPointSnapshot> first = repository.snapshots().test();
+        deliverScan(scan(5));
+        first.assertValueCount(1);
+        assertEquals(5, first.values().get(0).items.size());
+
+        // 第二个界面不需要等下一次扫描
+        TestSubscriber<AccessPointSnapshot> second = repository.snapshots().test();
+        second.assertValueCount(1);
+        assertSame(first.values().get(0), second.values().get(0));
+
+        first.dispose();
+        second.dispose();
+    }
+
+    @Test
+    public void slowSubscriber_receivesOnlyLatest() {
+        TestSubscriber<AccessPointSnapshot> fast = repository.snapshots().test();
+        TestSubscriber<AccessPointSnapshot> slow = repository.snapshots().test(0);
+        deliverScan(scan(3));
+        deliverScan(scan(4));
+        deliverScan(scan(5));
+        fast.assertValueCount(3);
+        slow.assertNoValues();
+
+        slow.request(1);
+        slow.assertValueCount(1);
+        assertSame(fast.values().get(2), slow.values().get(0));
+
+        fast.dispose();
+        slow.dispose();
+    }
+
+    @Test
+    public void deltas_coverSkippedSnapshots() {
+        TestSubscriber<AccessPointMerger.Delta> deltas = repository.deltas().test(1);
+        List<WifiScanRecord> records = scan(4);
+        deliverScan(records);
+        deltas.assertValueCount(1);
+        assertEquals(Arrays.asList("wifi-0", "wifi-1", "wifi-2", "wifi-3"), ssids(deltas.values().get(0).added));
+
+        // wifi-0 消失，wifi-4 出现，之后 wifi-1 信号变化；订阅者没有请求，两次变化合并成一个
+        records = new ArrayList<>(scan(5).subList(1, 5));
+        deliverScan(records);
+        records.set(0, new WifiScanRecord("wifi-1", "a0:b1:c2:d3:e4:01", "[ESS]", -90, 2412));
+        deliverScan(records);
+        deltas.request(1);
+        deltas.assertValueCount(2);
+        AccessPointMerger.Delta delta = deltas.values().get(1);
+        assertEquals(Collections.singletonList("wifi-4"), ssids(delta.added));
+        assertEquals(Collections.singletonList("wifi-0"), ssids(delta.removed));
+        assertEquals(Collections.singletonList("wifi-1"), ssids(delta.updated));
+        assertEquals(4, delta.getAccessPoints().size());
+
+        deltas.dispose();
+    }
+
+    private AccessPointSnapshot withScan() {
+        TestSubscriber<AccessPointSnapshot> snapshots = repository.snapshots().test();
+        deliverScan(scan(2));
+        AccessPointSnapshot snapshot = snapshots.values().get(snapshots.values().size() - 1);
+        snapshots.dispose();
+        return snapshot;
+    }
+
+    private WifiRepository withSavedScan(int size) throws IOException {
+        ScanSnapshotStore store = new ScanSnapshotStore(new File(folder.getRoot(), "last_scan"));
+        store.write(new AccessPointMerger(null).merge(scan(size), null, null, null, null).getAccessPoints(),
+                System.currentTimeMillis());
+        return new WifiRepository(null, system, registration, store, null, STATUS_TEXTS, CONFIG,
+                clock, clock);
+    }
+
+    @Test
+    public void savedScan_isShownBeforeFirstScan() throws IOException {
+        repository = withSavedScan(3);
+        TestSubscriber<AccessPointSnapshot> snapshots = repository.snapshots().test();
+        clock.triggerActions();
+
+        snapshots.assertValueCount(1);
+        assertEquals(3, snapshots.values().get(0).items.size());
+        assertTrue(snapshots.values().get(0).items.get(0).stale);
+        snapshots.dispose();
+    }
+
+    @Test
+    public void restoreDisabled_waitsForFirstScan() throws IOException {
+        repository = withSavedScan(3);
+        repository.setRestoreEnabled(false);
+        TestSubscriber<AccessPointSnapshot> snapshots = repository.snapshots().test();
+        clock.triggerActions();
+        snapshots.assertNoValues();
+
+        deliverScan(scan(2));
+        snapshots.assertValueCount(1);
+        assertFalse(snapshots.values().get(0).items.get(0).stale);
+        snapshots.dispose();
+    }
+
+    @Test
+    public void connectionAttempts_doNotReplayFinishedAttempt() {
+        repository.connect(find(withScan(), "wifi-0"), null);
+        repository.onPasswordError();
+        clock.triggerActions();
+
+        // 界面重新订阅时不会再次收到已经结束的尝试
+        TestObserver<ConnectionManager.Attempt> attempts = repository.connectionAttempts().test();
+        attempts.assertNoValues();
+        ConnectionManager.Attempt next = repository.connect(find(withScan(), "wifi-1"), null);
+        attempts.assertValueCount(1);
+        assertEquals(next.id, attempts.values().get(0).id);
+        attempts.dispose();
+    }
+
+    @Test
+    public void passwordError_marksListEntry() {
+        system.configurations = Collections.singletonList(AccessPointMergerTest.config("\"home\"", 7,
+                AccessPoint.SECURITY_PSK));
+        TestSubscriber<AccessPointSnapshot> snapshots = repository.snapshots().test();
+        List<WifiScanRecord> records = scan(3);
+        records.add(new WifiScanRecord("home", "a0:b1:c2:d3:e4:10", "[WPA2-PSK-CCMP][ESS]", -30, 2412));
+        deliverScan(records);
+        AccessPoint home = find(snapshots.values().get(0), "home");
+        assertTrue(home.isSaved());
+        assertEquals(String.valueOf(R.string.network_wifi_status_saved),
+                item(snapshots.values().get(0), "home").status);
+
+        ConnectionManager.Attempt attempt = repository.connect(home, null);
+        assertEquals(7, attempt.networkId);
+        repository.onPasswordError();
+        clock.triggerActions();
+
+        snapshots.assertValueCount(2);
+        AccessPointSnapshot marked = snapshots.values().get(1);
+        String passwordFailure = String.valueOf(R.string.network_wifi_status_password_failure);
+        assertTrue(find(marked, "home").isPasswordError());
+        assertTrue(find(marked, "home").isSaved());
+        assertEquals(passwordFailure, item(marked, "home").status);
+        assertEquals(4, marked.items.size());
+        assertSame(find(snapshots.values().get(0), "wifi-0"), find(marked, "wifi-0"));
+
+        // 下一次扫描仍然显示密码错误，不会先变成未保存再恢复
+        records.set(0, new WifiScanRecord("wifi-0", "a0:b1:c2:d3:e4:00", "[ESS]", -90, 2412));
+        deliverScan(records);
+        snapshots.assertValueCount(3);
+        assertEquals(passwordFailure, item(snapshots.values().get(2), "home").status);
+        snapshots.dispose();
+    }
+}
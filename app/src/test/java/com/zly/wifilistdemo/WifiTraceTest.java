@@ -0,0 +1,169 @@
+package com.zly.wifilistdemo;
+
+import android.net.wifi.WifiConfiguration;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+/**
+ * 轨迹文件的写入和读取；回放在 benchmark 模块中测试
+ */
+public class WifiTraceTest {
+    static final long DEBOUNCE_MILLIS = 250;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setUp() {
+        file = new File(folder.getRoot(), "wifi.trace");
+    }
+
+    private static List<WifiScanRecord> scan(int size, int offset) {
+        List<WifiScanRecord> records = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            records.add(new WifiScanRecord("wifi-" + (i / 2), String.format("a0:b1:c2:00:%02x:%02x", i >> 8, i & 0xff),
+                    i % 3 == 0 ? "[ESS]" : "[WPA2-PSK-CCMP][ESS]", -40 - (i + offset) % 50, 2412 + 5 * (i % 13)));
+        }
+        return records;
+    }
+
+    /**
+     * 按真实的处理流程把一段模拟的扫描过程录制到 file：事件经过去抖后由 ScanPipeline 查询 TraceRecorder
+     *
+     * @return 录制时最后一次处理得到的列表
+     */
+    static List<AccessPoint> record(File file) throws IOException {
+        TestScheduler clock = new TestScheduler();
+        FakeWifiSystem system = new FakeWifiSystem();
+        TraceRecorder recorder = new TraceRecorder(system, new WifiTrace.Writer(file, 0, 0), clock);
+        ScanPipeline pipeline = new ScanPipeline(recorder, new AccessPointMerger(null),
+                new SavedNetworkIndex(recorder));
+        WifiEventCoalescer coalescer = new WifiEventCoalescer(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS, clock);
+        List<AccessPointMerger.Delta> deltas = new ArrayList<>();
+        Disposable disposable = coalescer.process(pipeline::process, Schedulers.trampoline()).subscribe(deltas::add);
+        pipeline.start();
+
+        system.scanRecords = scan(20, 0);
+        system.configurations = Collections.singletonList(AccessPointMergerTest.config("\"wifi-1\"", 7,
+                AccessPoint.SECURITY_PSK));
+        clock.advanceTimeTo(100, TimeUnit.MILLISECONDS);
+        post(recorder, coalescer, WifiEvent.TYPE_SCAN_RESULTS);
+
+        // 连接过程中的一串广播
+        clock.advanceTimeTo(1000, TimeUnit.MILLISECONDS);
+        system.scanRecords = scan(30, 7);
+        for (int i = 0; i < 10; i++) {
+            post(recorder, coalescer, i % 2 == 0 ? WifiEvent.TYPE_CONNECTIVITY : WifiEvent.TYPE_CONFIGURED_NETWORKS);
+            clock.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+        }
+        clock.advanceTimeBy(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        disposable.dispose();
+        recorder.close();
+        assertEquals(2, deltas.size());
+        return deltas.get(deltas.size() - 1).getAccessPoints();
+    }
+
+    private static void post(TraceRecorder recorder, WifiEventCoalescer coalescer, int type) {
+        WifiEvent event = new WifiEvent(type);
+        recorder.recordEvent(event);
+        coalescer.post(event);
+    }
+
+    static List<String> describe(List<AccessPoint> accessPoints) {
+        List<String> descriptions = new ArrayList<>();
+        for (AccessPoint accessPoint : accessPoints) {
+            descriptions.add(accessPoint.getKey() + " " + accessPoint.bssid + " " + accessPoint.getRssi()
+                    + " " + accessPoint.networkId + " " + accessPoint.getScanRecords().size());
+        }
+        return descriptions;
+    }
+
+    @Test
+    public void trace_roundTrip() throws IOException {
+        WifiConfiguration wep = AccessPointMergerTest.config("\"wep\"", 3, AccessPoint.SECURITY_NONE);
+        wep.wepKeys[0] = "secret";
+        try (WifiTrace.Writer writer = new WifiTrace.Writer(file, 1234, 500)) {
+            writer.writeScanResults(510, Arrays.asList(
+                    new WifiScanRecord("会议室", "A0:B1:C2:D3:E4:F5", "[WPA2-PSK-CCMP][ESS]", -61, 5180),
+                    new WifiScanRecord("会议室", "bad", "[WPA2-PSK-CCMP][ESS]", -90, 2412)));
+            writer.writeConfiguredNetworks(520, Arrays.asList(wep,
+                    AccessPointMergerTest.config("\"psk\"", 4, AccessPoint.SECURITY_PSK)));
+            writer.writeEvent(520, new WifiEvent(WifiEvent.TYPE_SCAN_RESULTS));
+            writer.writeConnectionInfo(900, new WifiTrace.Connection(4, "\"psk\"", "00:11:22:33:44:55", -55));
+            writer.writeConnectionInfo(901, null);
+            writer.writeScanResults(902, null);
+        }
+        try (WifiTrace.Reader reader = new WifiTrace.Reader(file)) {
+            assertEquals(1234, reader.startedAt);
+
+            WifiTrace.Record scan = reader.next();
+            assertEquals(WifiTrace.TYPE_SCAN_RESULTS, scan.type);
+            assertEquals(10, scan.time);
+            assertEquals(2, scan.scanRecords.size());
+            WifiScanRecord first = scan.scanRecords.get(0);
+            assertEquals("会议室", first.ssid);
+            assertEquals("a0:b1:c2:d3:e4:f5", first.bssid);
+            assertEquals("[WPA2-PSK-CCMP][ESS]", first.capabilities);
+            assertEquals(-61, first.level);
+            assertEquals(5180, first.frequency);
+            assertNull(scan.scanRecords.get(1).bssid);
+
+            WifiTrace.Record configs = reader.next();
+            assertEquals(20, configs.time);
+            assertEquals(AccessPoint.SECURITY_WEP, AccessPoint.getSecurity(configs.configurations.get(0)));
+            // 不记录密钥内容
+            assertFalse("secret".equals(configs.configurations.get(0).wepKeys[0]));
+            assertEquals(AccessPoint.SECURITY_PSK, AccessPoint.getSecurity(configs.configurations.get(1)));
+            assertEquals("\"psk\"", configs.configurations.get(1).SSID);
+            assertEquals(4, configs.configurations.get(1).networkId);
+
+            WifiTrace.Record event = reader.next();
+            assertEquals(20, event.time);
+            assertEquals(WifiEvent.TYPE_SCAN_RESULTS, event.eventType);
+            assertEquals(WifiTrace.NO_STATE, event.state);
+
+            WifiTrace.Record connection = reader.next();
+            assertEquals(400, connection.time);
+            assertEquals(4, connection.connection.networkId);
+            assertEquals("\"psk\"", connection.connection.ssid);
+            assertEquals("00:11:22:33:44:55", connection.connection.bssid);
+            assertEquals(-55, connection.connection.rssi);
+
+            assertNull(reader.next().connection);
+            assertNull(reader.next().scanRecords);
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void truncatedTrace_dropsLastRecord() throws IOException {
+        record(file);
+        int count = WifiTrace.readAll(file).size();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+        assertEquals(count - 1, WifiTrace.readAll(file).size());
+    }
+}
@@ -0,0 +1,76 @@
+package com.zly.wifilistdemo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每个 BSSID 按 WifiScanRecord 保存和按 {@link ScanTable} 保存各自占用的内存
+ * <p>
+ * 两个方法创建的对象都会一直保留到下次扫描，gc 分析器输出的 gc.alloc.rate.norm 除以 bssids
+ * 近似为每个 BSSID 的字节数。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FootprintBenchmark {
+    private static final int BSSIDS_PER_AP = 3;
+    private static final char[] CAPABILITIES = "[WPA2-PSK-CCMP][ESS]".toCharArray();
+
+    @Param({"3000", "30000"})
+    public int bssids;
+
+    private char[][] ssids;
+    private char[][] bssidTexts;
+    private List<WifiScanRecord> records;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int aps = bssids / BSSIDS_PER_AP;
+        ssids = new char[aps][];
+        bssidTexts = new char[aps * BSSIDS_PER_AP][];
+        for (int i = 0; i < aps; i++) {
+            ssids[i] = ("kiosk-wifi-" + i).toCharArray();
+            for (int j = 0; j < BSSIDS_PER_AP; j++) {
+                bssidTexts[i * BSSIDS_PER_AP + j] = String.format("a0:b1:%02x:%02x:%02x:%02x",
+                        i >> 16 & 0xff, i >> 8 & 0xff, i & 0xff, j).toCharArray();
+            }
+        }
+        records = scanRecords();
+    }
+
+    /**
+     * 和 ScanResult 一样，每条结果的字符串都是独立的对象；字符串从字符数组新建，分配的就是保留的
+     */
+    @Benchmark
+    public List<WifiScanRecord> scanRecords() {
+        List<WifiScanRecord> records = new ArrayList<>(bssidTexts.length);
+        for (int i = 0; i < ssids.length; i++) {
+            for (int j = 0; j < BSSIDS_PER_AP; j++) {
+                records.add(new WifiScanRecord(new String(ssids[i]), new String(bssidTexts[i * BSSIDS_PER_AP + j]),
+                        new String(CAPABILITIES), -40 - (i + j) % 50, 2412 + 5 * (j % 13)));
+            }
+        }
+        return records;
+    }
+
+    @Benchmark
+    public List<ScanTable> scanTables() {
+        int aps = records.size() / BSSIDS_PER_AP;
+        List<ScanTable> tables = new ArrayList<>(aps);
+        for (int i = 0; i < aps; i++) {
+            tables.add(ScanTable.of(records.subList(i * BSSIDS_PER_AP, (i + 1) * BSSIDS_PER_AP)));
+        }
+        return tables;
+    }
+}
@@ -0,0 +1,53 @@
+package com.zly.wifilistdemo;
+
+import android.net.wifi.WifiConfiguration;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每次绑定都查找反射方法和使用 {@link HiddenApi} 缓存的耗时，每次调用对应一行的 isNetworkEnabled()
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HiddenApiBenchmark {
+    private WifiConfiguration config;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        config = new WifiConfiguration();
+    }
+
+    /**
+     * 之前 AccessPoint.isNetworkEnabled() 的实现
+     */
+    @Benchmark
+    public boolean lookupEveryCall() {
+        boolean enabled = true;
+        try {
+            Class<?> networkSelectionStatus = Class.forName("android.net.wifi.WifiConfiguration$NetworkSelectionStatus");
+            Method getNetworkSelectionStatus = WifiConfiguration.class.getMethod("getNetworkSelectionStatus");
+            Object status = getNetworkSelectionStatus.invoke(config);
+            Method isNetworkEnabled = networkSelectionStatus.getMethod("isNetworkEnabled");
+            enabled = (boolean) isNetworkEnabled.invoke(status);
+        } catch (Exception e) {
+            // 原实现在这里打印堆栈，基准测试中省略
+        }
+        return enabled;
+    }
+
+    @Benchmark
+    public boolean cached() {
+        return HiddenApi.isNetworkEnabled(config);
+    }
+}
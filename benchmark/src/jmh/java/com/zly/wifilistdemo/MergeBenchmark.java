@@ -0,0 +1,57 @@
+package com.zly.wifilistdemo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 合并扫描结果：首次合并和信号抖动后的再次合并
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MergeBenchmark {
+    private static final int ROUNDS = 16;
+
+    @Param({"50", "500", "5000"})
+    public int size;
+
+    private List<WifiScanRecord> records;
+    private List<List<WifiScanRecord>> rescans;
+    private AccessPointMerger merger;
+    private int round;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        records = ScanDataset.generate(size, 42);
+        Random random = new Random(7);
+        rescans = new ArrayList<>(ROUNDS);
+        for (int i = 0; i < ROUNDS; i++) {
+            rescans.add(ScanDataset.rescan(records, random));
+        }
+        merger = new AccessPointMerger(null);
+        merger.merge(records, null, null, null, null);
+    }
+
+    @Benchmark
+    public AccessPointMerger.Delta firstMerge() {
+        return new AccessPointMerger(null).merge(records, null, null, null, null);
+    }
+
+    @Benchmark
+    public AccessPointMerger.Delta rescan() {
+        round = (round + 1) % ROUNDS;
+        return merger.merge(rescans.get(round), null, null, null, null);
+    }
+}
@@ -0,0 +1,103 @@
+package com.zly.wifilistdemo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每个扫描结果都会走的小函数：capabilities 解析、信号格数、SSID 引号处理和符号查找
+ * <p>
+ * 每次调用处理整个数据集，吞吐量按“每秒处理的扫描结果批次”计。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ParseBenchmark {
+    @Param({"50", "500", "5000"})
+    public int size;
+
+    private String[] capabilities;
+    private int[] levels;
+    private String[] quotedSsids;
+    private AccessPoint[] accessPoints;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<WifiScanRecord> records = ScanDataset.generate(size, 42);
+        capabilities = new String[size];
+        levels = new int[size];
+        quotedSsids = new String[size];
+        accessPoints = new AccessPoint[size];
+        for (int i = 0; i < size; i++) {
+            WifiScanRecord record = records.get(i);
+            // 新建字符串，避免不同条目共享同一个常量
+            capabilities[i] = new String(record.capabilities);
+            levels[i] = record.level;
+            quotedSsids[i] = "\"" + record.ssid + "\"";
+            accessPoints[i] = new AccessPoint(null, record);
+        }
+    }
+
+    /**
+     * 不经过缓存的解析，对应原来 getSecurity() + getPskType() 的开销
+     */
+    @Benchmark
+    public void tokenize(Blackhole blackhole) {
+        for (String value : capabilities) {
+            WifiCapabilities parsed = WifiCapabilities.tokenize(value);
+            blackhole.consume(parsed.security);
+            blackhole.consume(parsed.pskType);
+        }
+    }
+
+    @Benchmark
+    public void parseCached(Blackhole blackhole) {
+        for (String value : capabilities) {
+            WifiCapabilities parsed = WifiCapabilities.parse(value);
+            blackhole.consume(parsed.security);
+            blackhole.consume(parsed.pskType);
+        }
+    }
+
+    @Benchmark
+    public void calculateSignalLevel(Blackhole blackhole) {
+        for (int level : levels) {
+            blackhole.consume(AccessPoint.calculateSignalLevel(level, AccessPoint.SIGNAL_LEVELS));
+        }
+    }
+
+    @Benchmark
+    public void removeDoubleQuotes(Blackhole blackhole) {
+        for (String ssid : quotedSsids) {
+            blackhole.consume(AccessPoint.removeDoubleQuotes(ssid));
+        }
+    }
+
+    /**
+     * 匹配 WifiConfiguration.SSID 时查找符号，代替 removeDoubleQuotes() 之后再比较字符串
+     */
+    @Benchmark
+    public void internQuoted(Blackhole blackhole) {
+        SsidTable table = SsidTable.get();
+        for (String ssid : quotedSsids) {
+            blackhole.consume(table.internQuoted(ssid));
+        }
+    }
+
+    @Benchmark
+    public void getQuotedSSID(Blackhole blackhole) {
+        for (AccessPoint accessPoint : accessPoints) {
+            blackhole.consume(accessPoint.getQuotedSSID());
+        }
+    }
+}
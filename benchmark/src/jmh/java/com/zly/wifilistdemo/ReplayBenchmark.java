@@ -0,0 +1,75 @@
+package com.zly.wifilistdemo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用 {@link TraceReplayer#SPEED_MAX} 回放一段生成的轨迹：每秒一次扫描结果，两次扫描之间夹着一串连接广播
+ * <p>
+ * 去抖用虚拟时间，每次调用的耗时就是整段轨迹经过去抖、合并和排序的处理时间。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReplayBenchmark {
+    private static final long DEBOUNCE_MILLIS = 250;
+    private static final int SCANS = 20;
+
+    @Param({"50", "500"})
+    public int size;
+
+    private TraceReplayer replayer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        File file = File.createTempFile("wifi", ".trace");
+        try {
+            List<WifiScanRecord> records = ScanDataset.generate(size, 42);
+            Random random = new Random(1);
+            try (WifiTrace.Writer writer = new WifiTrace.Writer(file, 0, 0)) {
+                for (int scan = 0; scan < SCANS; scan++) {
+                    long time = scan * 1000L;
+                    writer.writeEvent(time, new WifiEvent(WifiEvent.TYPE_SCAN_RESULTS));
+                    writer.writeScanResults(time, jitter(records, random));
+                    for (int i = 1; i <= 5; i++) {
+                        writer.writeEvent(time + 500 + i * 10, new WifiEvent(WifiEvent.TYPE_CONNECTIVITY));
+                    }
+                }
+            }
+            replayer = new TraceReplayer(WifiTrace.readAll(file), DEBOUNCE_MILLIS);
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * 每次扫描的信号强度在 ±5 dBm 内变化
+     */
+    private static List<WifiScanRecord> jitter(List<WifiScanRecord> records, Random random) {
+        List<WifiScanRecord> result = new ArrayList<>(records.size());
+        for (WifiScanRecord record : records) {
+            result.add(new WifiScanRecord(record.ssid, record.bssid, record.capabilities,
+                    record.level + random.nextInt(11) - 5, record.frequency));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public TraceReplayer.Report replay() throws InterruptedException {
+        return replayer.replay(TraceReplayer.SPEED_MAX);
+    }
+}
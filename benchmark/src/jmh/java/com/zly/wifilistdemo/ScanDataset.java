@@ -0,0 +1,93 @@
+package com.zly.wifilistdemo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 生成模拟的扫描结果
+ * <p>
+ * SSID 和 capabilities 的分布参考办公楼里的实际扫描：少数企业网络有大量 BSSID，
+ * 其余多为运营商和家用路由器的默认名称，另有少量隐藏网络和中文名称。
+ */
+final class ScanDataset {
+    private static final String[] MESH_SSIDS = {"Corp", "Corp-Guest", "Corp-IoT"};
+    private static final String[] SSID_PREFIXES = {
+            "ChinaNet-", "CMCC-", "TP-LINK_", "MERCURY_", "FAST_", "Xiaomi_", "HUAWEI-", "ChinaUnicom-", "DIRECT-"};
+    private static final String[] CHINESE_SSIDS = {"会议室", "前台", "咖啡厅免费WiFi", "三楼打印机"};
+
+    /**
+     * capabilities 及其权重（百分比）
+     */
+    private static final String[] CAPABILITIES = {
+            "[WPA2-PSK-CCMP][ESS]",
+            "[WPA-PSK-CCMP+TKIP][WPA2-PSK-CCMP+TKIP][ESS]",
+            "[WPA-PSK-CCMP+TKIP][WPA2-PSK-CCMP+TKIP][ESS][WPS]",
+            "[ESS]",
+            "[WPA2-EAP-CCMP][ESS]",
+            "[WPA2-PSK+SAE-CCMP][RSN-PSK+SAE-CCMP][ESS][MFPC]",
+            "[RSN-SAE-CCMP][ESS][MFPR][MFPC]",
+            "[WEP][ESS]",
+    };
+    private static final int[] WEIGHTS = {45, 15, 10, 12, 6, 6, 4, 2};
+
+    private ScanDataset() {
+    }
+
+    static List<WifiScanRecord> generate(int size, long seed) {
+        Random random = new Random(seed);
+        List<WifiScanRecord> records = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String ssid;
+            String capabilities;
+            int kind = random.nextInt(100);
+            if (kind < 20) {
+                // 企业网络，多个 BSSID
+                int mesh = random.nextInt(MESH_SSIDS.length);
+                ssid = MESH_SSIDS[mesh];
+                capabilities = mesh == 0 ? "[WPA2-EAP-CCMP][ESS]" : "[WPA2-PSK-CCMP][ESS]";
+            } else {
+                if (kind < 25) {
+                    ssid = "";
+                } else if (kind < 30) {
+                    ssid = CHINESE_SSIDS[random.nextInt(CHINESE_SSIDS.length)] + random.nextInt(10);
+                } else {
+                    ssid = SSID_PREFIXES[random.nextInt(SSID_PREFIXES.length)]
+                            + Integer.toHexString(0x1000 + random.nextInt(0xf000)).toUpperCase();
+                }
+                capabilities = pick(random);
+            }
+            String bssid = String.format("%02x:%02x:%02x:%02x:%02x:%02x", random.nextInt(256) & 0xfe,
+                    random.nextInt(256), random.nextInt(256), i >> 16 & 0xff, i >> 8 & 0xff, i & 0xff);
+            int level = -35 - (int) Math.min(60, Math.abs(random.nextGaussian() * 25));
+            int frequency = random.nextInt(3) == 0 ? 5180 + 20 * random.nextInt(8) : 2412 + 5 * random.nextInt(13);
+            records.add(new WifiScanRecord(ssid, bssid, capabilities, level, frequency));
+        }
+        return records;
+    }
+
+    /**
+     * 下一轮扫描：信号随机抖动，少量条目消失或出现
+     */
+    static List<WifiScanRecord> rescan(List<WifiScanRecord> records, Random random) {
+        List<WifiScanRecord> next = new ArrayList<>(records.size());
+        for (WifiScanRecord record : records) {
+            if (random.nextInt(50) == 0) {
+                continue;
+            }
+            next.add(record.withLevel(record.level + random.nextInt(7) - 3));
+        }
+        return next;
+    }
+
+    private static String pick(Random random) {
+        int value = random.nextInt(100);
+        for (int i = 0; i < WEIGHTS.length; i++) {
+            value -= WEIGHTS[i];
+            if (value < 0) {
+                return CAPABILITIES[i];
+            }
+        }
+        return CAPABILITIES[0];
+    }
+}
@@ -0,0 +1,58 @@
+package com.zly.wifilistdemo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 冷启动时从读文件到生成第一屏快照的耗时，以及每次扫描后保存的耗时
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SnapshotStoreBenchmark {
+    @Param({"50", "500"})
+    public int size;
+
+    private File file;
+    private ScanSnapshotStore store;
+    private List<AccessPoint> accessPoints;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = File.createTempFile("last_scan", null);
+        store = new ScanSnapshotStore(file);
+        accessPoints = new AccessPointMerger(null)
+                .merge(ScanDataset.generate(size, 42), null, null, null, null).getAccessPoints();
+        store.write(accessPoints, 1L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public AccessPointMerger.Delta readAndRestore() {
+        ScanSnapshotStore.Saved saved = store.read();
+        return new AccessPointMerger(null).restore(saved.records, null);
+    }
+
+    @Benchmark
+    public File write() throws IOException {
+        store.write(accessPoints, 1L);
+        return file;
+    }
+}
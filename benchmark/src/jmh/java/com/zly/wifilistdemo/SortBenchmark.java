@@ -0,0 +1,90 @@
+package com.zly.wifilistdemo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AccessPoint.compareTo() 整体排序，以及增量合并时使用的二分插入；legacySort 是改用排序主键之前的比较方式
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SortBenchmark {
+    /**
+     * 之前 AccessPoint.compareTo() 的实现，每次比较都重新计算信号格数
+     */
+    private static final Comparator<AccessPoint> LEGACY = (a, b) -> {
+        boolean reachableA = a.getRssi() != Integer.MAX_VALUE;
+        boolean reachableB = b.getRssi() != Integer.MAX_VALUE;
+        if (a.isActive() && !b.isActive()) return -1;
+        if (!a.isActive() && b.isActive()) return 1;
+        if (reachableA && !reachableB) return -1;
+        if (!reachableA && reachableB) return 1;
+        if (a.isSaved() && !b.isSaved()) return -1;
+        if (!a.isSaved() && b.isSaved()) return 1;
+        int difference = b.getSignalLevel() - a.getSignalLevel();
+        if (difference != 0) {
+            return difference;
+        }
+        return a.ssid.compareToIgnoreCase(b.ssid);
+    };
+
+    @Param({"50", "500", "5000"})
+    public int size;
+
+    private List<AccessPoint> shuffled;
+    private List<AccessPoint> sorted;
+    private AccessPoint[] inserts;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<WifiScanRecord> records = ScanDataset.generate(size, 42);
+        shuffled = new ArrayList<>(records.size());
+        for (WifiScanRecord record : records) {
+            shuffled.add(new AccessPoint(null, record));
+        }
+        Collections.shuffle(shuffled, new Random(1));
+        sorted = new ArrayList<>(shuffled);
+        Collections.sort(sorted);
+        inserts = shuffled.subList(0, Math.min(16, shuffled.size())).toArray(new AccessPoint[0]);
+    }
+
+    @Benchmark
+    public List<AccessPoint> sort() {
+        List<AccessPoint> list = new ArrayList<>(shuffled);
+        Collections.sort(list);
+        return list;
+    }
+
+    @Benchmark
+    public List<AccessPoint> legacySort() {
+        List<AccessPoint> list = new ArrayList<>(shuffled);
+        Collections.sort(list, LEGACY);
+        return list;
+    }
+
+    @Benchmark
+    public List<AccessPoint> insertSorted() {
+        AccessPoint accessPoint = inserts[next];
+        next = (next + 1) % inserts.length;
+        int index = Collections.binarySearch(sorted, accessPoint);
+        sorted.remove(index);
+        AccessPointMerger.insertSorted(sorted, accessPoint);
+        return sorted;
+    }
+}
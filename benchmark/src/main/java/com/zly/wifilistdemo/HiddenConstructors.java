@@ -0,0 +1,128 @@
+package com.zly.wifilistdemo;
+
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.net.wifi.WifiInfo;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+
+/**
+ * 通过隐藏的构造函数和 setter 创建 WifiInfo、NetworkInfo，只在 JVM 上回放轨迹时使用
+ * <p>
+ * 和 app 中的 HiddenApi 一样，每个方法只查找一次，找不到时返回 null。
+ */
+final class HiddenConstructors {
+    private static final Class<?> WIFI_SSID = findClass("android.net.wifi.WifiSsid");
+    private static final Method CREATE_WIFI_SSID = findMethod(WIFI_SSID, "createFromHex", String.class);
+    private static final Constructor<?> NEW_WIFI_INFO = findConstructor(WifiInfo.class);
+    private static final Method SET_NETWORK_ID = findMethod(WifiInfo.class, "setNetworkId", int.class);
+    private static final Method SET_SSID = findMethod(WifiInfo.class, "setSSID", WIFI_SSID);
+    private static final Method SET_BSSID = findMethod(WifiInfo.class, "setBSSID", String.class);
+    private static final Method SET_RSSI = findMethod(WifiInfo.class, "setRssi", int.class);
+    private static final Constructor<?> NEW_NETWORK_INFO = findConstructor(NetworkInfo.class,
+            int.class, int.class, String.class, String.class);
+    private static final Method SET_DETAILED_STATE = findMethod(NetworkInfo.class, "setDetailedState",
+            NetworkInfo.DetailedState.class, String.class, String.class);
+
+    private HiddenConstructors() {
+    }
+
+    private static Class<?> findClass(String name) {
+        try {
+            return Class.forName(name);
+        } catch (Exception | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static Method findMethod(Class<?> clazz, String name, Class<?>... parameterTypes) {
+        if (clazz == null) {
+            return null;
+        }
+        for (Class<?> type : parameterTypes) {
+            if (type == null) {
+                return null;
+            }
+        }
+        try {
+            return clazz.getMethod(name, parameterTypes);
+        } catch (Exception | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static Constructor<?> findConstructor(Class<?> clazz, Class<?>... parameterTypes) {
+        try {
+            return clazz.getConstructor(parameterTypes);
+        } catch (Exception | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param receiver 为 null 时调用静态方法
+     */
+    private static Object invoke(Method method, Object receiver, Object... args) {
+        if (method == null) {
+            return null;
+        }
+        try {
+            return method.invoke(receiver, args);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static Object newInstance(Constructor<?> constructor, Object... args) {
+        if (constructor == null) {
+            return null;
+        }
+        try {
+            return constructor.newInstance(args);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 用隐藏的构造函数创建 WifiInfo，无法创建时返回 null
+     */
+    static WifiInfo newWifiInfo(int networkId, String quotedSsid, String bssid, int rssi) {
+        Object info = newInstance(NEW_WIFI_INFO);
+        if (!(info instanceof WifiInfo)) {
+            return null;
+        }
+        invoke(SET_NETWORK_ID, info, networkId);
+        if (quotedSsid != null) {
+            // createFromAsciiEncoded() 会把中文变成问号，按 UTF-8 字节传入；getSSID() 返回时会加上引号
+            byte[] bytes = AccessPoint.removeDoubleQuotes(quotedSsid).getBytes(Charset.forName("UTF-8"));
+            StringBuilder hex = new StringBuilder(bytes.length * 2);
+            for (byte b : bytes) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            Object wifiSsid = invoke(CREATE_WIFI_SSID, null, hex.toString());
+            if (wifiSsid != null) {
+                invoke(SET_SSID, info, wifiSsid);
+            }
+        }
+        invoke(SET_BSSID, info, bssid);
+        invoke(SET_RSSI, info, rssi);
+        return (WifiInfo) info;
+    }
+
+    /**
+     * 用隐藏的构造函数创建 wifi 类型的 NetworkInfo，无法创建时返回 null
+     * <p>
+     * 构造函数会初始化 ConnectivityManager，依赖 native 方法，在普通 JVM 上总是返回 null。
+     */
+    static NetworkInfo newNetworkInfo(NetworkInfo.DetailedState state) {
+        Object info = newInstance(NEW_NETWORK_INFO, ConnectivityManager.TYPE_WIFI, 0, "WIFI", "");
+        if (!(info instanceof NetworkInfo)) {
+            return null;
+        }
+        invoke(SET_DETAILED_STATE, info, state, null, null);
+        return (NetworkInfo) info;
+    }
+}
@@ -0,0 +1,29 @@
+package com.zly.wifilistdemo;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * 回放从设备上取下的轨迹文件
+ * <p>
+ * ./gradlew :benchmark:replay -Ptrace=wifi.trace [-Pspeed=recorded] [-Prepeat=10]
+ */
+public class ReplayTrace {
+    private static final long DEBOUNCE_MILLIS = 250;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("usage: ReplayTrace <trace file> [max|recorded] [repeat]");
+            System.exit(1);
+        }
+        List<WifiTrace.Record> records = WifiTrace.readAll(new File(args[0]));
+        int speed = args.length > 1 && "recorded".equals(args[1])
+                ? TraceReplayer.SPEED_RECORDED : TraceReplayer.SPEED_MAX;
+        int repeat = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        System.out.println(records.size() + " records");
+        TraceReplayer replayer = new TraceReplayer(records, DEBOUNCE_MILLIS);
+        for (int i = 0; i < repeat; i++) {
+            System.out.println("run " + (i + 1) + ": " + replayer.replay(speed));
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.zly.wifilistdemo;
+
+import android.net.NetworkInfo;
+import android.net.wifi.WifiConfiguration;
+import android.net.wifi.WifiInfo;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.schedulers.TestScheduler;
+
+/**
+ * 在 JVM 上把 {@link WifiTrace} 回放进 {@link ScanPipeline}
+ * <p>
+ * 查询结果记录在触发它的事件之后，回放时读到就立即生效；事件按记录的时间 post 给
+ * {@link WifiEventCoalescer}。SPEED_MAX 用虚拟时间去抖，结果与机器快慢无关；
+ * SPEED_RECORDED 按记录的间隔真实等待，延迟中包含去抖时间。
+ * <p>
+ * WifiInfo 和 NetworkInfo 只能通过隐藏 API 创建。NetworkInfo 在普通 JVM 上无法创建，
+ * 所以 JVM 上回放时不会标出当前连接的条目，扫描结果的合并、排序和已保存网络的匹配不受影响。
+ */
+public class TraceReplayer {
+    public static final int SPEED_RECORDED = 0;
+    public static final int SPEED_MAX = 1;
+
+    private final List<WifiTrace.Record> records;
+    private final long debounceMillis;
+
+    public TraceReplayer(List<WifiTrace.Record> records, long debounceMillis) {
+        this.records = records;
+        this.debounceMillis = debounceMillis;
+    }
+
+    public Report replay(int speed) throws InterruptedException {
+        ReplayWifiSystem system = new ReplayWifiSystem();
+        ScanPipeline pipeline = new ScanPipeline(system, new AccessPointMerger(null), new SavedNetworkIndex(system));
+        Recorder recorder = new Recorder();
+        TestScheduler virtualTime = speed == SPEED_MAX ? new TestScheduler() : null;
+        Scheduler timer = virtualTime != null ? virtualTime : Schedulers.computation();
+        Scheduler worker = virtualTime != null ? Schedulers.trampoline() : Schedulers.single();
+        WifiEventCoalescer coalescer = new WifiEventCoalescer(debounceMillis, TimeUnit.MILLISECONDS, timer);
+        Disposable disposable = coalescer.process(batch -> recorder.process(pipeline, batch), worker)
+                .subscribe();
+
+        boolean started = false;
+        long startNanos = System.nanoTime();
+        try {
+            for (WifiTrace.Record record : records) {
+                if (record.type != WifiTrace.TYPE_EVENT) {
+                    system.apply(record);
+                    continue;
+                }
+                if (!started) {
+                    pipeline.start();
+                    started = true;
+                }
+                if (virtualTime != null) {
+                    virtualTime.advanceTimeTo(record.time, TimeUnit.MILLISECONDS);
+                } else {
+                    long delay = startNanos + TimeUnit.MILLISECONDS.toNanos(record.time) - System.nanoTime();
+                    if (delay > 0) {
+                        TimeUnit.NANOSECONDS.sleep(delay);
+                    }
+                }
+                NetworkInfo networkInfo = record.state == WifiTrace.NO_STATE
+                        ? null : system.networkInfo(record.state);
+                recorder.posted();
+                coalescer.post(new WifiEvent(record.eventType, networkInfo));
+            }
+            if (virtualTime != null) {
+                virtualTime.advanceTimeBy(debounceMillis, TimeUnit.MILLISECONDS);
+            }
+            recorder.awaitIdle();
+        } finally {
+            disposable.dispose();
+        }
+        return recorder.report(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * 记录每个事件从 post 到所在批次处理完成的时间
+     */
+    private static final class Recorder {
+        private final Queue<Long> postedAt = new ArrayDeque<>();
+        private long[] eventLatencies = new long[64];
+        private int eventCount;
+        private long[] batchDurations = new long[16];
+        private int batchCount;
+        private volatile AccessPointMerger.Delta lastDelta;
+
+        synchronized void posted() {
+            postedAt.add(System.nanoTime());
+        }
+
+        AccessPointMerger.Delta process(ScanPipeline pipeline, WifiEvent.Batch batch) {
+            long start = System.nanoTime();
+            try {
+                AccessPointMerger.Delta delta = pipeline.process(batch);
+                lastDelta = delta;
+                return delta;
+            } finally {
+                finished(start, System.nanoTime());
+            }
+        }
+
+        /**
+         * 开始处理之前 post 的事件都算作已处理：被 switchMap 丢弃的批次中的事件由后面的批次完成
+         */
+        private synchronized void finished(long start, long end) {
+            if (batchCount == batchDurations.length) {
+                batchDurations = Arrays.copyOf(batchDurations, batchCount * 2);
+            }
+            batchDurations[batchCount++] = end - start;
+            while (!postedAt.isEmpty() && postedAt.peek() - start <= 0) {
+                if (eventCount == eventLatencies.length) {
+                    eventLatencies = Arrays.copyOf(eventLatencies, eventCount * 2);
+                }
+                eventLatencies[eventCount++] = end - postedAt.poll();
+            }
+            notifyAll();
+        }
+
+        synchronized void awaitIdle() throws InterruptedException {
+            while (!postedAt.isEmpty()) {
+                wait();
+            }
+        }
+
+        synchronized Report report(long elapsedNanos) {
+            long[] latencies = Arrays.copyOf(eventLatencies, eventCount);
+            long[] durations = Arrays.copyOf(batchDurations, batchCount);
+            Arrays.sort(latencies);
+            Arrays.sort(durations);
+            AccessPointMerger.Delta delta = lastDelta;
+            return new Report(latencies, durations, elapsedNanos,
+                    delta == null ? Collections.<AccessPoint>emptyList() : delta.getAccessPoints());
+        }
+    }
+
+    /**
+     * 回放结果，时间单位均为纳秒
+     */
+    public static class Report {
+        /**
+         * 每个事件的延迟，已排序
+         */
+        public final long[] eventLatencies;
+        /**
+         * 每个批次的处理时间，已排序
+         */
+        public final long[] batchDurations;
+        public final long elapsedNanos;
+        /**
+         * 最后一个批次处理后的列表
+         */
+        public final List<AccessPoint> accessPoints;
+
+        Report(long[] eventLatencies, long[] batchDurations, long elapsedNanos, List<AccessPoint> accessPoints) {
+            this.eventLatencies = eventLatencies;
+            this.batchDurations = batchDurations;
+            this.elapsedNanos = elapsedNanos;
+            this.accessPoints = accessPoints;
+        }
+
+        public int getEventCount() {
+            return eventLatencies.length;
+        }
+
+        public int getBatchCount() {
+            return batchDurations.length;
+        }
+
+        /**
+         * 每秒处理的事件数
+         */
+        public double getThroughput() {
+            return elapsedNanos == 0 ? 0 : eventLatencies.length * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * @param fraction 0 到 1 之间
+         */
+        public static long percentile(long[] sorted, double fraction) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(fraction * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d events in %d batches, %.1f ms, %.0f events/s%n"
+                            + "event latency    p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, max %.3f ms%n"
+                            + "batch processing p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, max %.3f ms",
+                    getEventCount(), getBatchCount(), elapsedNanos / 1e6, getThroughput(),
+                    percentile(eventLatencies, 0.5) / 1e6, percentile(eventLatencies, 0.9) / 1e6,
+                    percentile(eventLatencies, 0.99) / 1e6, percentile(eventLatencies, 1) / 1e6,
+                    percentile(batchDurations, 0.5) / 1e6, percentile(batchDurations, 0.9) / 1e6,
+                    percentile(batchDurations, 0.99) / 1e6, percentile(batchDurations, 1) / 1e6);
+        }
+    }
+
+    /**
+     * 返回轨迹中最近一次记录的结果，修改网络的调用都失败
+     */
+    private static final class ReplayWifiSystem implements WifiSystem {
+        private volatile List<WifiScanRecord> scanRecords;
+        private volatile List<WifiConfiguration> configurations;
+        private volatile WifiInfo wifiInfo;
+        private volatile NetworkInfo activeNetworkInfo;
+        /**
+         * 同一状态的 NetworkInfo 只创建一次
+         */
+        private final Map<Integer, NetworkInfo> networkInfos = new HashMap<>();
+
+        void apply(WifiTrace.Record record) {
+            switch (record.type) {
+                case WifiTrace.TYPE_SCAN_RESULTS:
+                    scanRecords = record.scanRecords;
+                    break;
+                case WifiTrace.TYPE_CONFIGURED_NETWORKS:
+                    configurations = record.configurations;
+                    break;
+                case WifiTrace.TYPE_CONNECTION_INFO:
+                    WifiTrace.Connection connection = record.connection;
+                    wifiInfo = connection == null ? null : HiddenConstructors.newWifiInfo(connection.networkId,
+                            connection.ssid, connection.bssid, connection.rssi);
+                    break;
+                case WifiTrace.TYPE_NETWORK_INFO:
+                    activeNetworkInfo = networkInfo(record.state);
+                    break;
+            }
+        }
+
+        synchronized NetworkInfo networkInfo(int state) {
+            NetworkInfo.DetailedState detailedState = WifiTrace.detailedState(state);
+            if (detailedState == null) {
+                return null;
+            }
+            if (!networkInfos.containsKey(state)) {
+                networkInfos.put(state, HiddenConstructors.newNetworkInfo(detailedState));
+            }
+            return networkInfos.get(state);
+        }
+
+        @Override
+        public List<WifiScanRecord> getScanResults() {
+            List<WifiScanRecord> records = scanRecords;
+            return records == null ? Collections.<WifiScanRecord>emptyList() : records;
+        }
+
+        @Override
+        public List<WifiConfiguration> getConfiguredNetworks() {
+            return configurations;
+        }
+
+        @Override
+        public WifiInfo getConnectionInfo() {
+            return wifiInfo;
+        }
+
+        @Override
+        public NetworkInfo getActiveNetworkInfo() {
+            return activeNetworkInfo;
+        }
+
+        @Override
+        public boolean isCurrentNetworkValidated() {
+            return true;
+        }
+
+        @Override
+        public boolean startScan() {
+            return false;
+        }
+
+        @Override
+        public boolean setWifiEnabled(boolean enabled) {
+            return false;
+        }
+
+        @Override
+        public int addNetwork(WifiConfiguration config) {
+            return AccessPoint.INVALID_NETWORK_ID;
+        }
+
+        @Override
+        public int updateNetwork(WifiConfiguration config) {
+            return AccessPoint.INVALID_NETWORK_ID;
+        }
+
+        @Override
+        public boolean enableNetwork(int networkId, boolean attemptConnect) {
+            return false;
+        }
+
+        @Override
+        public boolean removeNetwork(int networkId) {
+            return false;
+        }
+    }
+}
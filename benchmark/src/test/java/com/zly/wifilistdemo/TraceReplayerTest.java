@@ -0,0 +1,46 @@
+package com.zly.wifilistdemo;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 用 app 单元测试中的 {@link WifiTraceTest#record(File)} 录制一段模拟的扫描过程，再在 JVM 上回放
+ * <p>
+ * 只检查回放的结果；回放的耗时见 ReplayBenchmark，按记录的速度回放用 ./gradlew :benchmark:replay
+ */
+public class TraceReplayerTest {
+    private static final long DEBOUNCE_MILLIS = WifiTraceTest.DEBOUNCE_MILLIS;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setUp() {
+        file = new File(folder.getRoot(), "wifi.trace");
+    }
+
+    @Test
+    public void replayAtMaxSpeed_reproducesRecordedRun() throws Exception {
+        List<AccessPoint> recorded = WifiTraceTest.record(file);
+        TraceReplayer.Report report = new TraceReplayer(WifiTrace.readAll(file), DEBOUNCE_MILLIS)
+                .replay(TraceReplayer.SPEED_MAX);
+        assertEquals(11, report.getEventCount());
+        assertEquals(2, report.getBatchCount());
+        assertEquals(WifiTraceTest.describe(recorded), WifiTraceTest.describe(report.accessPoints));
+        boolean saved = false;
+        for (AccessPoint accessPoint : report.accessPoints) {
+            saved |= accessPoint.isSaved();
+        }
+        assertTrue(saved);
+    }
+}